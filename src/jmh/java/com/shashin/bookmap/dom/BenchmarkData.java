@@ -0,0 +1,37 @@
+package com.shashin.bookmap.dom;
+
+import java.util.Random;
+
+/** Shared model fixtures for the benchmarks. */
+final class BenchmarkData {
+
+    static final int MID = 100_000; // best ask; the best bid is one tick below
+    static final int BOOK_LEVELS = 500;
+    static final int EVENTS = 1 << 12; // pre-generated events per benchmark, cycled with a mask
+
+    private BenchmarkData() {
+    }
+
+    /** Model with {@code levels} populated bid levels below {@link #MID} and ask levels from it upwards. */
+    static DomModel bookedModel(int levels) {
+        return bookedModel(new DomSettings(), levels);
+    }
+
+    /** {@link #bookedModel(int)} with the given settings. */
+    static DomModel bookedModel(DomSettings settings, int levels) {
+        DomModel model = new DomModel(settings);
+        Random random = new Random(7);
+        for (int i = 0; i < levels; i++) {
+            model.onDepth(true, MID - 1 - i, 1 + random.nextInt(500));
+            model.onDepth(false, MID + i, 1 + random.nextInt(500));
+        }
+        return model;
+    }
+
+    static int[] sizes(Random random) {
+        int[] sizes = new int[EVENTS];
+        for (int k = 0; k < EVENTS; k++)
+            sizes[k] = 1 + random.nextInt(200);
+        return sizes;
+    }
+}
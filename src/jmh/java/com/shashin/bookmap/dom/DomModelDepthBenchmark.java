@@ -0,0 +1,80 @@
+package com.shashin.bookmap.dom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.shashin.bookmap.dom.BenchmarkData.BOOK_LEVELS;
+import static com.shashin.bookmap.dom.BenchmarkData.EVENTS;
+import static com.shashin.bookmap.dom.BenchmarkData.MID;
+
+/** {@link DomModel#onDepth} on a {@value BenchmarkData#BOOK_LEVELS}-level book. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DomModelDepthBenchmark {
+
+    private DomModel model;
+    private int[] nearPrices; // within the reload-tracking range of the best bid
+    private int[] farPrices;  // deep in the book, outside that range
+    private int[] sizes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = BenchmarkData.bookedModel(BOOK_LEVELS);
+        Random random = new Random(42);
+        nearPrices = new int[EVENTS];
+        farPrices = new int[EVENTS];
+        for (int k = 0; k < EVENTS; k++) {
+            nearPrices[k] = MID - 2 - random.nextInt(15);
+            farPrices[k] = MID - 100 - random.nextInt(BOOK_LEVELS - 100);
+        }
+        sizes = BenchmarkData.sizes(random);
+    }
+
+    /** Size change near the BBO: book update plus reload (stacking/pulling) tracking. */
+    @Benchmark
+    public void inRangeUpdate() {
+        int k = next++ & (EVENTS - 1);
+        model.onDepth(true, nearPrices[k], sizes[k]);
+    }
+
+    /** Size change deep in the book: book update only. */
+    @Benchmark
+    public void outOfRangeUpdate() {
+        int k = next++ & (EVENTS - 1);
+        model.onDepth(true, farPrices[k], sizes[k]);
+    }
+
+    /** A non-best level is removed and re-added. */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void levelRemoveAndRestore() {
+        int k = next++ & (EVENTS - 1);
+        model.onDepth(true, farPrices[k], 0);
+        model.onDepth(true, farPrices[k], sizes[k]);
+    }
+
+    /** The best bid is removed, so the BBO moves to the next level, and is then restored. */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void bboChange() {
+        int k = next++ & (EVENTS - 1);
+        model.onDepth(true, MID - 1, 0);
+        model.onDepth(true, MID - 1, sizes[k]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.shashin.bookmap.dom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.shashin.bookmap.dom.BenchmarkData.BOOK_LEVELS;
+import static com.shashin.bookmap.dom.BenchmarkData.EVENTS;
+import static com.shashin.bookmap.dom.BenchmarkData.MID;
+
+/**
+ * Per-frame reads of a session with {@code tradedPrices} distinct traded prices: the full
+ * copy-on-write snapshot and the viewport frame the panel paints from. Both include the
+ * time-driven maintenance a live (non single-writer) model runs on every read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DomModelSnapshotBenchmark {
+
+    private static final int ROWS = 60;
+    private static final int WRITES_PER_FRAME = 16;
+
+    @Param({ "500", "5000", "50000" })
+    public int tradedPrices;
+
+    private DomModel model;
+    private DomFrame frame;
+    private int[] prices;
+    private int[] sizes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = BenchmarkData.bookedModel(BOOK_LEVELS);
+        Random random = new Random(42);
+        long time = System.currentTimeMillis() - tradedPrices * 10L;
+        int low = MID - tradedPrices / 2;
+        for (int i = 0; i < tradedPrices; i++)
+            model.onTrade(low + i, 1 + random.nextInt(50), random.nextBoolean(), time += 10);
+
+        frame = new DomFrame(ROWS);
+        prices = new int[EVENTS];
+        for (int k = 0; k < EVENTS; k++)
+            prices[k] = MID - 1 - random.nextInt(BOOK_LEVELS);
+        sizes = BenchmarkData.sizes(random);
+    }
+
+    @Benchmark
+    public DomSnapshot fullSnapshot() {
+        return model.getSnapshot();
+    }
+
+    /** Full snapshot while the book keeps changing, so frozen pages are copied on the next write. */
+    @Benchmark
+    public DomSnapshot fullSnapshotAfterWrites() {
+        for (int i = 0; i < WRITES_PER_FRAME; i++) {
+            int k = next++ & (EVENTS - 1);
+            model.onDepth(true, prices[k], sizes[k]);
+        }
+        return model.getSnapshot();
+    }
+
+    @Benchmark
+    public DomFrame viewportFrame() {
+        return model.getSnapshot(MID, ROWS);
+    }
+
+    @Benchmark
+    public DomFrame reusedViewportFrame() {
+        model.fillFrame(frame, MID);
+        return frame;
+    }
+}
@@ -0,0 +1,75 @@
+package com.shashin.bookmap.dom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.shashin.bookmap.dom.BenchmarkData.BOOK_LEVELS;
+import static com.shashin.bookmap.dom.BenchmarkData.EVENTS;
+import static com.shashin.bookmap.dom.BenchmarkData.MID;
+
+/**
+ * {@link DomModel#onTrade(int, int, boolean, long)} against the best levels, where the passive
+ * side has tracked reloads to correct. Trade timestamps advance by a fixed step per trade, so
+ * the step decides how often velocity and rolling-footprint buckets expire.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DomModelTradeBenchmark {
+
+    private DomModel model;
+    private int[] prices;
+    private int[] sizes;
+    private boolean[] buys;
+    private long now;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = BenchmarkData.bookedModel(BOOK_LEVELS);
+        Random random = new Random(42);
+        prices = new int[EVENTS];
+        buys = new boolean[EVENTS];
+        for (int k = 0; k < EVENTS; k++) {
+            buys[k] = random.nextBoolean();
+            prices[k] = buys[k] ? MID + random.nextInt(10) : MID - 1 - random.nextInt(10);
+        }
+        sizes = BenchmarkData.sizes(random);
+
+        // Give every traded level a tracked reload so each trade takes the correction path
+        for (int i = 0; i < 10; i++) {
+            model.onDepth(false, MID + i, 1_000);
+            model.onDepth(false, MID + i, 2_000);
+            model.onDepth(true, MID - 1 - i, 1_000);
+            model.onDepth(true, MID - 1 - i, 2_000);
+        }
+        now = System.currentTimeMillis();
+    }
+
+    /** Trades 1 ms apart: a velocity bucket expires every 100 trades. */
+    @Benchmark
+    public void denseTrades() {
+        int k = next++ & (EVENTS - 1);
+        model.onTrade(prices[k], sizes[k], buys[k], now += 1);
+    }
+
+    /** Trades 250 ms apart: every trade expires velocity buckets, every 20th a rolling-footprint bucket. */
+    @Benchmark
+    public void sparseTrades() {
+        int k = next++ & (EVENTS - 1);
+        model.onTrade(prices[k], sizes[k], buys[k], now += 250);
+    }
+}
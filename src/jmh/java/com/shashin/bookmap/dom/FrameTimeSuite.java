@@ -0,0 +1,435 @@
+package com.shashin.bookmap.dom;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.shashin.bookmap.dom.BenchmarkData.BOOK_LEVELS;
+import static com.shashin.bookmap.dom.BenchmarkData.MID;
+
+/**
+ * Headless frame-time suite for {@link JigsawDomPanel}: feeds the panel a sequence of frames
+ * the way the publisher does, one {@link JigsawDomPanel#updateSnapshot} per frame into its
+ * offscreen back buffer, and reports the paint time percentiles (p50, p99, p99.9) and the
+ * bytes allocated per frame for every window size and settings profile.
+ * <p>
+ * Frames come from a seeded synthetic market (depth churn around a wandering BBO and a
+ * trickle of trades, 60 frames per second of event time) or from a recorded
+ * {@link DomJournal}, replayed at the same frame spacing with frames delivered only when
+ * the model changed. Allocation counts the measuring thread and the parallel tile workers.
+ * Cases take turns over a few rounds, each on a fresh model and panel, and every statistic
+ * reported is the median of its rounds.
+ * <p>
+ * Modes: {@code run} prints the table; {@code record} also writes it as the baseline;
+ * {@code check} compares against the baseline and exits with status 1 when a case's p50,
+ * p99 or bytes per frame got worse by more than the threshold. p99.9 is reported but not
+ * checked, as a few thousand frames do not pin it down. Bytes per frame depend on the code,
+ * not the machine, and are always checked; timings are only comparable on the machine the
+ * baseline was recorded on, so the baseline records the machine (OS, architecture, CPU model
+ * and core count) and {@code check} leaves p50 and p99 out against one recorded elsewhere.
+ * The parallel-tile case is left out on a single core, where the panel has no tile workers
+ * and it would only repeat the default case.
+ */
+public final class FrameTimeSuite {
+
+    private static final int WARMUP_FRAMES = 1_000;
+    private static final int MEASURED_FRAMES = 3_000;
+    private static final int ROUNDS = 3; // each statistic is the median of the rounds
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+    private static final long JOURNAL_GAP_NANOS = 60_000_000_000L; // a minute without records ends a journal run
+    private static final long ALLOCATION_SLACK_BYTES = 256;        // below this no allocation change is a regression
+
+    private static final int[][] SIZES = { { 600, 800 }, { 900, 2160 } };
+    private static final String[] PROFILES = { "default", "raster", "tiles", "heatmap" };
+    private static final String MACHINE_PREFIX = "# machine: ";
+
+    private FrameTimeSuite() {
+    }
+
+    /** One case's results; times in microseconds. */
+    record Result(String name, int frames, double p50, double p99, double p999, long bytesPerFrame) {
+
+        String toCsv() {
+            return String.format("%s,%d,%.1f,%.1f,%.1f,%d", name, frames, p50, p99, p999, bytesPerFrame);
+        }
+
+        static Result fromCsv(String line) {
+            String[] f = line.split(",");
+            return new Result(f[0], Integer.parseInt(f[1]), Double.parseDouble(f[2]), Double.parseDouble(f[3]),
+                    Double.parseDouble(f[4]), Long.parseLong(f[5]));
+        }
+    }
+
+    // --- FRAME SOURCES ---
+
+    /** Moves a model on by one frame's worth of events. */
+    private interface FrameSource {
+
+        /** @return false once there is nothing left to replay */
+        boolean advance(DomModel model) throws IOException, InterruptedException;
+    }
+
+    /** Seeded synthetic market around {@link BenchmarkData#MID}, identical for every case. */
+    private static final class SyntheticSource implements FrameSource {
+
+        private static final int DEPTH_EVENTS_PER_FRAME = 40;
+
+        private final Random random = new Random(20_251_017);
+        private long timeMillis = 1_700_000_000_000L;
+        private long lastMaintenance;
+        private boolean maintained;
+        private int bestAsk = MID; // the best bid is one tick below
+
+        @Override
+        public boolean advance(DomModel model) {
+            timeMillis += FRAME_NANOS / 1_000_000;
+            for (int k = 0; k < DEPTH_EVENTS_PER_FRAME; k++) {
+                boolean isBid = random.nextBoolean();
+                int distance = Math.min(BOOK_LEVELS - 1, (int) Math.abs(random.nextGaussian() * 15));
+                int size = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(500);
+                model.onDepth(isBid, isBid ? bestAsk - 1 - distance : bestAsk + distance, size);
+            }
+            if (random.nextInt(3) == 0) {
+                boolean isBuy = random.nextBoolean();
+                model.onTrade(isBuy ? bestAsk : bestAsk - 1, 1 + random.nextInt(50), isBuy, timeMillis);
+            }
+            if (random.nextInt(20) == 0) {
+                if (random.nextBoolean()) {
+                    model.onDepth(false, bestAsk, 0);
+                    model.onDepth(true, bestAsk, 1 + random.nextInt(500));
+                    bestAsk++;
+                } else {
+                    model.onDepth(true, bestAsk - 1, 0);
+                    model.onDepth(false, bestAsk - 1, 1 + random.nextInt(500));
+                    bestAsk--;
+                }
+            }
+            if (!maintained || timeMillis - lastMaintenance >= DomIngestWorker.MAINTENANCE_INTERVAL_MS) {
+                model.maintain(timeMillis);
+                lastMaintenance = timeMillis;
+                maintained = true;
+            }
+            return true;
+        }
+    }
+
+    /** A recorded journal, replayed one frame interval of event time at a time. */
+    private static final class JournalSource implements FrameSource, AutoCloseable {
+
+        private final DomJournalReplayer replayer;
+        private long record;
+        private long untilNanos;
+        private long lastRecordNanos;
+
+        JournalSource(Path journal) throws IOException {
+            replayer = DomJournalReplayer.open(journal);
+            untilNanos = replayer.getStartNanos();
+            lastRecordNanos = untilNanos;
+        }
+
+        @Override
+        public boolean advance(DomModel model) throws IOException, InterruptedException {
+            long version = model.getVersion();
+            while (model.getVersion() == version) {
+                untilNanos += FRAME_NANOS;
+                long next = replayer.replay(model, record, untilNanos, DomJournalReplayer.MAX_SPEED);
+                if (next != record)
+                    lastRecordNanos = untilNanos;
+                else if (untilNanos - lastRecordNanos > JOURNAL_GAP_NANOS)
+                    return false;
+                record = next;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            replayer.close();
+        }
+    }
+
+    // --- MEASUREMENT ---
+
+    private static DomSettings profile(String name) {
+        DomSettings settings = new DomSettings();
+        switch (name) {
+            case "default" -> { }
+            case "raster" -> settings.rasterBars = true;
+            case "tiles" -> settings.parallelTiles = true;
+            case "heatmap" -> {
+                settings.heatmapEnabled = true;
+                settings.heatmapIntervalSeconds = 1;
+            }
+            default -> throw new IllegalArgumentException("unknown profile " + name);
+        }
+        return settings;
+    }
+
+    private static Result measure(String name, DomSettings settings, int width, int height, Path journal)
+            throws IOException, InterruptedException {
+        DomModel model = journal == null ? BenchmarkData.bookedModel(settings, BOOK_LEVELS) : new DomModel(settings);
+        model.setSingleWriter(true); // maintenance runs on event time only
+        JigsawDomPanel panel = new JigsawDomPanel(settings);
+        panel.qualityGovernor().pinFullQuality();
+        panel.setSize(width, height);
+        panel.setPips(0.25);
+
+        FrameSource source = journal == null ? new SyntheticSource() : new JournalSource(journal);
+        try {
+            // The panel keeps the frame it rendered to diff the next one against, so two alternate
+            DomFrame[] frames = { new DomFrame(panel.getRequestedRows()), new DomFrame(panel.getRequestedRows()) };
+            long[] paintNanos = new long[MEASURED_FRAMES];
+            AllocationCounter allocation = new AllocationCounter();
+            long allocated = 0;
+            int measured = 0;
+            for (int n = 0; n < WARMUP_FRAMES + MEASURED_FRAMES; n++) {
+                if (!source.advance(model))
+                    break;
+                DomFrame frame = frames[n & 1];
+                model.fillFrame(frame, panel.getCenterPrice(), panel.getHeatmapFrom(), panel.getHeatmapColumns());
+                if (n == 0) {
+                    panel.updateSnapshot(frame);
+                    panel.renderAllRows(); // there is no paintComponent to create the back buffer
+                    continue;
+                }
+                if (n == WARMUP_FRAMES)
+                    allocation.start(); // tile workers exist by now
+
+                long bytesBefore = n >= WARMUP_FRAMES ? allocation.read() : 0;
+                long started = System.nanoTime();
+                panel.updateSnapshot(frame);
+                long elapsed = System.nanoTime() - started;
+                if (n >= WARMUP_FRAMES) {
+                    allocated += allocation.read() - bytesBefore - allocation.overhead;
+                    paintNanos[measured++] = elapsed;
+                }
+            }
+            if (measured == 0)
+                throw new IllegalStateException(name + ": the journal ended before the warm-up did");
+
+            long[] sorted = Arrays.copyOf(paintNanos, measured);
+            Arrays.sort(sorted);
+            return new Result(name, measured, percentile(sorted, 50) / 1e3, percentile(sorted, 99) / 1e3,
+                    percentile(sorted, 99.9) / 1e3, Math.max(0, allocated / measured));
+        } finally {
+            if (source instanceof JournalSource s)
+                s.close();
+        }
+    }
+
+    /** Per-statistic median of one case's rounds; frames are summed. */
+    private static Result median(String name, List<Result> rounds) {
+        return new Result(name, rounds.stream().mapToInt(Result::frames).sum(),
+                median(rounds.stream().mapToDouble(Result::p50).toArray()),
+                median(rounds.stream().mapToDouble(Result::p99).toArray()),
+                median(rounds.stream().mapToDouble(Result::p999).toArray()),
+                (long) median(rounds.stream().mapToDouble(Result::bytesPerFrame).toArray()));
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    /** Nearest-rank percentile of ascending {@code sorted}. */
+    private static long percentile(long[] sorted, double percent) {
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /** Bytes allocated so far by this thread and the tile workers. */
+    private static final class AllocationCounter {
+
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private long[] ids = { Thread.currentThread().getId() };
+        private long overhead; // bytes one read itself allocates
+
+        void start() {
+            ids = Thread.getAllStackTraces().keySet().stream()
+                    .filter(t -> t == Thread.currentThread() || t.getName().startsWith("qtdom-tiles-"))
+                    .mapToLong(Thread::getId)
+                    .toArray();
+            overhead = Long.MAX_VALUE;
+            for (int i = 0; i < 10; i++) {
+                long before = read();
+                overhead = Math.min(overhead, read() - before);
+            }
+        }
+
+        long read() {
+            long total = 0;
+            for (long bytes : threads.getThreadAllocatedBytes(ids))
+                total += Math.max(0, bytes); // -1 for a worker that has since exited
+            return total;
+        }
+    }
+
+    // --- BASELINE ---
+
+    /** The OS, architecture, CPU model and core count timings depend on. */
+    private static String machine() {
+        String cpu = System.getProperty("os.arch");
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/cpuinfo"))) {
+                if (line.startsWith("model name")) {
+                    cpu = line.substring(line.indexOf(':') + 1).trim().replaceAll("\\s+", " ");
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux: the architecture has to do
+        }
+        return System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", " + cpu + ", "
+                + Runtime.getRuntime().availableProcessors() + " cores";
+    }
+
+    /** The machine the baseline was recorded on, null when it does not say. */
+    private static String baselineMachine(Path path) throws IOException {
+        for (String line : Files.readAllLines(path)) {
+            if (line.startsWith(MACHINE_PREFIX))
+                return line.substring(MACHINE_PREFIX.length());
+        }
+        return null;
+    }
+
+    private static Map<String, Result> readBaseline(Path path) throws IOException {
+        Map<String, Result> baseline = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(path)) {
+            if (!line.isBlank() && !line.startsWith("#"))
+                baseline.put(line.substring(0, line.indexOf(',')), Result.fromCsv(line));
+        }
+        return baseline;
+    }
+
+    /**
+     * Writes {@code results} over the cases of the same name in the baseline, keeping the others
+     * when the baseline was recorded on this machine.
+     */
+    private static void writeBaseline(Path path, List<Result> results) throws IOException {
+        boolean sameMachine = Files.exists(path) && machine().equals(baselineMachine(path));
+        Map<String, Result> baseline = sameMachine ? readBaseline(path) : new LinkedHashMap<>();
+        for (Result r : results)
+            baseline.put(r.name(), r);
+        List<String> lines = new ArrayList<>();
+        lines.add("# JigsawDomPanel frame times, written by FrameTimeSuite record (./gradlew frameTimeBaseline)");
+        lines.add(MACHINE_PREFIX + machine());
+        lines.add("# java: " + System.getProperty("java.version"));
+        lines.add("# case,frames,p50_us,p99_us,p999_us,bytes_per_frame");
+        for (Result r : baseline.values())
+            lines.add(r.toCsv());
+        Files.write(path, lines);
+    }
+
+    /**
+     * Prints every case against its baseline, bytes per frame always and timings only when
+     * {@code timings}; returns how many regressed by more than {@code thresholdPercent}.
+     */
+    private static int compare(List<Result> results, Map<String, Result> baseline, double thresholdPercent,
+                               boolean timings) {
+        double limit = 1 + thresholdPercent / 100;
+        int regressions = 0;
+        for (Result r : results) {
+            Result base = baseline.get(r.name());
+            if (base == null) {
+                System.out.printf("%-28s not in the baseline%n", r.name());
+                continue;
+            }
+            List<String> worse = new ArrayList<>();
+            if (timings && r.p50() > base.p50() * limit)
+                worse.add(String.format("p50 %.1f -> %.1f us", base.p50(), r.p50()));
+            if (timings && r.p99() > base.p99() * limit)
+                worse.add(String.format("p99 %.1f -> %.1f us", base.p99(), r.p99()));
+            if (r.bytesPerFrame() > base.bytesPerFrame() * limit + ALLOCATION_SLACK_BYTES)
+                worse.add(String.format("%d -> %d B/frame", base.bytesPerFrame(), r.bytesPerFrame()));
+            if (worse.isEmpty()) {
+                System.out.printf("%-28s ok%n", r.name());
+            } else {
+                System.out.printf("%-28s REGRESSED: %s%n", r.name(), String.join(", ", worse));
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "run";
+        boolean usage = switch (mode) {
+            case "run" -> args.length > 2;
+            case "record" -> args.length < 2 || args.length > 3;
+            case "check" -> args.length < 3 || args.length > 4;
+            default -> true;
+        };
+        if (usage) {
+            System.err.println("usage: FrameTimeSuite run [journal" + DomJournal.EXTENSION + "]");
+            System.err.println("       FrameTimeSuite record <baseline.csv> [journal" + DomJournal.EXTENSION + "]");
+            System.err.println("       FrameTimeSuite check <baseline.csv> <threshold%> [journal" + DomJournal.EXTENSION + "]");
+            System.exit(2);
+        }
+        int journalArg = switch (mode) {
+            case "run" -> 1;
+            case "record" -> 2;
+            default -> 3;
+        };
+        Path journal = args.length > journalArg ? Path.of(args[journalArg]) : null;
+        String sourceName = journal == null ? "synthetic" : "journal";
+        boolean timings = true;
+        if (mode.equals("check")) {
+            String recordedOn = baselineMachine(Path.of(args[1]));
+            timings = machine().equals(recordedOn);
+            if (!timings)
+                System.out.println("the baseline was recorded on " + (recordedOn == null ? "an unknown machine" : recordedOn)
+                        + ", this is " + machine() + ": checking bytes per frame only; re-record the baseline here"
+                        + " with FrameTimeSuite record (./gradlew frameTimeBaseline) to check timings too");
+        }
+        boolean tiles = Runtime.getRuntime().availableProcessors() > 1;
+        if (!tiles)
+            System.out.println("one core: no tile workers, the tiles case is skipped");
+
+        System.setProperty("java.awt.headless", "true");
+        List<Result> results = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<List<Result>> rounds = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            // Cases take turns, so a noisy stretch of the machine spoils one round of several, not one case
+            int k = 0;
+            for (int[] size : SIZES) {
+                for (String profile : PROFILES) {
+                    if (profile.equals("tiles") && !tiles)
+                        continue;
+                    String name = String.format("%s/%s@%dx%d", sourceName, profile, size[0], size[1]);
+                    if (round == 0) {
+                        names.add(name);
+                        rounds.add(new ArrayList<>());
+                    }
+                    rounds.get(k++).add(measure(name, profile(profile), size[0], size[1], journal));
+                }
+            }
+        }
+        System.out.printf("%-28s %7s %9s %9s %9s %12s%n", "case", "frames", "p50 us", "p99 us", "p99.9 us", "B/frame");
+        for (int k = 0; k < names.size(); k++) {
+            Result r = median(names.get(k), rounds.get(k));
+            System.out.printf("%-28s %7d %9.1f %9.1f %9.1f %12d%n",
+                    r.name(), r.frames(), r.p50(), r.p99(), r.p999(), r.bytesPerFrame());
+            results.add(r);
+        }
+
+        if (mode.equals("record")) {
+            writeBaseline(Path.of(args[1]), results);
+            System.out.println("baseline written to " + args[1]);
+        } else if (mode.equals("check")) {
+            int regressions = compare(results, readBaseline(Path.of(args[1])), Double.parseDouble(args[2]), timings);
+            if (regressions > 0) {
+                System.out.println(regressions + " case(s) regressed by more than " + args[2] + "%");
+                System.exit(1);
+            }
+        }
+    }
+}
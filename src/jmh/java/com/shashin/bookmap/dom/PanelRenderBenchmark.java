@@ -0,0 +1,100 @@
+package com.shashin.bookmap.dom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.shashin.bookmap.dom.BenchmarkData.BOOK_LEVELS;
+import static com.shashin.bookmap.dom.BenchmarkData.MID;
+
+/**
+ * Headless render of every visible row of a {@link JigsawDomPanel}, with bars drawn
+ * through Java2D or written into the pixel array ({@link DomSettings#rasterBars}), serially
+ * or as parallel tiles ({@link DomSettings#parallelTiles}), at a laptop and a 4K panel
+ * height. All variants paint the same frame; the trial setup of each one but serial Java2D
+ * prints how far its pixels are from the serial Java2D output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PanelRenderBenchmark {
+
+    private static final int WIDTH = 600;
+    private static final int TRADED_PRICES = 400;
+
+    @Param({ "java2d", "raster" })
+    public String renderer;
+
+    @Param({ "800", "2160" })
+    public int height;
+
+    @Param({ "false", "true" })
+    public boolean parallelTiles;
+
+    private JigsawDomPanel panel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DomModel model = BenchmarkData.bookedModel(BOOK_LEVELS);
+        Random random = new Random(42);
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < 20_000; i++)
+            model.onTrade(MID - TRADED_PRICES / 2 + random.nextInt(TRADED_PRICES), 1 + random.nextInt(50),
+                    random.nextBoolean(), time);
+
+        panel = panel(model, renderer.equals("raster"), parallelTiles);
+        if (renderer.equals("raster") || parallelTiles)
+            printDifference(panel(model, false, false).renderAllRows(), panel.renderAllRows());
+    }
+
+    @Benchmark
+    public BufferedImage renderAllRows() {
+        return panel.renderAllRows();
+    }
+
+    private JigsawDomPanel panel(DomModel model, boolean rasterBars, boolean parallelTiles) {
+        DomSettings settings = new DomSettings();
+        settings.rasterBars = rasterBars;
+        settings.parallelTiles = parallelTiles;
+        JigsawDomPanel p = new JigsawDomPanel(settings);
+        p.qualityGovernor().pinFullQuality();
+        p.setSize(WIDTH, height);
+        p.setPips(0.25);
+        p.updateSnapshot(model.getSnapshot(MID, p.getRequestedRows()));
+        return p;
+    }
+
+    private void printDifference(BufferedImage expected, BufferedImage actual) {
+        int differing = 0;
+        int maxChannel = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                if (a == b)
+                    continue;
+                differing++;
+                for (int shift = 0; shift < 24; shift += 8)
+                    maxChannel = Math.max(maxChannel, Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)));
+            }
+        }
+        System.out.printf("%n%s%s vs serial java2d: %d of %d pixels differ, by at most %d per channel%n",
+                renderer, parallelTiles ? " tiles" : "", differing, expected.getWidth() * expected.getHeight(), maxChannel);
+    }
+}
@@ -0,0 +1,184 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Flags absorption: aggressive volume traded into a resting level that neither gives way
+ * nor lets the price through. Each level being traded into has a slot of primitive state,
+ * direct-mapped by tick: the volume traded into it since its window opened, its size when
+ * the window opened and now, and how often it has refilled. Every trade and depth change
+ * is O(1) and nothing scans history.
+ * <p>
+ * A window opens with the first trade into a level and lasts the configured length. While
+ * it is open, the level is flagged as absorbing when at least the minimum volume has traded
+ * into it, it still rests in the book, and the volume exceeded its opening size or it has
+ * refilled. A level that empties closes its window. A flag is a highlight that fades over
+ * the decay time. Two ticks sharing a slot evict each other, which only ever forgets one
+ * of two distant levels. Not thread-safe: callers synchronize externally.
+ */
+public final class AbsorptionDetector {
+
+    static final int SLOTS = 1 << 10;   // direct-mapped by tick; more than any visible row count
+    public static final int LEVELS = 16; // highlight strength steps over the decay time
+
+    private static final byte NONE = 0;
+    private static final byte BID = 1;
+    private static final byte ASK = 2;
+
+    private final int[] ticks = new int[SLOTS];
+    private final byte[] sides = new byte[SLOTS];      // side of the level the slot tracks, NONE for empty
+    private final long[] windowStarts = new long[SLOTS]; // Long.MIN_VALUE when the window is closed
+    private final long[] traded = new long[SLOTS];
+    private final int[] sizesBefore = new int[SLOTS];
+    private final int[] sizesNow = new int[SLOTS];
+    private final int[] refills = new int[SLOTS];
+    private final long[] flaggedAt = new long[SLOTS];  // Long.MIN_VALUE when never flagged
+
+    private long windowMs = 5000;
+    private long minVolume = 1;
+    private long decayMs = 10_000;
+    private long lastFlagMs = Long.MIN_VALUE;
+    private long advancedStep = Long.MIN_VALUE;
+
+    public AbsorptionDetector() {
+        clear();
+    }
+
+    /** Picks up runtime changes of the settings; cheap enough to call before every event. */
+    public void configure(long windowMs, long minVolume, long decayMs) {
+        this.windowMs = Math.max(1, windowMs);
+        this.minVolume = Math.max(1, minVolume);
+        this.decayMs = Math.max(LEVELS, decayMs);
+    }
+
+    /**
+     * A trade of {@code size} into the {@code isBid} level at {@code price}, which rested
+     * {@code restingSize} when the trade was applied.
+     */
+    public void onTrade(int price, int size, boolean isBid, int restingSize, long now) {
+        int slot = price & (SLOTS - 1);
+        byte side = isBid ? BID : ASK;
+        if (ticks[slot] != price || sides[slot] != side) {
+            ticks[slot] = price;
+            sides[slot] = side;
+            flaggedAt[slot] = Long.MIN_VALUE;
+            windowStarts[slot] = Long.MIN_VALUE;
+        }
+        if (windowStarts[slot] == Long.MIN_VALUE || now - windowStarts[slot] > windowMs) {
+            windowStarts[slot] = now;
+            traded[slot] = 0;
+            sizesBefore[slot] = restingSize;
+            refills[slot] = 0;
+        }
+        traded[slot] += size;
+        sizesNow[slot] = restingSize;
+        evaluate(slot, now);
+    }
+
+    /** The {@code isBid} level at {@code price} changed from {@code oldSize} to {@code newSize}. */
+    public void onDepth(boolean isBid, int price, int oldSize, int newSize, long now) {
+        int slot = price & (SLOTS - 1);
+        if (ticks[slot] != price || sides[slot] != (isBid ? BID : ASK) || windowStarts[slot] == Long.MIN_VALUE)
+            return;
+        if (now - windowStarts[slot] > windowMs || newSize == 0) {
+            windowStarts[slot] = Long.MIN_VALUE; // expired, or the level gave way
+            return;
+        }
+        if (newSize > oldSize && oldSize >= 0)
+            refills[slot]++;
+        sizesNow[slot] = newSize;
+        evaluate(slot, now);
+    }
+
+    private void evaluate(int slot, long now) {
+        long volume = traded[slot];
+        if (volume >= minVolume && sizesNow[slot] > 0 && (volume > sizesBefore[slot] || refills[slot] > 0)) {
+            flaggedAt[slot] = now;
+            lastFlagMs = Math.max(lastFlagMs, now);
+        }
+    }
+
+    /**
+     * Highlight strength at {@code price}: 1 to {@link #LEVELS}, fading with the time since
+     * it was last flagged, positive for a bid and negative for an ask; 0 for none.
+     */
+    public int strength(int price, long now) {
+        int slot = price & (SLOTS - 1);
+        if (ticks[slot] != price || sides[slot] == NONE || flaggedAt[slot] == Long.MIN_VALUE)
+            return 0;
+        long age = Math.max(0, now - flaggedAt[slot]);
+        if (age >= decayMs)
+            return 0;
+        int level = (int) (LEVELS - age * LEVELS / decayMs);
+        return sides[slot] == BID ? level : -level;
+    }
+
+    /**
+     * Whether a highlight may have faded a step since the last call: true once per step
+     * while any is showing, so the caller can publish the change.
+     */
+    public boolean advance(long now) {
+        if (lastFlagMs == Long.MIN_VALUE || now - lastFlagMs > decayMs + decayMs / LEVELS)
+            return false;
+        long step = Math.floorDiv(now, decayMs / LEVELS);
+        if (step == advancedStep)
+            return false;
+        advancedStep = step;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(sides, NONE);
+        Arrays.fill(windowStarts, Long.MIN_VALUE);
+        Arrays.fill(flaggedAt, Long.MIN_VALUE);
+        lastFlagMs = Long.MIN_VALUE;
+        advancedStep = Long.MIN_VALUE;
+    }
+
+    // --- SERIALIZATION ---
+    // Occupied slots only
+
+    public void writeTo(DataOutput out) throws IOException {
+        int count = 0;
+        for (byte side : sides)
+            if (side != NONE)
+                count++;
+        out.writeInt(count);
+        out.writeLong(lastFlagMs);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (sides[slot] == NONE)
+                continue;
+            out.writeInt(ticks[slot]);
+            out.writeByte(sides[slot]);
+            out.writeLong(windowStarts[slot]);
+            out.writeLong(traded[slot]);
+            out.writeInt(sizesBefore[slot]);
+            out.writeInt(sizesNow[slot]);
+            out.writeInt(refills[slot]);
+            out.writeLong(flaggedAt[slot]);
+        }
+    }
+
+    public void readFrom(DataInput in) throws IOException {
+        clear();
+        int count = in.readInt();
+        if (count < 0 || count > SLOTS)
+            throw new IOException("corrupt absorption slot count " + count);
+        lastFlagMs = in.readLong();
+        for (int i = 0; i < count; i++) {
+            int tick = in.readInt();
+            int slot = tick & (SLOTS - 1);
+            ticks[slot] = tick;
+            sides[slot] = in.readByte();
+            windowStarts[slot] = in.readLong();
+            traded[slot] = in.readLong();
+            sizesBefore[slot] = in.readInt();
+            sizesNow[slot] = in.readInt();
+            refills[slot] = in.readInt();
+            flaggedAt[slot] = in.readLong();
+        }
+    }
+}
@@ -17,6 +17,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Layer1Attachable
@@ -35,6 +37,13 @@ public class BookmapJigsawDom implements
     private final ConcurrentHashMap<String, DomResources> resources = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, InstrumentInfo> instrumentInfos = new ConcurrentHashMap<>();
 
+    // Shared single-writer ingest thread, used by DOMs opened with singleWriterIngest enabled
+    private static final int INGEST_QUEUE_CAPACITY = 1 << 16;
+    private final DomIngestWorker ingestWorker = new DomIngestWorker();
+
+    // Shared thread building render frames for every open DOM window
+    private final DomFramePublisher framePublisher = new DomFramePublisher();
+
     public BookmapJigsawDom(Layer1ApiProvider provider) {
         this.provider = provider;
         provider.addListener((velox.api.layer1.Layer1ApiInstrumentListener) this);
@@ -43,9 +52,11 @@ public class BookmapJigsawDom implements
 
     private static class DomResources {
         DomModel model;
+        DomEventQueue queue; // null when events are applied directly on the data thread
+        DomJournal journal;  // null unless journaling; appended, keyframed and closed on the ingest worker
         JFrame window;
         JigsawDomPanel panel;
-        Timer timer;
+        DomFramePublisher.Source frames;
     }
 
     // --- Instrument lifecycle ---
@@ -87,6 +98,20 @@ public class BookmapJigsawDom implements
 
         DomResources res = new DomResources();
         res.model = new DomModel(settings);
+        if (settings.journalEnabled) {
+            try {
+                res.journal = DomJournal.create(Path.of(settings.journalDirectory), alias,
+                        settings.journalKeyframeSeconds * 1000L);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("DOM journal disabled for " + alias + ": " + e);
+            }
+        }
+        // Keyframes serialize the whole model to disk, so a journaled DOM always ingests on
+        // the worker and Bookmap's data thread only ever enqueues
+        if (settings.singleWriterIngest || res.journal != null) {
+            res.queue = new DomEventQueue(INGEST_QUEUE_CAPACITY);
+            ingestWorker.register(res.queue, res.model, res.journal);
+        }
 
         SwingUtilities.invokeLater(() -> {
             res.window = new JFrame("DOM: " + alias);
@@ -105,8 +130,7 @@ public class BookmapJigsawDom implements
                 }
             });
 
-            res.timer = new Timer(33, e -> res.panel.updateSnapshot(res.model.getSnapshot()));
-            res.timer.start();
+            res.frames = framePublisher.register(res.model, res.panel, res.queue);
         });
         resources.put(alias, res);
     }
@@ -114,9 +138,12 @@ public class BookmapJigsawDom implements
     private void stopDom(String alias) {
         DomResources res = resources.remove(alias);
         if (res != null) {
+            // The worker applies what is still queued, then closes the journal on its own thread
+            if (res.queue != null)
+                ingestWorker.unregister(res.queue);
             SwingUtilities.invokeLater(() -> {
-                if (res.timer != null)
-                    res.timer.stop();
+                if (res.frames != null)
+                    framePublisher.unregister(res.frames);
                 if (res.window != null)
                     res.window.dispose();
             });
@@ -155,14 +182,22 @@ public class BookmapJigsawDom implements
         DomResources res = resources.get(alias);
         if (res != null) {
             int tickPrice = (int) Math.round(price);
-            res.model.onTrade(tickPrice, size, tradeInfo.isBidAggressor);
+            long now = DomJournal.wallClockNanos();
+            if (res.queue != null)
+                res.queue.offerTrade(tickPrice, size, tradeInfo.isBidAggressor, now);
+            else
+                res.model.onTrade(tickPrice, size, tradeInfo.isBidAggressor, now / 1_000_000);
         }
     }
 
     @Override
     public void onDepth(String alias, boolean isBid, int price, int size) {
         DomResources res = resources.get(alias);
-        if (res != null)
+        if (res == null)
+            return;
+        if (res.queue != null)
+            res.queue.offerDepth(isBid, price, size, DomJournal.wallClockNanos());
+        else
             res.model.onDepth(isBid, price, size);
     }
 
@@ -171,5 +206,7 @@ public class BookmapJigsawDom implements
     @Override
     public void finish() {
         resources.keySet().forEach(this::stopDom);
+        ingestWorker.shutdown();
+        framePublisher.shutdown();
     }
 }
@@ -0,0 +1,150 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of book-size columns behind the depth heatmap.
+ * <p>
+ * Every sample interval the resting size (bid plus ask) of the {@link #SPAN} prices
+ * centred on the market is copied into the next column, overwriting the oldest, so memory
+ * stays at capacity * span ints however long the session runs and however far the price
+ * travels. Columns are numbered by a sequence that only grows, which lets a reader copy
+ * out just the columns it has not seen yet. Not thread-safe: callers synchronize externally.
+ */
+public final class DepthHistory {
+
+    /** Prices held per column, centred on the market when the column was sampled. */
+    public static final int SPAN = 512;
+
+    private final int capacity;
+    private int[] sizes;           // capacity * SPAN, column after column; allocated by the first sample
+    private final int[] lowPrice;  // lowest price each column holds
+    private long head = -1;        // sequence of the newest column, -1 before the first sample
+    private long nextSampleMs = Long.MIN_VALUE;
+
+    public DepthHistory(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.lowPrice = new int[this.capacity];
+    }
+
+    /** Sequence of the newest column, -1 for none. */
+    public long head() {
+        return head;
+    }
+
+    /** Sequence of the oldest column still held. */
+    public long oldest() {
+        return Math.max(0, head - capacity + 1);
+    }
+
+    /**
+     * Adds a column of {@code bids} plus {@code asks} around {@code centerPrice} when one is
+     * due at {@code now}; sample times are aligned to multiples of {@code intervalMs}. A
+     * {@code centerPrice} of 0 (no market yet) records an empty column, so the time axis
+     * stays even.
+     *
+     * @return whether a column was added
+     */
+    public boolean sample(long now, long intervalMs, PriceLadder bids, PriceLadder asks, int centerPrice) {
+        if (now < nextSampleMs)
+            return false;
+        nextSampleMs = (Math.floorDiv(now, intervalMs) + 1) * intervalMs;
+        if (sizes == null)
+            sizes = new int[capacity * SPAN];
+
+        head++;
+        int slot = slot(head);
+        int offset = slot * SPAN;
+        if (centerPrice == 0) {
+            lowPrice[slot] = 0;
+            Arrays.fill(sizes, offset, offset + SPAN, 0);
+            return true;
+        }
+        int low = centerPrice - SPAN / 2;
+        lowPrice[slot] = low;
+        for (int i = 0; i < SPAN; i++)
+            sizes[offset + i] = bids.get(low + i) + asks.get(low + i);
+        return true;
+    }
+
+    /**
+     * Copies columns {@code first} to {@link #head()}, oldest first, into {@code out}: for
+     * each, the sizes of the {@code rows} prices from {@code topPrice} downwards, 0 where
+     * the column holds nothing. {@code first} must not be older than {@link #oldest()}.
+     */
+    public void copyColumns(long first, int topPrice, int rows, int[] out) {
+        for (long seq = first; seq <= head; seq++) {
+            int slot = slot(seq);
+            int from = slot * SPAN;
+            int to = (int) (seq - first) * rows;
+            int top = topPrice - lowPrice[slot]; // index of the first row's price in the column
+            for (int i = 0; i < rows; i++) {
+                int k = top - i;
+                out[to + i] = k >= 0 && k < SPAN ? sizes[from + k] : 0;
+            }
+        }
+    }
+
+    public void clear() {
+        head = -1;
+        nextSampleMs = Long.MIN_VALUE;
+    }
+
+    /** Writes the held columns, each as its low price and its non-zero sizes. */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(head);
+        out.writeLong(nextSampleMs);
+        long first = oldest();
+        out.writeInt(head < 0 ? 0 : (int) (head - first + 1));
+        for (long seq = first; head >= 0 && seq <= head; seq++) {
+            int slot = slot(seq);
+            int offset = slot * SPAN;
+            int levels = 0;
+            for (int i = 0; i < SPAN; i++)
+                if (sizes[offset + i] != 0)
+                    levels++;
+            out.writeInt(lowPrice[slot]);
+            out.writeShort(levels);
+            for (int i = 0; i < SPAN; i++) {
+                if (sizes[offset + i] != 0) {
+                    out.writeShort(i);
+                    out.writeInt(sizes[offset + i]);
+                }
+            }
+        }
+    }
+
+    /** Replaces the history with columns written by {@link #writeTo(DataOutput)}. */
+    public void readFrom(DataInput in) throws IOException {
+        head = in.readLong();
+        nextSampleMs = in.readLong();
+        int stored = in.readInt();
+        if (stored > 0 && sizes == null)
+            sizes = new int[capacity * SPAN];
+        for (int k = 0; k < stored; k++) {
+            long seq = head - stored + 1 + k;
+            boolean keep = seq >= oldest();
+            int slot = slot(seq);
+            int offset = slot * SPAN;
+            int low = in.readInt();
+            if (keep) {
+                lowPrice[slot] = low;
+                Arrays.fill(sizes, offset, offset + SPAN, 0);
+            }
+            int levels = in.readShort();
+            for (int n = 0; n < levels; n++) {
+                int i = in.readShort();
+                int size = in.readInt();
+                if (keep)
+                    sizes[offset + i] = size;
+            }
+        }
+    }
+
+    private int slot(long seq) {
+        return (int) Math.floorMod(seq, (long) capacity);
+    }
+}
@@ -0,0 +1,166 @@
+package com.shashin.bookmap.dom;
+
+import java.util.Arrays;
+
+/**
+ * Running statistics of the resting sizes within a number of ticks of the best bid and
+ * best ask: level count, total size and a log-bucketed histogram from which percentiles
+ * are read to within one bucket (four buckets per doubling, exact below 8).
+ * <p>
+ * The model reports every level change and every move of the BBO, and the statistics are
+ * adjusted by the difference: a size change is one histogram decrement and increment,
+ * a BBO move touches only the prices entering and leaving the window. Nothing rescans
+ * the book except a change of the window size. Empty prices are not levels and do not
+ * count. Not thread-safe: callers synchronize externally.
+ */
+public final class DepthStats {
+
+    private static final int SUB_BUCKETS = 4; // per doubling
+    private static final int EXACT = 2 * SUB_BUCKETS; // sizes below this have a bucket each
+    private static final int BUCKETS = 30 * SUB_BUCKETS;
+
+    private final int[] histogram = new int[BUCKETS];
+    private int count;
+    private long sum;
+    private int levels;                      // ticks per side, the best price included
+    private int bidTop = Integer.MIN_VALUE;  // best bid the window hangs from
+    private int askBottom = Integer.MAX_VALUE;
+
+    /** Ticks per side the window covers. */
+    public int levels() {
+        return levels;
+    }
+
+    /** Levels in the window. */
+    public int count() {
+        return count;
+    }
+
+    /** Mean resting size of the levels in the window, 0 when there are none. */
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Size at or below which {@code percent} percent of the window's levels rest, rounded
+     * down to its bucket's lower bound; 0 when there are no levels.
+     */
+    public int percentile(int percent) {
+        if (count == 0)
+            return 0;
+        long target = Math.max(1, ((long) count * Math.max(0, Math.min(100, percent)) + 99) / 100);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= target)
+                return lowerBound(b);
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+
+    /** Recounts the window of {@code levels} ticks from the book; used when the size changes or after a restore. */
+    public void reset(int levels, PriceLadder bids, PriceLadder asks, int bestBid, int bestAsk) {
+        Arrays.fill(histogram, 0);
+        count = 0;
+        sum = 0;
+        this.levels = Math.max(1, levels);
+        bidTop = Integer.MIN_VALUE;
+        askBottom = Integer.MAX_VALUE;
+        moveBid(bestBid, bids);
+        moveAsk(bestAsk, asks);
+    }
+
+    /** A level changed from {@code oldSize} to {@code newSize}; call before moving the window. */
+    public void onLevel(boolean isBid, int price, int oldSize, int newSize) {
+        boolean inWindow = isBid
+                ? bidTop != Integer.MIN_VALUE && price <= bidTop && price > bidTop - levels
+                : askBottom != Integer.MAX_VALUE && price >= askBottom && price < askBottom + levels;
+        if (!inWindow)
+            return;
+        remove(oldSize);
+        add(newSize);
+    }
+
+    /** Moves the bid window to hang from {@code bestBid} ({@code Integer.MIN_VALUE} for none). */
+    public void moveBid(int bestBid, PriceLadder bids) {
+        if (bestBid == bidTop)
+            return;
+        int oldTop = bidTop;
+        bidTop = bestBid;
+        if (oldTop == Integer.MIN_VALUE) {
+            addRange(bids, bestBid - levels + 1, bestBid);
+        } else if (bestBid == Integer.MIN_VALUE || Math.abs((long) bestBid - oldTop) >= levels) {
+            removeRange(bids, oldTop - levels + 1, oldTop);
+            if (bestBid != Integer.MIN_VALUE)
+                addRange(bids, bestBid - levels + 1, bestBid);
+        } else if (bestBid > oldTop) {
+            removeRange(bids, oldTop - levels + 1, bestBid - levels);
+            addRange(bids, oldTop + 1, bestBid);
+        } else {
+            removeRange(bids, bestBid + 1, oldTop);
+            addRange(bids, bestBid - levels + 1, oldTop - levels);
+        }
+    }
+
+    /** Moves the ask window to hang from {@code bestAsk} ({@code Integer.MAX_VALUE} for none). */
+    public void moveAsk(int bestAsk, PriceLadder asks) {
+        if (bestAsk == askBottom)
+            return;
+        int oldBottom = askBottom;
+        askBottom = bestAsk;
+        if (oldBottom == Integer.MAX_VALUE) {
+            addRange(asks, bestAsk, bestAsk + levels - 1);
+        } else if (bestAsk == Integer.MAX_VALUE || Math.abs((long) bestAsk - oldBottom) >= levels) {
+            removeRange(asks, oldBottom, oldBottom + levels - 1);
+            if (bestAsk != Integer.MAX_VALUE)
+                addRange(asks, bestAsk, bestAsk + levels - 1);
+        } else if (bestAsk < oldBottom) {
+            removeRange(asks, bestAsk + levels, oldBottom + levels - 1);
+            addRange(asks, bestAsk, oldBottom - 1);
+        } else {
+            removeRange(asks, oldBottom, bestAsk - 1);
+            addRange(asks, oldBottom + levels, bestAsk + levels - 1);
+        }
+    }
+
+    private void addRange(PriceLadder book, int from, int to) {
+        for (int price = from; price <= to; price++)
+            add(book.get(price));
+    }
+
+    private void removeRange(PriceLadder book, int from, int to) {
+        for (int price = from; price <= to; price++)
+            remove(book.get(price));
+    }
+
+    private void add(int size) {
+        if (size <= 0)
+            return;
+        histogram[bucket(size)]++;
+        count++;
+        sum += size;
+    }
+
+    private void remove(int size) {
+        if (size <= 0)
+            return;
+        histogram[bucket(size)]--;
+        count--;
+        sum -= size;
+    }
+
+    static int bucket(int size) {
+        if (size < EXACT)
+            return size;
+        int exponent = 31 - Integer.numberOfLeadingZeros(size);          // size in [2^e, 2^(e+1))
+        int mantissa = size >>> (exponent - 2);                           // [4, 8)
+        return (exponent - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    static int lowerBound(int bucket) {
+        if (bucket < EXACT)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + 1;
+        return (bucket % SUB_BUCKETS + SUB_BUCKETS) << (exponent - 2);
+    }
+}
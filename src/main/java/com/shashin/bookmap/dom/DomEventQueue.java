@@ -0,0 +1,135 @@
+package com.shashin.bookmap.dom;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of market events for one instrument.
+ * <p>
+ * Events are stored as fixed-size primitive records in preallocated parallel arrays,
+ * so publishing never allocates and never blocks: when the ring is full the event is
+ * dropped and counted. The producer is Bookmap's data thread, the consumer is the
+ * {@link DomIngestWorker} that owns the {@link DomModel}; an idle worker parks, and the
+ * producer wakes it only when it has said so.
+ */
+public final class DomEventQueue {
+
+    static final byte DEPTH_BID = 0;
+    static final byte DEPTH_ASK = 1;
+    static final byte TRADE_BUY = 2;  // bid aggressor
+    static final byte TRADE_SELL = 3; // ask aggressor
+
+    private final int capacity;
+    private final int mask;
+    private final byte[] kinds;
+    private final int[] prices;
+    private final int[] sizes;
+    private final long[] times; // wall-clock nanos
+
+    private final AtomicLong head = new AtomicLong(); // next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, written by the producer
+
+    // --- PRODUCER-ONLY STATE ---
+    private long producerTail = 0;
+    private long cachedHead = 0;
+    private volatile long droppedEvents = 0; // single writer (the producer), so ++ is safe
+    private volatile DomIngestWorker consumer;  // woken after a publish, null when unregistered
+
+    public DomEventQueue(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.kinds = new byte[capacity];
+        this.prices = new int[capacity];
+        this.sizes = new int[capacity];
+        this.times = new long[capacity];
+    }
+
+    // --- PRODUCER ---
+
+    /** Queues a depth update received at {@code timeNanos} ({@link DomJournal#wallClockNanos()}). */
+    public boolean offerDepth(boolean isBid, int price, int size, long timeNanos) {
+        return offer(isBid ? DEPTH_BID : DEPTH_ASK, price, size, timeNanos);
+    }
+
+    /** Queues a trade received at {@code timeNanos} ({@link DomJournal#wallClockNanos()}). */
+    public boolean offerTrade(int price, int size, boolean isBidAggressor, long timeNanos) {
+        return offer(isBidAggressor ? TRADE_BUY : TRADE_SELL, price, size, timeNanos);
+    }
+
+    private boolean offer(byte kind, int price, int size, long timeNanos) {
+        long t = producerTail;
+        if (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                droppedEvents++;
+                return false;
+            }
+        }
+        int i = (int) t & mask;
+        kinds[i] = kind;
+        prices[i] = price;
+        sizes[i] = size;
+        times[i] = timeNanos;
+        producerTail = t + 1;
+        // A full write, not lazySet: the consumer's parked flag must not be read ahead of it,
+        // or a worker parking at that moment would miss the event
+        tail.set(t + 1);
+        DomIngestWorker worker = consumer;
+        if (worker != null)
+            worker.wake();
+        return true;
+    }
+
+    /** The worker to wake after each publish; set by {@link DomIngestWorker#register}. */
+    void setConsumer(DomIngestWorker worker) {
+        consumer = worker;
+    }
+
+    /** Events rejected because the ring was full. */
+    public long droppedEvents() {
+        return droppedEvents;
+    }
+
+    // --- CONSUMER ---
+
+    /**
+     * Applies up to {@code maxEvents} queued events to {@code model} under a single
+     * acquisition of its monitor, appending each to {@code journal} first (and letting it
+     * take a keyframe after the batch) when it is not {@code null}. An event whose
+     * application throws is consumed with the events before it; the exception propagates.
+     *
+     * @return the number of events applied
+     */
+    public int drainTo(DomModel model, DomJournal journal, int maxEvents) {
+        long h = head.get();
+        int n = (int) Math.min(tail.get() - h, maxEvents);
+        if (n <= 0)
+            return 0;
+        int taken = 0; // an event that throws is still taken, so it cannot fail every drain
+        try {
+            synchronized (model) {
+                for (int k = 0; k < n; k++) {
+                    int i = (int) (h + k) & mask;
+                    byte kind = kinds[i];
+                    taken++;
+                    if (journal != null)
+                        journal.append(times[i], prices[i], sizes[i], kind);
+                    if (kind <= DEPTH_ASK)
+                        model.onDepth(kind == DEPTH_BID, prices[i], sizes[i]);
+                    else
+                        model.onTrade(prices[i], sizes[i], kind == TRADE_BUY, times[i] / 1_000_000);
+                }
+                if (journal != null)
+                    journal.maybeKeyframe(model, times[(int) (h + n - 1) & mask]);
+            }
+        } finally {
+            head.lazySet(h + taken); // hand the slots back to the producer
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
@@ -0,0 +1,129 @@
+package com.shashin.bookmap.dom;
+
+/**
+ * Render-ready window of a {@link DomModel}: dense per-row primitive arrays for the
+ * {@code rows} prices from {@link #topPrice} downwards, plus the few global scalars the
+ * panel needs. Row {@code i} holds price {@code topPrice - i}; a value of {@code 0} means
+ * "nothing at this price".
+ * <p>
+ * Filled by {@link DomModel#getSnapshot(int, int)} or {@link DomModel#fillFrame} and
+ * treated as immutable while the panel holds it; {@link DomFramePublisher} refills a frame
+ * only after the panel has been handed a newer one.
+ */
+public final class DomFrame {
+
+    public final int rows;
+    public int topPrice;
+
+    // --- BOOK ---
+    public final int[] bidSize;
+    public final int[] askSize;
+    public final int[] bidReload;
+    public final int[] askReload;
+    public final int[] bidIceberg;  // estimated hidden size of a detected iceberg
+    public final int[] askIceberg;
+    public final long[] cumBidSize; // resting bid size from the best bid down to the row, 0 above it
+    public final long[] cumAskSize; // resting ask size from the best ask up to the row, 0 below it
+    public final int[] absorption;  // fading absorption highlight, + bid / - ask (see AbsorptionDetector)
+
+    // --- TRADES ---
+    public final int[] velocity;
+    public final long[] sessionAskVol;
+    public final long[] sessionBidVol;
+    public final long[] rollingAskVol;
+    public final long[] rollingBidVol;
+    public final int[] rollingAskCnt;
+    public final int[] rollingBidCnt;
+
+    // --- DEPTH HISTORY ---
+    // Heatmap columns heatmapFirst .. heatmapFirst + heatmapCount - 1, oldest first, each
+    // holding one book size per row. Only the columns the reader asked for (see DepthHistory).
+    public long heatmapHead = -1; // newest column sampled, -1 for none
+    public long heatmapFirst;
+    public int heatmapCount;
+    public int[] heatmap = new int[0];
+
+    // --- GLOBALS ---
+    public int lastTradePrice;
+    public int lastTradeSize;
+    public int bestBid = Integer.MIN_VALUE;
+    public int bestAsk = Integer.MAX_VALUE;
+    public long maxVolume = 1; // histogram scales: the session's largest volume and |delta| at a price
+    public long maxDelta = 1;
+    public int pocPrice;       // session point of control, 0 before the first trade
+    public int valueAreaHigh;  // session value area, 0 before the first trade
+    public int valueAreaLow;
+    public int depthHighlight = 1; // book sizes from here up are highlighted and fully coloured
+    public int depthReadoutTicks;  // the readout sums this many prices per side from the best
+    public long bidDepthWithin;
+    public long askDepthWithin;
+    public long cumulativeDelta;  // session buy minus sell volume
+    public int vwapPrice;         // session VWAP to the nearest tick, 0 before the first trade
+    public int vwapSigmaTicks;    // volume-weighted standard deviation around it, to the nearest tick
+    public long barDeltaOpen;     // cumulative delta over the current delta bar
+    public long barDeltaHigh;
+    public long barDeltaLow;
+    public long barDeltaClose;
+    public long version;
+
+    public DomFrame(int rows) {
+        this.rows = rows;
+        this.bidSize = new int[rows];
+        this.askSize = new int[rows];
+        this.bidReload = new int[rows];
+        this.askReload = new int[rows];
+        this.bidIceberg = new int[rows];
+        this.askIceberg = new int[rows];
+        this.cumBidSize = new long[rows];
+        this.cumAskSize = new long[rows];
+        this.absorption = new int[rows];
+        this.velocity = new int[rows];
+        this.sessionAskVol = new long[rows];
+        this.sessionBidVol = new long[rows];
+        this.rollingAskVol = new long[rows];
+        this.rollingBidVol = new long[rows];
+        this.rollingAskCnt = new int[rows];
+        this.rollingBidCnt = new int[rows];
+    }
+
+    /** Row holding {@code price}, or -1 when it is outside this window. */
+    public int rowOf(int price) {
+        long row = (long) topPrice - price;
+        return row >= 0 && row < rows ? (int) row : -1;
+    }
+
+    public int priceAt(int row) {
+        return topPrice - row;
+    }
+
+    /** Whether {@code price} lies in the session value area. */
+    public boolean inValueArea(int price) {
+        return pocPrice != 0 && price >= valueAreaLow && price <= valueAreaHigh;
+    }
+
+    /**
+     * VWAP mark at {@code price}: 2 on the VWAP, 1 on a band one or two standard
+     * deviations from it, else 0.
+     */
+    public int vwapMark(int price) {
+        if (vwapPrice == 0)
+            return 0;
+        long distance = Math.abs((long) price - vwapPrice);
+        if (distance == 0)
+            return 2;
+        return vwapSigmaTicks > 0 && (distance == vwapSigmaTicks || distance == 2L * vwapSigmaTicks) ? 1 : 0;
+    }
+
+    /** Reference price to centre on: LTP, else mid, else whichever side exists, else 0. */
+    public int referencePrice() {
+        if (lastTradePrice != 0)
+            return lastTradePrice;
+        if (bestBid != Integer.MIN_VALUE && bestAsk != Integer.MAX_VALUE)
+            return (bestBid + bestAsk) / 2;
+        if (bestBid != Integer.MIN_VALUE)
+            return bestBid;
+        if (bestAsk != Integer.MAX_VALUE)
+            return bestAsk;
+        return 0;
+    }
+}
@@ -0,0 +1,275 @@
+package com.shashin.bookmap.dom;
+
+import javax.swing.SwingUtilities;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background frame scheduler, shared by all DOM windows, that builds each window's
+ * {@link DomFrame} off the EDT and hands the latest one to its panel.
+ * <p>
+ * A window gets a new frame only when its model's {@link DomModel#getVersion() change
+ * counter} or its view (centre, rows, depth history wanted) has moved, at most at the
+ * window's active frame rate, so a burst of events is coalesced into one frame. While
+ * nothing changes it is refreshed at its idle frame rate, which may be 0. Each window's
+ * frame cost (building plus rendering) is measured, and its frame interval is stretched
+ * so that it uses no more than an equal share of {@link #FRAME_TIME_SHARE}; a busy
+ * instrument slows only its own window. Windows are served round-robin. The delay between queuing a delivery and
+ * each window receiving its frame is reported to that window's
+ * {@link RenderQualityGovernor}, which may also halve its active frame rate.
+ * <p>
+ * The scheduler sleeps until the next frame is due. A window waiting for a change is woken
+ * by its model's change listener or its panel's view listener, so idle windows cost no
+ * wakeups beyond their idle frame rate and, for models applied on the data thread, their
+ * housekeeping.
+ * <p>
+ * Every window is triple-buffered: the scheduler fills a back frame from the model, swaps
+ * it into the ready slot and takes back whatever frame was there, so a frame the EDT never
+ * picked up is simply overwritten. The EDT takes the ready frame, passes it to the panel
+ * and returns the frame it replaces to the free slot for the scheduler to fill again.
+ * After warm-up no frames are allocated, and at most one EDT task is queued for all
+ * windows together.
+ */
+public final class DomFramePublisher implements Runnable {
+
+    private static final double FRAME_TIME_SHARE = 0.5;      // of wall time, split across windows
+    private static final long MAINTENANCE_INTERVAL_NANOS = DomIngestWorker.MAINTENANCE_INTERVAL_MS * 1_000_000L;
+    private static final long QUIET_NANOS = 1_000_000_000L;  // this long without frames counts as calm
+
+    /** One DOM window: its model, its panel and the frames moving between them. */
+    public static final class Source {
+        private final DomFramePublisher publisher;
+        private final DomModel model;
+        private final JigsawDomPanel panel;
+        private final DomEventQueue queue; // null unless ingesting through a queue
+
+        private final AtomicReference<DomFrame> ready = new AtomicReference<>();
+        private final AtomicReference<DomFrame> free = new AtomicReference<>();
+        private DomFrame back;  // scheduler thread only
+        private DomFrame front; // EDT only: the frame the panel holds
+
+        // --- SCHEDULING (scheduler thread) ---
+        private long publishedVersion = -1;
+        private int publishedCenter;
+        private int publishedRows;
+        private long publishedDropped;
+        private long publishedHeatmapFrom;
+        private long lastPublishNanos;
+        private long lastMaintenanceNanos;
+        private int publishedLevel;         // quality level of the last frame
+        private long recoveryDue;           // next idle report to the quality governor
+        private long buildNanos;            // smoothed cost of filling a frame
+
+        // Set while the scheduler has nothing to publish for this window, so the next
+        // change wakes it; written before the change checks, read after each change
+        private volatile boolean awaitingChange;
+
+        private volatile long renderNanos;  // smoothed cost of handing a frame to the panel, EDT
+
+        private Source(DomFramePublisher publisher, DomModel model, JigsawDomPanel panel, DomEventQueue queue) {
+            this.publisher = publisher;
+            this.model = model;
+            this.panel = panel;
+            this.queue = queue;
+        }
+
+        /** Model change listener: wakes the scheduler if it is waiting for this window to change. */
+        private void onChange() {
+            if (awaitingChange) {
+                awaitingChange = false;
+                publisher.wake();
+            }
+        }
+
+        /** When the next frame is due, or {@link Long#MAX_VALUE} for none; scheduler thread. */
+        private long nextDue(int windowCount) {
+            awaitingChange = true;
+            boolean changed = model.getVersion() != publishedVersion
+                    || panel.getCenterPrice() != publishedCenter
+                    || panel.getRequestedRows() != publishedRows
+                    || (queue != null && queue.droppedEvents() != publishedDropped)
+                    || panel.getHeatmapFrom() != publishedHeatmapFrom
+                    || panel.qualityGovernor().level() != publishedLevel;
+            if (changed)
+                awaitingChange = false;
+            int fps = changed ? panel.qualityGovernor().scaleFps(panel.getActiveFps()) : panel.getIdleFps();
+            if (fps <= 0)
+                return Long.MAX_VALUE;
+            long interval = Math.max(1_000_000_000L / fps,
+                    (long) ((buildNanos + renderNanos) * windowCount / FRAME_TIME_SHARE));
+            return lastPublishNanos + interval;
+        }
+
+        /**
+         * Reports a window that has gone quiet below full quality to its governor, so it
+         * can step back up without frames; returns when to report again. Scheduler thread.
+         */
+        private long recover(long now) {
+            RenderQualityGovernor governor = panel.qualityGovernor();
+            int level = governor.level();
+            if (level == RenderQualityGovernor.FULL)
+                return Long.MAX_VALUE;
+            if (now - lastPublishNanos < QUIET_NANOS)
+                return lastPublishNanos + QUIET_NANOS;
+            if (now >= recoveryDue)
+                recoveryDue = governor.recordIdle(now);
+            return governor.level() != level ? now : recoveryDue; // a new level is a frame to publish
+        }
+
+        /** Builds a frame into the back buffer and publishes it; scheduler thread. */
+        private void publish(long now) {
+            int center = panel.getCenterPrice();
+            int rows = panel.getRequestedRows();
+            long heatmapFrom = panel.getHeatmapFrom();
+            DomFrame frame = back != null ? back : free.getAndSet(null);
+            if (frame == null || frame.rows != rows)
+                frame = new DomFrame(rows);
+            model.fillFrame(frame, center, heatmapFrom, panel.getHeatmapColumns());
+            back = ready.getAndSet(frame); // an undelivered frame is dropped and reused
+
+            long built = System.nanoTime();
+            buildNanos = smooth(buildNanos, built - now);
+            publishedVersion = frame.version;
+            publishedCenter = center;
+            publishedRows = rows;
+            publishedHeatmapFrom = heatmapFrom;
+            publishedDropped = queue != null ? queue.droppedEvents() : 0;
+            publishedLevel = panel.qualityGovernor().level();
+            lastPublishNanos = now;
+        }
+
+        /** Hands the latest published frame, if any, to the panel; EDT. */
+        private void deliver(long queuedNanos) {
+            DomFrame frame = ready.getAndSet(null);
+            if (frame == null)
+                return;
+            long started = System.nanoTime();
+            panel.qualityGovernor().recordLatency(started - queuedNanos, started);
+            if (queue != null)
+                panel.setDroppedEvents(queue.droppedEvents());
+            panel.updateSnapshot(frame);
+            if (front != null)
+                free.set(front);
+            front = frame;
+            renderNanos = smooth(renderNanos, System.nanoTime() - started);
+        }
+
+        private static long smooth(long average, long sample) {
+            return average + (sample - average) / 8;
+        }
+    }
+
+    // Copy-on-write array so the scheduling loop iterates without allocating
+    private volatile Source[] sources = new Source[0];
+    private volatile boolean running = false;
+    private volatile Thread thread;
+    private int firstServed; // rotates so no window is always served first
+
+    private final AtomicBoolean deliveryQueued = new AtomicBoolean();
+    private volatile long deliveryQueuedNanos;
+    private final Runnable deliverAll = this::deliverAll;
+
+    /** Starts publishing frames of {@code model} to {@code panel}; call on the EDT once the panel exists. */
+    public synchronized Source register(DomModel model, JigsawDomPanel panel, DomEventQueue queue) {
+        Source source = new Source(this, model, panel, queue);
+        Source[] grown = Arrays.copyOf(sources, sources.length + 1);
+        grown[grown.length - 1] = source;
+        sources = grown;
+        model.setChangeListener(source::onChange);
+        panel.setViewListener(this::wake);
+        if (thread == null) {
+            running = true;
+            Thread started = new Thread(this, "qtdom-frames");
+            started.setDaemon(true);
+            thread = started;
+            started.start();
+        } else {
+            wake(); // the new window wants its first frame
+        }
+        return source;
+    }
+
+    public synchronized void unregister(Source source) {
+        sources = Arrays.stream(sources).filter(s -> s != source).toArray(Source[]::new);
+        source.model.setChangeListener(null);
+        source.panel.setViewListener(null);
+    }
+
+    /** Makes the scheduler look at every window again; from any thread. */
+    private void wake() {
+        Thread current = thread;
+        if (current != null)
+            LockSupport.unpark(current);
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+        sources = new Source[0];
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            Source[] current = sources;
+            int n = current.length;
+            long now = System.nanoTime();
+            long wakeAt = Long.MAX_VALUE;
+            boolean published = false;
+
+            firstServed = n == 0 ? 0 : (firstServed + 1) % n;
+            for (int k = 0; k < n; k++) {
+                Source source = current[(firstServed + k) % n];
+                try {
+                    // Models applied on the data thread get their housekeeping here, idle or not
+                    if (!source.model.isSingleWriter()) {
+                        if (now - source.lastMaintenanceNanos >= MAINTENANCE_INTERVAL_NANOS) {
+                            source.model.maintain(DomJournal.wallClockMillis());
+                            source.lastMaintenanceNanos = now;
+                        }
+                        wakeAt = Math.min(wakeAt, source.lastMaintenanceNanos + MAINTENANCE_INTERVAL_NANOS);
+                    }
+                    long due = source.nextDue(n);
+                    if (due <= now) {
+                        source.publish(now);
+                        published = true;
+                        now = System.nanoTime();
+                        due = source.nextDue(n); // changes made while building are already due
+                    }
+                    wakeAt = Math.min(wakeAt, due);
+                    if (source.awaitingChange)
+                        wakeAt = Math.min(wakeAt, source.recover(now));
+                } catch (RuntimeException e) {
+                    System.err.println("DOM frame publishing failed: " + e);
+                    wakeAt = Math.min(wakeAt, now + MAINTENANCE_INTERVAL_NANOS); // try again
+                }
+            }
+            if (published && deliveryQueued.compareAndSet(false, true)) {
+                deliveryQueuedNanos = System.nanoTime();
+                SwingUtilities.invokeLater(deliverAll);
+            }
+
+            // Woken early by any change; a stale wakeup only costs one more pass
+            if (wakeAt == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                long wait = wakeAt - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    private void deliverAll() {
+        // Cleared first, so a frame published while delivering queues another delivery
+        long queuedNanos = deliveryQueuedNanos;
+        deliveryQueued.set(false);
+        for (Source source : sources)
+            source.deliver(queuedNanos); // latency includes the windows delivered before it
+    }
+}
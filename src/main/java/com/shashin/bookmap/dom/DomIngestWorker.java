@@ -0,0 +1,182 @@
+package com.shashin.bookmap.dom;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dedicated thread that owns all {@link DomModel} mutation in single-writer ingest mode.
+ * <p>
+ * Layer1 callbacks only publish into each instrument's {@link DomEventQueue}; this
+ * worker drains every registered queue in turn and also runs the models' time-driven
+ * maintenance, so nothing else writes to a registered model.
+ * <p>
+ * When the queues run dry it spins briefly, then parks until the next maintenance is due,
+ * or indefinitely while no queue is registered. It marks itself parked first, and a queue
+ * unparks it on a publish only then, so a busy feed costs no unpark per event.
+ * <p>
+ * A journal is appended to only by this thread, so it is closed here too: an unregistered
+ * queue is handed back to the worker, which drains it one last time and then closes its
+ * journal.
+ */
+public final class DomIngestWorker implements Runnable {
+
+    private static final int BATCH_SIZE = 512;
+    static final long MAINTENANCE_INTERVAL_MS = 33;
+    private static final int SPIN_ROUNDS = 200;
+    private static final long SHUTDOWN_WAIT_MS = 5000;
+
+    private record Channel(DomEventQueue queue, DomModel model, DomJournal journal) {
+    }
+
+    // Copy-on-write array so the drain loop iterates without allocating
+    private volatile Channel[] channels = new Channel[0];
+    private final ConcurrentLinkedQueue<Channel> retiring = new ConcurrentLinkedQueue<>(); // unregistered, not yet closed
+    private volatile boolean running = false;
+    private volatile boolean parked = false; // set before parking, so publishers know to wake the thread
+    private volatile Thread thread;
+
+    /** Starts draining {@code queue} into {@code model}, recording to {@code journal} when it is not {@code null}. */
+    public synchronized void register(DomEventQueue queue, DomModel model, DomJournal journal) {
+        model.setSingleWriter(true);
+        Channel[] grown = Arrays.copyOf(channels, channels.length + 1);
+        grown[grown.length - 1] = new Channel(queue, model, journal);
+        channels = grown;
+        queue.setConsumer(this);
+        if (thread != null) {
+            LockSupport.unpark(thread); // it may be parked without a deadline, having had nothing to drain
+        } else {
+            running = true;
+            thread = new Thread(this, "qtdom-ingest");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops draining {@code queue}. Events already in it are still applied and journaled,
+     * and its journal is closed after them, on the worker thread.
+     */
+    public synchronized void unregister(DomEventQueue queue) {
+        for (Channel channel : channels)
+            if (channel.queue() == queue)
+                retiring.add(channel);
+        channels = Arrays.stream(channels).filter(c -> c.queue() != queue).toArray(Channel[]::new);
+        if (thread != null)
+            LockSupport.unpark(thread);
+        else
+            retire(); // no worker to race with
+    }
+
+    /** Stops the worker once it has drained every queue and closed every journal. */
+    public synchronized void shutdown() {
+        retiring.addAll(Arrays.asList(channels));
+        channels = new Channel[0];
+        running = false;
+        Thread t = thread;
+        thread = null;
+        if (t == null) {
+            retire();
+            return;
+        }
+        LockSupport.unpark(t);
+        try {
+            t.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive())
+            System.err.println("DOM ingest worker did not stop; journals left to it");
+    }
+
+    /** Unparks the worker if it is parked; called by a queue after each publish. */
+    void wake() {
+        if (parked) {
+            Thread t = thread;
+            if (t != null)
+                LockSupport.unpark(t);
+        }
+    }
+
+    @Override
+    public void run() {
+        long lastMaintenance = 0;
+        int idleRounds = 0;
+        while (running) {
+            Channel[] current = channels;
+            int drained = 0;
+            for (Channel channel : current) {
+                // One failing model must not stop the thread every registered DOM depends on
+                try {
+                    drained += channel.queue().drainTo(channel.model(), channel.journal(), BATCH_SIZE);
+                } catch (RuntimeException e) {
+                    drained++;
+                    System.err.println("DOM event ingest failed: " + e);
+                }
+            }
+
+            retire();
+
+            long now = DomJournal.wallClockMillis(); // the clock events are stamped with
+            if (now - lastMaintenance >= MAINTENANCE_INTERVAL_MS) {
+                for (Channel channel : current) {
+                    try {
+                        channel.model().maintain(now);
+                    } catch (RuntimeException e) {
+                        System.err.println("DOM maintenance failed: " + e);
+                    }
+                }
+                lastMaintenance = now;
+            }
+
+            if (drained > 0) {
+                idleRounds = 0;
+            } else if (++idleRounds < SPIN_ROUNDS) {
+                Thread.onSpinWait();
+            } else {
+                park(lastMaintenance);
+            }
+        }
+        retire();
+    }
+
+    /**
+     * Drains each unregistered queue to the end and closes its journal. Runs on the worker
+     * thread, after any drain of the same queue, so no append or keyframe can follow the close.
+     */
+    private void retire() {
+        Channel channel;
+        while ((channel = retiring.poll()) != null) {
+            channel.queue().setConsumer(null);
+            for (int drained = 1; drained > 0; ) {
+                try {
+                    drained = channel.queue().drainTo(channel.model(), channel.journal(), BATCH_SIZE);
+                } catch (RuntimeException e) {
+                    System.err.println("DOM event ingest failed: " + e);
+                }
+            }
+            if (channel.journal() != null)
+                channel.journal().close();
+        }
+    }
+
+    /** Parks until the maintenance after {@code lastMaintenance} is due or a queue publishes. */
+    private void park(long lastMaintenance) {
+        parked = true;
+        // Checked after the flag is up: an event published before a producer could see it is here
+        Channel[] current = channels;
+        boolean empty = running && retiring.isEmpty();
+        for (Channel channel : current)
+            empty &= channel.queue().isEmpty();
+        if (empty) {
+            if (current.length == 0) {
+                LockSupport.park(this);
+            } else {
+                long waitMs = lastMaintenance + MAINTENANCE_INTERVAL_MS - DomJournal.wallClockMillis();
+                if (waitMs > 0)
+                    LockSupport.parkNanos(this, waitMs * 1_000_000);
+            }
+        }
+        parked = false;
+    }
+}
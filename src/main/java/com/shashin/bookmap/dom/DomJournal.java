@@ -0,0 +1,288 @@
+package com.shashin.bookmap.dom;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Append-only binary journal of the depth and trade events reaching one instrument's model.
+ * <p>
+ * The file is a fixed {@link #HEADER_SIZE}-byte header (magic, format version, record size,
+ * start time and instrument alias) followed by fixed {@link #RECORD_SIZE}-byte records:
+ * {@code long} wall-clock nanoseconds, {@code int} price, {@code int} size and {@code int}
+ * flags (the {@link DomEventQueue} event kind plus {@link #FLAG_RECORD}). Records are
+ * written into memory-mapped regions that are mapped ahead of time in
+ * {@link #REGION_RECORDS}-record steps, so appending is a handful of stores into the page
+ * cache and never a system call. The OS writes the pages back in the background.
+ * <p>
+ * Regions are mapped in full, so the file ends in zeroed space after the last record;
+ * readers stop at the first record without {@link #FLAG_RECORD}.
+ * <p>
+ * Every keyframe interval of event time, {@link #maybeKeyframe} also stores the complete
+ * model state ({@link DomModel#writeState}) in a sibling {@link #KEYFRAME_EXTENSION} file
+ * and appends an {@link #INDEX_ENTRY_SIZE}-byte entry to the {@link #INDEX_EXTENSION} index:
+ * {@code long} event time, {@code long} number of records applied, {@code long} keyframe
+ * offset and {@code int} keyframe length. A seek then restores the nearest keyframe and
+ * replays only the records after it.
+ * <p>
+ * Not thread-safe: a journal must be appended to only by the thread that applies events
+ * to the model. The plugin journals through {@link DomIngestWorker}, so neither appends nor
+ * keyframes run on Bookmap's data thread. See {@link DomJournalReplayer} for reading a journal back.
+ */
+public final class DomJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x51544A31; // "QTJ1"
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 256;
+    static final int RECORD_SIZE = 20;
+    static final int FLAG_RECORD = 0x100; // set on every written record; zeroed space has none
+    static final int KIND_MASK = 0xFF;
+    static final int REGION_RECORDS = 1 << 18; // ~5 MB mapped at a time
+    static final String EXTENSION = ".qtj";
+
+    static final int KEYFRAME_MAGIC = 0x51544B31; // "QTK1"
+    static final int INDEX_MAGIC = 0x51544931;    // "QTI1"
+    static final int SIDE_HEADER_SIZE = 8;        // magic + format version, keyframe and index files
+    static final int INDEX_ENTRY_SIZE = 28;
+    static final String KEYFRAME_EXTENSION = ".qtk";
+    static final String INDEX_EXTENSION = ".qti";
+
+    private static final int MAX_ALIAS_BYTES = HEADER_SIZE - 32;
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Wall-clock nanoseconds derived from one currentTimeMillis/nanoTime pair, so stamping is
+    // a single nanoTime call and timestamps never go backwards within a session
+    private static final long CLOCK_BASE_WALL_NANOS = System.currentTimeMillis() * 1_000_000L;
+    private static final long CLOCK_BASE_NANO_TIME = System.nanoTime();
+
+    private final Path path;
+    private final String alias;
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart; // file offset of the current region
+    private long records = 0;
+    private boolean closed = false;
+
+    // --- KEYFRAMES ---
+    private final long keyframeIntervalNanos; // <= 0 disables keyframes
+    private FileChannel keyframeChannel;
+    private FileChannel indexChannel;
+    private long nextKeyframeNanos = Long.MIN_VALUE;
+    private long keyframeOffset = SIDE_HEADER_SIZE;
+    private final ByteArrayOutputStream keyframeBytes = new ByteArrayOutputStream(1 << 16);
+    private final DataOutputStream keyframeOut = new DataOutputStream(keyframeBytes);
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private DomJournal(Path path, String alias, FileChannel channel, long keyframeIntervalNanos) {
+        this.path = path;
+        this.alias = alias;
+        this.channel = channel;
+        this.keyframeIntervalNanos = keyframeIntervalNanos;
+    }
+
+    /** Wall-clock time in nanoseconds since the epoch, at nanosecond resolution. */
+    public static long wallClockNanos() {
+        return CLOCK_BASE_WALL_NANOS + (System.nanoTime() - CLOCK_BASE_NANO_TIME);
+    }
+
+    /**
+     * {@link #wallClockNanos()} in milliseconds: the clock live maintenance runs on, so it
+     * stays in step with the event stamps a replay maintains by, whatever NTP does to
+     * {@code currentTimeMillis}.
+     */
+    public static long wallClockMillis() {
+        return wallClockNanos() / 1_000_000;
+    }
+
+    /**
+     * Creates a new journal for {@code alias} in {@code directory}, named after the alias and
+     * start time, writing a keyframe every {@code keyframeIntervalMillis} of event time
+     * ({@code <= 0} for none).
+     */
+    public static DomJournal create(Path directory, String alias, long keyframeIntervalMillis) throws IOException {
+        Files.createDirectories(directory);
+        String safeAlias = alias.replaceAll("[^A-Za-z0-9._-]", "_");
+        Path path = directory.resolve(safeAlias + "-" + LocalDateTime.now().format(FILE_STAMP) + EXTENSION);
+        for (int n = 2; Files.exists(path); n++)
+            path = directory.resolve(safeAlias + "-" + LocalDateTime.now().format(FILE_STAMP) + "-" + n + EXTENSION);
+
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DomJournal journal = new DomJournal(path, alias, channel, keyframeIntervalMillis * 1_000_000L);
+        try {
+            journal.writeHeader();
+            journal.mapRegion(HEADER_SIZE);
+            if (keyframeIntervalMillis > 0) {
+                journal.keyframeChannel = openSideFile(sibling(path, KEYFRAME_EXTENSION), KEYFRAME_MAGIC);
+                journal.indexChannel = openSideFile(sibling(path, INDEX_EXTENSION), INDEX_MAGIC);
+            }
+        } catch (IOException e) {
+            journal.closeChannels();
+            throw e;
+        }
+        return journal;
+    }
+
+    /** The keyframe or index file belonging to {@code journal}. */
+    static Path sibling(Path journal, String extension) {
+        String name = journal.getFileName().toString();
+        if (name.endsWith(EXTENSION))
+            name = name.substring(0, name.length() - EXTENSION.length());
+        return journal.resolveSibling(name + extension);
+    }
+
+    private static FileChannel openSideFile(Path path, int magic) throws IOException {
+        FileChannel side = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SIDE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(magic).putShort(FORMAT_VERSION).putShort((short) 0).flip();
+        side.write(header); // leaves the position after the header for appends
+        return side;
+    }
+
+    private void writeHeader() throws IOException {
+        byte[] aliasBytes = alias.getBytes(StandardCharsets.UTF_8);
+        int aliasLength = Math.min(aliasBytes.length, MAX_ALIAS_BYTES);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putShort(FORMAT_VERSION);
+        header.putShort((short) RECORD_SIZE);
+        header.putLong(wallClockNanos());
+        header.putShort((short) aliasLength);
+        header.put(aliasBytes, 0, aliasLength);
+        header.clear();
+        channel.write(header, 0);
+    }
+
+    private void mapRegion(long start) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) REGION_RECORDS * RECORD_SIZE);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        regionStart = start;
+    }
+
+    // --- APPEND ---
+
+    public void appendDepth(long timeNanos, boolean isBid, int price, int size) {
+        append(timeNanos, price, size, isBid ? DomEventQueue.DEPTH_BID : DomEventQueue.DEPTH_ASK);
+    }
+
+    public void appendTrade(long timeNanos, int price, int size, boolean isBidAggressor) {
+        append(timeNanos, price, size, isBidAggressor ? DomEventQueue.TRADE_BUY : DomEventQueue.TRADE_SELL);
+    }
+
+    /** Appends one record of the given {@link DomEventQueue} event kind; dropped silently once closed. */
+    public void append(long timeNanos, int price, int size, byte kind) {
+        if (closed)
+            return;
+        if (!region.hasRemaining() && !nextRegion())
+            return;
+        int pos = region.position();
+        region.putLong(pos, timeNanos);
+        region.putInt(pos + 8, price);
+        region.putInt(pos + 12, size);
+        region.putInt(pos + 16, FLAG_RECORD | kind);
+        region.position(pos + RECORD_SIZE);
+        records++;
+    }
+
+    private boolean nextRegion() {
+        try {
+            mapRegion(regionStart + region.capacity());
+            return true;
+        } catch (IOException e) {
+            // Disk full or similar: stop journaling rather than disturb the data path
+            System.err.println("DOM journal stopped for " + alias + ": " + e);
+            close();
+            return false;
+        }
+    }
+
+    // --- KEYFRAMES ---
+
+    /**
+     * Writes a keyframe of {@code model} when a keyframe interval of event time has passed
+     * since the previous one. Call on the appending thread, after the appended events have
+     * been applied to {@code model}, with the time of the latest of them.
+     */
+    public void maybeKeyframe(DomModel model, long timeNanos) {
+        if (timeNanos < nextKeyframeNanos || keyframeChannel == null || closed)
+            return;
+        nextKeyframeNanos = timeNanos + keyframeIntervalNanos;
+        try {
+            keyframeBytes.reset();
+            model.writeState(keyframeOut);
+            keyframeOut.flush();
+            ByteBuffer state = ByteBuffer.wrap(keyframeBytes.toByteArray());
+            int length = state.remaining();
+            while (state.hasRemaining())
+                keyframeChannel.write(state, keyframeOffset + state.position());
+
+            // The index entry goes last, so an entry always points at a complete keyframe
+            indexEntry.clear();
+            indexEntry.putLong(timeNanos).putLong(records).putLong(keyframeOffset).putInt(length).flip();
+            while (indexEntry.hasRemaining())
+                indexChannel.write(indexEntry);
+            keyframeOffset += length;
+        } catch (IOException e) {
+            System.err.println("DOM journal keyframes stopped for " + alias + ": " + e);
+            nextKeyframeNanos = Long.MAX_VALUE;
+        }
+    }
+
+    // --- LIFECYCLE ---
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /** Records appended so far. */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Flushes and closes the files. Like appending, call on the appending thread, after the
+     * last append: {@link DomIngestWorker} closes the journals it records once it has drained
+     * their queues for the last time.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            region.force();
+        } catch (RuntimeException e) {
+            System.err.println("DOM journal flush failed for " + alias + ": " + e);
+        }
+        closeChannels();
+    }
+
+    private void closeChannels() {
+        for (FileChannel c : new FileChannel[] { channel, keyframeChannel, indexChannel }) {
+            try {
+                if (c != null)
+                    c.close();
+            } catch (IOException e) {
+                System.err.println("DOM journal close failed for " + alias + ": " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.shashin.bookmap.dom;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a {@link DomJournal} file back into a {@link DomModel}, paced at real time, at a
+ * multiple of it, or as fast as possible.
+ * <p>
+ * The replayer takes the single-writer role on the model: depth and trade records are
+ * applied in file order, trades carry their recorded time, and
+ * {@link DomModel#maintain(long)} runs on recorded time at the same cadence as the ingest
+ * worker. Live maintenance runs on {@link DomJournal#wallClockMillis()}, the clock the
+ * records are stamped with, so the replayed model evolves as it did live, independent of
+ * the replay speed. {@link #seek} jumps to any time by restoring the nearest keyframe and
+ * replaying only the tail after it. Needs nothing from Bookmap, so it also runs standalone
+ * via {@link #main}.
+ */
+public final class DomJournalReplayer implements AutoCloseable {
+
+    /** Replay speed meaning "no pacing". */
+    public static final double MAX_SPEED = 0;
+
+    private static final int READ_REGION_RECORDS = 1 << 20; // ~20 MB mapped at a time
+    private static final long SPIN_THRESHOLD_NANOS = 100_000;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final String alias;
+    private final long startNanos;
+    private final long recordCapacity; // records the file has room for; the tail may be unwritten
+
+    private DomJournalReplayer(Path path, FileChannel channel, String alias, long startNanos, long recordCapacity) {
+        this.path = path;
+        this.channel = channel;
+        this.alias = alias;
+        this.startNanos = startNanos;
+        this.recordCapacity = recordCapacity;
+    }
+
+    public static DomJournalReplayer open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(DomJournal.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.remaining() < DomJournal.HEADER_SIZE || header.getInt() != DomJournal.MAGIC)
+                throw new IOException("not a DOM journal: " + path);
+            short version = header.getShort();
+            short recordSize = header.getShort();
+            if (version != DomJournal.FORMAT_VERSION || recordSize != DomJournal.RECORD_SIZE)
+                throw new IOException("unsupported journal format " + version + "/" + recordSize + ": " + path);
+            long startNanos = header.getLong();
+            byte[] aliasBytes = new byte[header.getShort()];
+            header.get(aliasBytes);
+            long capacity = (channel.size() - DomJournal.HEADER_SIZE) / DomJournal.RECORD_SIZE;
+            return new DomJournalReplayer(path, channel, new String(aliasBytes, StandardCharsets.UTF_8),
+                    startNanos, Math.max(0, capacity));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    /** Wall-clock nanoseconds at which the journal was created. */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /** Replays the whole journal; see {@link #replay(DomModel, long, long, double)}. */
+    public long replay(DomModel model, double speed) throws IOException, InterruptedException {
+        return replay(model, 0, Long.MAX_VALUE, speed);
+    }
+
+    /**
+     * Applies records {@code fromRecord} onwards to {@code model} until the journal ends or a
+     * record is stamped after {@code untilNanos}.
+     *
+     * @param speed 1 for real time, N for N times faster, {@link #MAX_SPEED} (or any value
+     *              {@code <= 0}) for no pacing
+     * @return the index of the first record not applied
+     */
+    public long replay(DomModel model, long fromRecord, long untilNanos, double speed)
+            throws IOException, InterruptedException {
+        model.setSingleWriter(true);
+        boolean paced = speed > 0 && Double.isFinite(speed);
+        long firstEventNanos = Long.MIN_VALUE;
+        long replayStartNanos = 0;
+        boolean maintained = false; // the first record maintains at once, as the ingest worker does
+        long lastMaintenance = 0;
+
+        long record = fromRecord;
+        while (record < recordCapacity) {
+            long regionRecords = Math.min(READ_REGION_RECORDS, recordCapacity - record);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                    DomJournal.HEADER_SIZE + record * DomJournal.RECORD_SIZE, regionRecords * DomJournal.RECORD_SIZE);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int pos = 0; pos < region.limit(); pos += DomJournal.RECORD_SIZE, record++) {
+                int flags = region.getInt(pos + 16);
+                if ((flags & DomJournal.FLAG_RECORD) == 0)
+                    return record; // end of the written part
+                long timeNanos = region.getLong(pos);
+                if (timeNanos > untilNanos)
+                    return record;
+
+                if (paced) {
+                    if (firstEventNanos == Long.MIN_VALUE) {
+                        firstEventNanos = timeNanos;
+                        replayStartNanos = System.nanoTime();
+                    }
+                    long due = replayStartNanos + (long) ((timeNanos - firstEventNanos) / speed);
+                    waitUntil(due);
+                }
+
+                long timeMillis = timeNanos / 1_000_000;
+                int price = region.getInt(pos + 8);
+                int size = region.getInt(pos + 12);
+                byte kind = (byte) (flags & DomJournal.KIND_MASK);
+                if (kind <= DomEventQueue.DEPTH_ASK)
+                    model.onDepth(kind == DomEventQueue.DEPTH_BID, price, size);
+                else
+                    model.onTrade(price, size, kind == DomEventQueue.TRADE_BUY, timeMillis);
+
+                if (!maintained || timeMillis - lastMaintenance >= DomIngestWorker.MAINTENANCE_INTERVAL_MS) {
+                    model.maintain(timeMillis);
+                    lastMaintenance = timeMillis;
+                    maintained = true;
+                }
+            }
+        }
+        return record;
+    }
+
+    // --- SEEK ---
+
+    /**
+     * Brings {@code model} to its state at {@code timeNanos}: restores the latest keyframe at
+     * or before that time and replays only the records after it. Without a usable keyframe
+     * the journal is replayed from the start, which assumes a freshly constructed model.
+     *
+     * @return the index of the first record not applied, to continue with
+     *         {@link #replay(DomModel, long, long, double)}
+     */
+    public long seek(DomModel model, long timeNanos) throws IOException, InterruptedException {
+        long fromRecord = 0;
+        Path index = DomJournal.sibling(path, DomJournal.INDEX_EXTENSION);
+        Path keyframes = DomJournal.sibling(path, DomJournal.KEYFRAME_EXTENSION);
+        ByteBuffer entry = Files.exists(index) && Files.exists(keyframes) ? findKeyframe(index, timeNanos) : null;
+        if (entry != null) {
+            long records = entry.getLong(8);
+            long offset = entry.getLong(16);
+            ByteBuffer state = ByteBuffer.allocate(entry.getInt(24));
+            try (FileChannel keyframeChannel = FileChannel.open(keyframes, StandardOpenOption.READ)) {
+                while (state.hasRemaining()) {
+                    if (keyframeChannel.read(state, offset + state.position()) < 0)
+                        throw new EOFException("truncated keyframe at " + offset + " in " + keyframes);
+                }
+            }
+            model.readState(new DataInputStream(new ByteArrayInputStream(state.array())));
+            fromRecord = records;
+        }
+        return replay(model, fromRecord, timeNanos, MAX_SPEED);
+    }
+
+    /** Index entry of the latest keyframe stamped at or before {@code timeNanos}, or {@code null}. */
+    private static ByteBuffer findKeyframe(Path index, long timeNanos) throws IOException {
+        try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer entry = ByteBuffer.allocate(DomJournal.INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(indexChannel, entry.limit(DomJournal.SIDE_HEADER_SIZE), 0);
+            if (entry.getInt(0) != DomJournal.INDEX_MAGIC)
+                throw new IOException("not a DOM journal index: " + index);
+
+            // Entries are appended in event-time order, so binary search for the last one <= timeNanos
+            long lo = 0;
+            long hi = (indexChannel.size() - DomJournal.SIDE_HEADER_SIZE) / DomJournal.INDEX_ENTRY_SIZE - 1;
+            long found = -1;
+            while (lo <= hi) {
+                long mid = (lo + hi) >>> 1;
+                readEntry(indexChannel, entry, mid);
+                if (entry.getLong(0) <= timeNanos) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (found < 0)
+                return null;
+            readEntry(indexChannel, entry, found);
+            return entry;
+        }
+    }
+
+    private static void readEntry(FileChannel indexChannel, ByteBuffer entry, long n) throws IOException {
+        entry.clear();
+        readFully(indexChannel, entry, DomJournal.SIDE_HEADER_SIZE + n * DomJournal.INDEX_ENTRY_SIZE);
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (source.read(target, position + target.position()) < 0)
+                throw new EOFException();
+        }
+    }
+
+    private static void waitUntil(long dueNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS)
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            else
+                Thread.onSpinWait();
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Offline replay into a fresh model with default settings, printing timing and the final
+     * book state:
+     * <pre>
+     * DomJournalReplayer &lt;journal.qtj&gt; [speed|max]
+     * DomJournalReplayer &lt;journal.qtj&gt; --seek &lt;seconds after the journal start&gt;
+     * </pre>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || (args.length > 1 && args[1].equals("--seek") && args.length < 3)) {
+            System.err.println("usage: DomJournalReplayer <journal" + DomJournal.EXTENSION + "> [speed|max]");
+            System.err.println("       DomJournalReplayer <journal" + DomJournal.EXTENSION + "> --seek <seconds>");
+            System.exit(2);
+        }
+
+        try (DomJournalReplayer replayer = open(Path.of(args[0]))) {
+            DomModel model = new DomModel(new DomSettings());
+            long started = System.nanoTime();
+            long events;
+            if (args.length > 1 && args[1].equals("--seek")) {
+                long target = replayer.getStartNanos() + (long) (Double.parseDouble(args[2]) * 1e9);
+                events = replayer.seek(model, target);
+            } else {
+                double speed = args.length < 2 || args[1].equalsIgnoreCase("max") ? MAX_SPEED : Double.parseDouble(args[1]);
+                events = replayer.replay(model, speed);
+            }
+            long elapsedNanos = System.nanoTime() - started;
+
+            DomSnapshot snapshot = model.getSnapshot();
+            System.out.printf("%s: at record %d after %.1f ms (%.0f records/s)%n", replayer.getAlias(), events,
+                    elapsedNanos / 1e6, events * 1e9 / Math.max(1, elapsedNanos));
+            System.out.printf("best bid %d, best ask %d, last trade %d x %d, %d bid / %d ask levels%n",
+                    snapshot.bestBid(), snapshot.bestAsk(), snapshot.lastTradePrice(), snapshot.lastTradeSize(),
+                    snapshot.bids().size(), snapshot.asks().size());
+        }
+    }
+}
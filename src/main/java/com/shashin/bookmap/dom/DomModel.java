@@ -1,7 +1,8 @@
 package com.shashin.bookmap.dom;
 
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class DomModel {
 
@@ -9,53 +10,88 @@ public class DomModel {
 
     public DomModel(DomSettings settings) {
         this.settings = settings;
-        this.lastResetTime = System.currentTimeMillis();
+        this.depthStats.reset(settings.depthLevels, bids, asks, bestBid, bestAsk);
+        this.velocity = new VelocityWindow(VELOCITY_MAX_WINDOW_MS, settings.velocityWindowSeconds * 1000L);
+        this.rollingWindow = rolling.openWindow(settings.footprintResetMinutes * 60 * 1000L);
     }
 
     // --- DATA STRUCTURES ---
-    private final ConcurrentSkipListMap<Integer, Integer> bids = new ConcurrentSkipListMap<>(
-            (p1, p2) -> p2.compareTo(p1));
-    private final ConcurrentSkipListMap<Integer, Integer> asks = new ConcurrentSkipListMap<>();
+    // All state is guarded by this model's monitor, so plain (non-concurrent)
+    // structures are enough. Tick-indexed primitive ladders keep the depth path
+    // free of boxing and node allocation.
+    private final PriceLadder bids = new PriceLadder();
+    private final PriceLadder asks = new PriceLadder();
 
-    private final ConcurrentSkipListMap<Integer, Integer> bidReloads = new ConcurrentSkipListMap<>(
-            (p1, p2) -> p2.compareTo(p1));
-    private final ConcurrentSkipListMap<Integer, Integer> askReloads = new ConcurrentSkipListMap<>();
+    private final PriceLadder bidReloads = new PriceLadder();
+    private final PriceLadder askReloads = new PriceLadder();
 
-    // --- ICEBERG CHUNK DETECTION ---
-    private final ConcurrentSkipListMap<Integer, Integer> bidIcebergChunks = new ConcurrentSkipListMap<>(
-            (p1, p2) -> p2.compareTo(p1));
-    private final ConcurrentSkipListMap<Integer, Integer> askIcebergChunks = new ConcurrentSkipListMap<>();
+    // --- ICEBERG DETECTION (trade-then-refill sequences, kept up by onTrade and onDepth) ---
+    // The detector's working state is in its slots; the ladders publish each resting
+    // iceberg's estimated hidden size and are written only when a refill raises it
+    private final IcebergDetector icebergs = new IcebergDetector();
+    private final PriceLadder bidIcebergs = new PriceLadder();
+    private final PriceLadder askIcebergs = new PriceLadder();
 
-    private final ConcurrentSkipListMap<Integer, FootprintData> sessionFp = new ConcurrentSkipListMap<>();
-    private final ConcurrentSkipListMap<Integer, FootprintData> rollingFp = new ConcurrentSkipListMap<>();
+    private final FootprintLadder sessionFp = new FootprintLadder();
 
-    // --- VELOCITY DATA (15s Rolling, GLOBAL) ---
-    private final ConcurrentLinkedDeque<TradeRecord> velocityHistory = new ConcurrentLinkedDeque<>();
-    private volatile int globalVelocityVolume = 0; // Tracks the rolling sum
-    private static final long VELOCITY_WINDOW_MS = 15 * 1000;
+    // --- VOLUME PROFILE (session POC, value area and delta scale, kept up by onTrade) ---
+    private final VolumeProfile profile = new VolumeProfile();
+
+    // --- SESSION STATISTICS (cumulative delta, VWAP and delta bars, kept up by onTrade) ---
+    private final SessionStats stats = new SessionStats();
+
+    // --- ABSORPTION (levels traded into without giving way, kept up by onTrade and onDepth) ---
+    private final AbsorptionDetector absorption = new AbsorptionDetector();
+    private long clockMs; // latest time onTrade or maintain was given; depth events carry none
+
+    // --- ROLLING FOOTPRINT (sliding window over shared 5s buckets) ---
+    private static final long ROLLING_MAX_WINDOW_MS = DomSettings.MAX_FOOTPRINT_WINDOW_MINUTES * 60 * 1000L;
+    private final RollingFootprint rolling = new RollingFootprint(ROLLING_MAX_WINDOW_MS);
+    private final RollingFootprint.Window rollingWindow;
+
+    // --- VELOCITY DATA (configurable rolling window, GLOBAL) ---
+    // 100 ms buckets sized for the longest window the settings allow
+    private static final long VELOCITY_MAX_WINDOW_MS = DomSettings.MAX_VELOCITY_WINDOW_SECONDS * 1000L;
+    private final VelocityWindow velocity;
 
     // NEW: Stores the Global Velocity value *at the time* a trade occurred at a
     // specific price
-    private final ConcurrentSkipListMap<Integer, Integer> priceRecordedVelocity = new ConcurrentSkipListMap<>();
+    private final PriceLadder priceRecordedVelocity = new PriceLadder();
+
+    // --- RANGE-SUM INDEXES (resting size per tick, mirrored from the book by onDepth) ---
+    private final TickFenwick bidDepth = new TickFenwick();
+    private final TickFenwick askDepth = new TickFenwick();
 
-    private final ConcurrentLinkedDeque<TradeRecord> tradeHistory = new ConcurrentLinkedDeque<>();
-    // REMOVED ROLLING_WINDOW_MS
-    private volatile long lastResetTime;
+    // --- DEPTH STATISTICS (sizes within depthLevels of the BBO, kept up by onDepth) ---
+    private final DepthStats depthStats = new DepthStats();
+
+    // --- DEPTH HISTORY (heatmap columns, sampled by maintain) ---
+    private final DepthHistory depthHistory = new DepthHistory(DomSettings.MAX_HEATMAP_COLUMNS);
 
     private static final int CLEANUP_DISTANCE = 15;
 
-    private volatile int lastTradePrice = 0;
-    private volatile int lastTradeSize = 0;
+    private int lastTradePrice = 0;
+    private int lastTradeSize = 0;
+
+    private int bestBid = Integer.MIN_VALUE;
+    private int bestAsk = Integer.MAX_VALUE;
+
+    // When set, an ingest thread owns maintenance (pruning, resets) as well as
+    // event application, and snapshots become read-only.
+    private volatile boolean singleWriter = false;
 
-    private volatile int bestBid = Integer.MIN_VALUE;
-    private volatile int bestAsk = Integer.MAX_VALUE;
+    // Bumped on every change a snapshot can show and stamped on snapshots, so readers can tell
+    // whether anything changed. Written under the model lock; volatile so it can be polled without it.
+    private volatile long version = 0;
+    private volatile Runnable changeListener;
 
     // --- ACTIONS ---
 
-    public void onDepth(boolean isBid, int price, int newSize) {
+    public synchronized void onDepth(boolean isBid, int price, int newSize) {
         var book = isBid ? bids : asks;
         var reloadMap = isBid ? bidReloads : askReloads;
-        int oldSize = book.getOrDefault(price, 0);
+        int oldSize = book.get(price);
+        bumpVersion();
         int delta = newSize - oldSize;
 
         // 1. Detect Stacking (+) or Pulling (-)
@@ -73,182 +109,518 @@ public class DomModel {
         }
 
         if (delta != 0 && inRange && oldSize > 0) {
-            reloadMap.compute(price, (k, v) -> {
-                int current = (v == null) ? 0 : v;
-                int result = current + delta;
-                return (result == 0) ? null : result;
-            });
+            reloadMap.add(price, delta);
         }
 
         // 2. Update Book & BBO
+        // The ladders' occupancy bitmaps are the source of truth, so the cached BBO
+        // stays exact under sweeps and out-of-order updates.
         if (newSize == 0) {
             book.remove(price);
-            (isBid ? bidIcebergChunks : askIcebergChunks).remove(price);
+            (isBid ? bidIcebergs : askIcebergs).remove(price);
             if (isBid && price == bestBid)
-                bestBid = bids.isEmpty() ? Integer.MIN_VALUE : bids.firstKey();
+                bestBid = bids.nextAtOrBelow(price);
             if (!isBid && price == bestAsk)
-                bestAsk = asks.isEmpty() ? Integer.MAX_VALUE : asks.firstKey();
+                bestAsk = asks.nextAtOrAbove(price);
         } else {
-            book.put(price, newSize);
+            book.set(price, newSize);
             if (isBid && price > bestBid)
                 bestBid = price;
             if (!isBid && price < bestAsk)
                 bestAsk = price;
+        }
 
-            // 3. Iceberg detection: flag levels where total size >= threshold
-            if (settings.icebergDetectionEnabled) {
-                var chunkMap = isBid ? bidIcebergChunks : askIcebergChunks;
-                if (newSize >= settings.minIcebergChunkSize) {
-                    chunkMap.put(price, newSize);
-                } else {
-                    chunkMap.remove(price);
-                }
-            }
+        // 3. Iceberg detection: an execution at this price replenished to a similar size
+        if (settings.icebergDetectionEnabled) {
+            configureIcebergs();
+            if (icebergs.onDepth(isBid, price, oldSize, newSize, clockMs))
+                (isBid ? bidIcebergs : askIcebergs).set(price,
+                        (int) Math.min(Integer.MAX_VALUE, icebergs.hidden(price, isBid, clockMs)));
+        }
+
+        // 4. Range-sum index and depth statistics: the level's own change, then any move of
+        // its side's best price
+        (isBid ? bidDepth : askDepth).set(price, newSize);
+        depthStats.onLevel(isBid, price, oldSize, newSize);
+        if (isBid)
+            depthStats.moveBid(bestBid, bids);
+        else
+            depthStats.moveAsk(bestAsk, asks);
+
+        // 5. Absorption: a level being traded into refilling or giving way
+        if (settings.absorptionEnabled) {
+            configureAbsorption();
+            absorption.onDepth(isBid, price, oldSize, newSize, clockMs);
         }
     }
 
     public void onTrade(int price, int size, boolean isBidAggressor) {
+        onTrade(price, size, isBidAggressor, DomJournal.wallClockMillis());
+    }
+
+    /** Applies a trade stamped with the wall-clock time it was received at. */
+    public synchronized void onTrade(int price, int size, boolean isBidAggressor, long now) {
         lastTradePrice = price;
         lastTradeSize = size;
-        long now = System.currentTimeMillis();
+        bumpVersion();
+        clockMs = now;
         boolean isBuy = isBidAggressor;
 
         // Standard Footprint Logic
-        sessionFp.computeIfAbsent(price, k -> new FootprintData()).add(isBuy, size);
-        rollingFp.computeIfAbsent(price, k -> new FootprintData()).add(isBuy, size);
-        tradeHistory.add(new TradeRecord(now, price, size, isBuy));
-
-        // --- GLOBAL VELOCITY LOGIC (15s) ---
-        // 1. Add new trade to velocity history
-        velocityHistory.add(new TradeRecord(now, price, size, isBuy));
-        globalVelocityVolume += size;
+        sessionFp.add(price, isBuy, size);
+        profile.onTrade(price, size, sessionFp.askVol(price) - sessionFp.bidVol(price));
+        stats.onTrade(price, size, isBuy, now, settings.deltaBarSeconds * 1000L);
+        if (settings.absorptionEnabled) {
+            // A buy trades into the ask, a sell into the bid
+            configureAbsorption();
+            absorption.onTrade(price, size, !isBuy, (isBuy ? asks : bids).get(price), now);
+        }
+        if (settings.icebergDetectionEnabled) {
+            configureIcebergs();
+            icebergs.onTrade(price, size, !isBuy, (isBuy ? asks : bids).get(price), now);
+        }
+        advanceRolling(now);
+        rolling.add(now, price, isBuy, size);
 
-        // 2. Prune old trades to ensure the calculation represents the exact last 15s
+        // --- GLOBAL VELOCITY LOGIC ---
+        // 1. Add the trade to the bucketed window (expires old buckets as a side effect)
         pruneVelocity(now);
+        velocity.add(now, size);
 
-        // 3. STAMP the velocity at this price
+        // 2. STAMP the velocity at this price
         // We take the current global velocity and assign it to this price row
-        priceRecordedVelocity.put(price, globalVelocityVolume);
+        priceRecordedVelocity.set(price, (int) Math.min(Integer.MAX_VALUE, velocity.sum(now)));
 
         // Retroactively correct: the passive side's depth reduction was already counted
-        // as pulling by onDepth, but it was an execution — not a cancellation.
+        // as pulling by onDepth, but it was an execution, not a cancellation.
         // isBidAggressor=true means a buy hit the ask, so correct askReloads.
         var reloadMap = isBidAggressor ? askReloads : bidReloads;
-        reloadMap.compute(price, (k, v) -> {
-            if (v == null) return null;
-            int corrected = v + size;
-            return (corrected == 0) ? null : corrected;
-        });
+        if (reloadMap.contains(price)) {
+            reloadMap.add(price, size);
+        }
 
-        checkAndPerformReset(now);
     }
 
-    public void checkAndPerformReset(long now) {
-        long intervalMs = settings.footprintResetMinutes * 60 * 1000L;
-        if (now - lastResetTime >= intervalMs) {
-            rollingFp.clear();
-            tradeHistory.clear();
-            lastResetTime = now;
-        }
+    /**
+     * Writes up to {@code max} populated book prices into {@code out}, walking away from
+     * the best level of the given side (best bid downwards, best ask upwards).
+     *
+     * @return the number of prices written
+     */
+    public synchronized int nextBookLevels(boolean isBid, int[] out, int max) {
+        return isBid ? bids.nextLevels(bestBid, true, out, max) : asks.nextLevels(bestAsk, false, out, max);
     }
 
-    private void pruneVelocity(long now) {
-        while (!velocityHistory.isEmpty()) {
-            TradeRecord rec = velocityHistory.peek();
-            if (now - rec.timestamp > VELOCITY_WINDOW_MS) {
-                velocityHistory.poll();
-                globalVelocityVolume -= rec.size;
-            } else {
-                break;
-            }
+    /**
+     * Resting size of the {@code ticks} prices from the best of one side outwards, the best
+     * included; 0 when that side is empty. O(log n).
+     */
+    public synchronized long depthWithin(boolean isBid, int ticks) {
+        if (ticks <= 0)
+            return 0;
+        if (isBid)
+            return bestBid == Integer.MIN_VALUE ? 0 : depth(true, saturatedAdd(bestBid, -(ticks - 1)), bestBid);
+        return bestAsk == Integer.MAX_VALUE ? 0 : depth(false, bestAsk, saturatedAdd(bestAsk, ticks - 1));
+    }
+
+    /** Resting size on one side at prices {@code low} to {@code high}, both included. O(log n). */
+    public synchronized long depthBetween(boolean isBid, int low, int high) {
+        return depth(isBid, low, high);
+    }
+
+    /**
+     * Session volume traded at prices {@code low} to {@code high}, both included. O(log n),
+     * or a scan of the footprint when the range reaches a price the profile had to leave out.
+     */
+    public synchronized long volumeBetween(int low, int high) {
+        if (profile.exact(low, high))
+            return profile.volumeBetween(low, high);
+        long volume = 0;
+        for (int price = sessionFp.nextAtOrAbove(low); price <= high && price != Integer.MAX_VALUE;
+                price = sessionFp.nextAtOrAbove(price + 1))
+            volume += sessionFp.askVol(price) + sessionFp.bidVol(price);
+        return volume;
+    }
+
+    /**
+     * Resting size on one side at prices {@code low} to {@code high} from the range-sum index.
+     * A book spread wider than the index's window leaves prices out of it: the index is then
+     * re-anchored on the side's best price if that fell off the window, and a range it still
+     * leaves out is summed from the book instead.
+     */
+    private long depth(boolean isBid, int low, int high) {
+        TickFenwick index = isBid ? bidDepth : askDepth;
+        if (index.exact(low, high))
+            return index.sum(low, high);
+        PriceLadder book = isBid ? bids : asks;
+        int best = isBid ? bestBid : bestAsk;
+        if (book.contains(best) && !index.exact(best, best)) {
+            index.anchor(best);
+            book.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, index::set);
+            if (index.exact(low, high))
+                return index.sum(low, high);
         }
-        if (globalVelocityVolume < 0) {
-            globalVelocityVolume = 0;
+        long[] size = new long[1];
+        book.forEachInRange(low, high, (price, value) -> size[0] += value);
+        return size[0];
+    }
+
+    private static int saturatedAdd(int price, int ticks) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, (long) price + ticks));
+    }
+
+    public void setSingleWriter(boolean singleWriter) {
+        this.singleWriter = singleWriter;
+    }
+
+    public boolean isSingleWriter() {
+        return singleWriter;
+    }
+
+    /**
+     * Time-driven housekeeping: reload pruning, rolling footprint expiry, velocity expiry,
+     * depth history sampling, delta bar rollover, absorption highlight fading, dropping
+     * iceberg marks the detector no longer backs, and picking up a new depth statistics window.
+     */
+    public synchronized void maintain(long now) {
+        clockMs = now;
+        boolean changed = pruneOutdatedReloads();
+        changed |= pruneIcebergs(now);
+        changed |= advanceRolling(now); // Keep sliding even if no trades come in
+        pruneVelocity(now); // only read when stamping a trade, so not a visible change
+        if (depthStats.levels() != settings.depthLevels) {
+            depthStats.reset(settings.depthLevels, bids, asks, bestBid, bestAsk);
+            changed = true;
         }
+        if (settings.heatmapEnabled)
+            changed |= depthHistory.sample(now, settings.heatmapIntervalSeconds * 1000L, bids, asks, bookCenter());
+        changed |= stats.roll(now, settings.deltaBarSeconds * 1000L);
+        configureAbsorption();
+        changed |= absorption.advance(now);
+        if (changed)
+            bumpVersion();
+    }
+
+    /** Mid of the BBO, else whichever side exists, else the LTP, else 0. */
+    private int bookCenter() {
+        if (bestBid != Integer.MIN_VALUE && bestAsk != Integer.MAX_VALUE)
+            return (bestBid + bestAsk) / 2;
+        if (bestBid != Integer.MIN_VALUE)
+            return bestBid;
+        if (bestAsk != Integer.MAX_VALUE)
+            return bestAsk;
+        return lastTradePrice;
     }
 
-    private void pruneOutdatedReloads() {
+    private void configureAbsorption() {
+        absorption.configure(settings.absorptionWindowSeconds * 1000L, settings.absorptionMinVolume,
+                settings.absorptionDecaySeconds * 1000L);
+    }
+
+    private void configureIcebergs() {
+        icebergs.configure(settings.minIcebergExecution, settings.icebergRefillTolerancePercent);
+    }
+
+    /** Slides the rolling footprint to {@code now}; returns whether its contents changed. */
+    private boolean advanceRolling(long now) {
+        // Picks up runtime changes of the window length; the window is rebuilt from the buckets
+        long lengthMs = settings.footprintResetMinutes * 60 * 1000L;
+        boolean resized = rollingWindow.getLengthMs() != lengthMs;
+        rollingWindow.setLengthMs(lengthMs);
+        return rolling.advance(now) | resized;
+    }
+
+    private void pruneVelocity(long now) {
+        // Picks up runtime changes of the window length without dropping history
+        velocity.setWindowMs(settings.velocityWindowSeconds * 1000L);
+        velocity.advance(now);
+    }
+
+    /** Drops reloads and icebergs far from the BBO; returns whether any were dropped. */
+    private boolean pruneOutdatedReloads() {
+        int before = bidReloads.size() + askReloads.size() + bidIcebergs.size() + askIcebergs.size();
         if (bestBid == Integer.MIN_VALUE || bids.isEmpty()) {
             bidReloads.clear();
-            bidIcebergChunks.clear();
+            bidIcebergs.clear();
         } else {
             int minAllowed = bestBid - CLEANUP_DISTANCE;
-            bidReloads.keySet().removeIf(price -> price < minAllowed || price > bestBid);
-            bidIcebergChunks.keySet().removeIf(price -> price < minAllowed || price > bestBid);
+            bidReloads.retainRange(minAllowed, bestBid);
+            bidIcebergs.retainRange(minAllowed, bestBid);
         }
 
         if (bestAsk == Integer.MAX_VALUE || asks.isEmpty()) {
             askReloads.clear();
-            askIcebergChunks.clear();
+            askIcebergs.clear();
         } else {
             int maxAllowed = bestAsk + CLEANUP_DISTANCE;
-            askReloads.keySet().removeIf(price -> price > maxAllowed || price < bestAsk);
-            askIcebergChunks.keySet().removeIf(price -> price > maxAllowed || price < bestAsk);
+            askReloads.retainRange(bestAsk, maxAllowed);
+            askIcebergs.retainRange(bestAsk, maxAllowed);
         }
+        return bidReloads.size() + askReloads.size() + bidIcebergs.size() + askIcebergs.size() != before;
     }
 
-    public DomSnapshot getSnapshot() {
-        long now = System.currentTimeMillis();
-        pruneOutdatedReloads();
-        checkAndPerformReset(now); // Ensure we reset even if no trades come in
-        pruneVelocity(now);
+    /**
+     * Drops iceberg marks whose estimate expired or whose detector slot went to another
+     * level, and all of them once detection is switched off; returns whether any were dropped.
+     */
+    private boolean pruneIcebergs(long now) {
+        if (bidIcebergs.isEmpty() && askIcebergs.isEmpty())
+            return false;
+        if (!settings.icebergDetectionEnabled) {
+            bidIcebergs.clear();
+            askIcebergs.clear();
+            return true;
+        }
+        return pruneIcebergs(bidIcebergs, true, now) | pruneIcebergs(askIcebergs, false, now);
+    }
 
-        return new DomSnapshot(
-                bids.clone(), asks.clone(),
-                bidReloads.clone(), askReloads.clone(),
-                deepCopy(sessionFp), deepCopy(rollingFp),
-                priceRecordedVelocity.clone(),
-                bidIcebergChunks.clone(), askIcebergChunks.clone(),
-                lastTradePrice, lastTradeSize, bestBid, bestAsk);
+    private boolean pruneIcebergs(PriceLadder marks, boolean isBid, long now) {
+        int before = marks.size();
+        for (int price = marks.lowest(); price != Integer.MAX_VALUE; price = marks.nextAtOrAbove(price + 1)) {
+            if (icebergs.hidden(price, isBid, now) == 0)
+                marks.remove(price);
+        }
+        return marks.size() != before;
     }
 
-    private ConcurrentSkipListMap<Integer, FootprintData> deepCopy(ConcurrentSkipListMap<Integer, FootprintData> src) {
-        ConcurrentSkipListMap<Integer, FootprintData> copy = new ConcurrentSkipListMap<>();
-        src.forEach((k, v) -> copy.put(k, new FootprintData(v)));
-        return copy;
+    /** Change counter; cheap enough to poll for whether a new frame is worth building. */
+    public long getVersion() {
+        return version;
     }
 
-    public static class FootprintData {
-        public volatile long askVol = 0;
-        public volatile long bidVol = 0;
-        public volatile int askCnt = 0;
-        public volatile int bidCnt = 0;
+    /**
+     * Runs {@code listener} on every change of {@link #getVersion()}, on the changing thread
+     * and under the model's lock, so it must only signal; {@code null} for none.
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
 
-        public FootprintData() {
-        }
+    private void bumpVersion() {
+        version++;
+        Runnable listener = changeListener;
+        if (listener != null)
+            listener.run();
+    }
+
+    // --- KEYFRAMES ---
+    // Full model state for journal keyframes (see DomJournal). Window lengths come
+    // from the settings and are applied to the restored history, not stored.
+
+    private static final int STATE_FORMAT = 5;      // 2: depth history, 3: session statistics, 4: absorption,
+                                                    // 5: iceberg detector (older iceberg ladders held sizes)
+    private static final int OLDEST_STATE_FORMAT = 1;
+
+    /** Writes the complete model state; pair with {@link #readState(DataInput)}. */
+    public synchronized void writeState(DataOutput out) throws IOException {
+        out.writeInt(STATE_FORMAT);
+        out.writeInt(lastTradePrice);
+        out.writeInt(lastTradeSize);
+        out.writeInt(bestBid);
+        out.writeInt(bestAsk);
+        out.writeLong(version);
+        bids.writeTo(out);
+        asks.writeTo(out);
+        bidReloads.writeTo(out);
+        askReloads.writeTo(out);
+        bidIcebergs.writeTo(out);
+        askIcebergs.writeTo(out);
+        priceRecordedVelocity.writeTo(out);
+        sessionFp.writeTo(out);
+        rolling.writeTo(out);
+        velocity.writeTo(out);
+        depthHistory.writeTo(out);
+        stats.writeTo(out);
+        out.writeLong(clockMs);
+        absorption.writeTo(out);
+        icebergs.writeTo(out);
+    }
 
-        public FootprintData(FootprintData other) {
-            this.askVol = other.askVol;
-            this.bidVol = other.bidVol;
-            this.askCnt = other.askCnt;
-            this.bidCnt = other.bidCnt;
+    /** Replaces the complete model state with one written by {@link #writeState(DataOutput)}. */
+    public synchronized void readState(DataInput in) throws IOException {
+        int format = in.readInt();
+        if (format < OLDEST_STATE_FORMAT || format > STATE_FORMAT)
+            throw new IOException("unsupported model state format " + format);
+        lastTradePrice = in.readInt();
+        lastTradeSize = in.readInt();
+        bestBid = in.readInt();
+        bestAsk = in.readInt();
+        version = in.readLong();
+        bids.readFrom(in);
+        asks.readFrom(in);
+        bidReloads.readFrom(in);
+        askReloads.readFrom(in);
+        bidIcebergs.readFrom(in);
+        askIcebergs.readFrom(in);
+        priceRecordedVelocity.readFrom(in);
+        sessionFp.readFrom(in);
+        profile.rebuild(sessionFp); // derived from the footprint
+        rollingWindow.setLengthMs(settings.footprintResetMinutes * 60 * 1000L);
+        rolling.readFrom(in);
+        velocity.setWindowMs(settings.velocityWindowSeconds * 1000L);
+        velocity.readFrom(in);
+        if (format >= 2)
+            depthHistory.readFrom(in);
+        else
+            depthHistory.clear();
+        if (format >= 3)
+            stats.readFrom(in);
+        else
+            stats.rebuild(sessionFp); // all but the delta bar follows from the footprint
+        if (format >= 4) {
+            clockMs = in.readLong();
+            absorption.readFrom(in);
+        } else {
+            absorption.clear();
         }
+        if (format >= 5) {
+            icebergs.readFrom(in);
+        } else {
+            icebergs.clear();
+            bidIcebergs.clear();
+            askIcebergs.clear();
+        }
+        reindex(bidDepth, bids); // derived from the book
+        reindex(askDepth, asks);
+        depthStats.reset(settings.depthLevels, bids, asks, bestBid, bestAsk);
+    }
+
+    private static void reindex(TickFenwick index, PriceLadder book) {
+        index.clear();
+        book.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, index::set);
+    }
+
+    /**
+     * Immutable, consistent view of the whole model. Every ladder is frozen and shared
+     * rather than copied, so this is O(1); the model copies a page only when it next
+     * writes to it, which keeps the per-frame cost proportional to what changed.
+     */
+    public synchronized DomSnapshot getSnapshot() {
+        if (!singleWriter)
+            maintain(DomJournal.wallClockMillis());
+
+        return new DomSnapshot(
+                bids.snapshot(), asks.snapshot(),
+                bidReloads.snapshot(), askReloads.snapshot(),
+                sessionFp.snapshot(), rollingWindow.footprint().snapshot(),
+                priceRecordedVelocity.snapshot(),
+                bidIcebergs.snapshot(), askIcebergs.snapshot(),
+                lastTradePrice, lastTradeSize, bestBid, bestAsk,
+                profile.poc(), profile.valueAreaHigh(settings.valueAreaPercent),
+                profile.valueAreaLow(settings.valueAreaPercent), stats.values(), version);
+    }
 
-        public void add(boolean isBuy, int size) {
-            if (isBuy) {
-                askVol += size;
-                askCnt++;
-            } else {
-                bidVol += size;
-                bidCnt++;
+    /**
+     * Window of {@code rows} prices centred on {@code centerPrice} as dense per-row arrays,
+     * with the depth history a heatmap of the configured length shows.
+     * Cost is O(rows) regardless of how much of the session has been traded.
+     * A {@code centerPrice} of 0 centres on the model's reference price (LTP, else BBO).
+     */
+    public DomFrame getSnapshot(int centerPrice, int rows) {
+        DomFrame frame = new DomFrame(rows);
+        fillFrame(frame, centerPrice, 0, settings.heatmapEnabled ? settings.heatmapColumns : 0);
+        return frame;
+    }
+
+    /** Fills {@code frame} with the window centred on {@code centerPrice}, without depth history. */
+    public void fillFrame(DomFrame frame, int centerPrice) {
+        fillFrame(frame, centerPrice, Long.MAX_VALUE, 0);
+    }
+
+    /**
+     * Fills {@code frame} with the window centred on {@code centerPrice}; see
+     * {@link #getSnapshot(int, int)}. Of the depth history it copies the columns from
+     * sequence {@code heatmapFrom} on, but no more than the newest {@code heatmapColumns},
+     * so a reader that keeps what it was sent pays only for new columns.
+     */
+    public synchronized void fillFrame(DomFrame frame, int centerPrice, long heatmapFrom, int heatmapColumns) {
+        if (!singleWriter)
+            maintain(DomJournal.wallClockMillis());
+
+        frame.lastTradePrice = lastTradePrice;
+        frame.lastTradeSize = lastTradeSize;
+        frame.bestBid = bestBid;
+        frame.bestAsk = bestAsk;
+        frame.version = version;
+        if (centerPrice == 0)
+            centerPrice = frame.referencePrice();
+        frame.topPrice = centerPrice + frame.rows / 2;
+        configureAbsorption();
+
+        for (int i = 0; i < frame.rows; i++) {
+            int price = frame.topPrice - i;
+            frame.bidSize[i] = bids.get(price);
+            frame.askSize[i] = asks.get(price);
+            frame.bidReload[i] = bidReloads.get(price);
+            frame.askReload[i] = askReloads.get(price);
+            frame.bidIceberg[i] = bidIcebergs.get(price);
+            frame.askIceberg[i] = askIcebergs.get(price);
+            frame.velocity[i] = priceRecordedVelocity.get(price);
+            frame.absorption[i] = settings.absorptionEnabled ? absorption.strength(price, clockMs) : 0;
+
+            long askVol = sessionFp.askVol(price);
+            long bidVol = sessionFp.bidVol(price);
+            frame.sessionAskVol[i] = askVol;
+            frame.sessionBidVol[i] = bidVol;
+
+            FootprintLadder rollingFp = rollingWindow.footprint();
+            frame.rollingAskVol[i] = rollingFp.askVol(price);
+            frame.rollingBidVol[i] = rollingFp.bidVol(price);
+            frame.rollingAskCnt[i] = rollingFp.askCnt(price);
+            frame.rollingBidCnt[i] = rollingFp.bidCnt(price);
+        }
+        // Cumulative depth from each side's best out to every row: one index query where a
+        // side's rows start, then a running sum down (bids) or up (asks) the window
+        long cumBid = 0;
+        for (int i = 0; i < frame.rows; i++) {
+            int price = frame.topPrice - i;
+            if (bestBid == Integer.MIN_VALUE || price > bestBid) {
+                frame.cumBidSize[i] = 0;
+                continue;
             }
+            cumBid = cumBid == 0 ? depth(true, price, bestBid) : cumBid + frame.bidSize[i];
+            frame.cumBidSize[i] = cumBid;
         }
-
-        public void subtract(boolean isBuy, int size) {
-            if (isBuy) {
-                askVol -= size;
-                askCnt--;
-            } else {
-                bidVol -= size;
-                bidCnt--;
+        long cumAsk = 0;
+        for (int i = frame.rows - 1; i >= 0; i--) {
+            int price = frame.topPrice - i;
+            if (bestAsk == Integer.MAX_VALUE || price < bestAsk) {
+                frame.cumAskSize[i] = 0;
+                continue;
             }
+            cumAsk = cumAsk == 0 ? depth(false, bestAsk, price) : cumAsk + frame.askSize[i];
+            frame.cumAskSize[i] = cumAsk;
         }
-
-        public boolean isEmpty() {
-            return askVol <= 0 && bidVol <= 0 && askCnt <= 0 && bidCnt <= 0;
+        frame.depthReadoutTicks = settings.depthReadoutTicks;
+        frame.bidDepthWithin = depthWithin(true, settings.depthReadoutTicks);
+        frame.askDepthWithin = depthWithin(false, settings.depthReadoutTicks);
+
+        // Histograms scale against the session, so a bar keeps its length as the window moves
+        frame.maxVolume = Math.max(1, profile.pocVolume());
+        frame.maxDelta = Math.max(1, profile.maxAbsDelta());
+        frame.pocPrice = profile.poc();
+        frame.valueAreaHigh = profile.valueAreaHigh(settings.valueAreaPercent);
+        frame.valueAreaLow = profile.valueAreaLow(settings.valueAreaPercent);
+        frame.cumulativeDelta = stats.cumulativeDelta();
+        frame.vwapPrice = stats.vwapPrice();
+        frame.vwapSigmaTicks = (int) Math.min(Integer.MAX_VALUE, Math.round(stats.vwapSigma()));
+        frame.barDeltaOpen = stats.barOpen();
+        frame.barDeltaHigh = stats.barHigh();
+        frame.barDeltaLow = stats.barLow();
+        frame.barDeltaClose = stats.barClose();
+        frame.depthHighlight = Math.max(settings.minDepthHighlight,
+                depthStats.percentile(100 - settings.depthHighlightPercent));
+
+        long head = depthHistory.head();
+        long first = Math.max(Math.max(heatmapFrom, head - heatmapColumns + 1), depthHistory.oldest());
+        int columns = (int) Math.max(0, head - first + 1);
+        frame.heatmapHead = head;
+        frame.heatmapFirst = first;
+        frame.heatmapCount = columns;
+        if (columns > 0) {
+            if (frame.heatmap.length < columns * frame.rows)
+                frame.heatmap = new int[columns * frame.rows];
+            depthHistory.copyColumns(first, frame.topPrice, frame.rows, frame.heatmap);
         }
     }
-
-    private record TradeRecord(long timestamp, int price, int size, boolean isBuy) {
-    }
 }
@@ -5,14 +5,65 @@ public class DomSettings {
     public boolean autoRecenterEnabled = true;
     public boolean showPreviousCenter = false;
     public int recenterTicksThreshold = 2; // Set to 2 or 4 for AGGRESSIVE recentering
-    public int depthLevels = 40;
-    public int minDepthHighlight = 20;
-    public int depthHighlightPercent = 8;
-    public int footprintResetMinutes = 5;
+    public int depthLevels = 40;         // ticks either side of the BBO the depth statistics cover
+    public int minDepthHighlight = 20;   // sizes below this are never highlighted
+    public int depthHighlightPercent = 8; // highlight the largest this-many percent of those levels
+    public boolean relativeSizeColors = true; // bid/ask bars shaded by size relative to the highlight size
+    public boolean showCumulativeDepth = true; // column with the resting size from the best out to each price
+    public int depthReadoutTicks = 10;   // status-line total of each side's first this-many prices; 0 hides it
+    public int footprintResetMinutes = 5; // length of the sliding rolling-footprint window
+    public static final int MAX_FOOTPRINT_WINDOW_MINUTES = 60;
+    public int velocityWindowSeconds = 15;
+    public static final int MAX_VELOCITY_WINDOW_SECONDS = 300;
+
+    // --- INGEST ---
+    // Queue Layer1 events to a dedicated model thread instead of applying them on
+    // Bookmap's data thread. Takes effect for DOM windows opened afterwards.
+    public boolean singleWriterIngest = false;
+
+    // --- JOURNAL ---
+    // Record every depth/trade event to a binary journal (one file per DOM window)
+    // for offline replay. Takes effect for DOM windows opened afterwards. A journaled DOM
+    // ingests on the single-writer thread, which also writes its keyframes.
+    public boolean journalEnabled = false;
+    public String journalDirectory = System.getProperty("user.home") + java.io.File.separator + "qtdom-journal";
+    public int journalKeyframeSeconds = 15; // model keyframe spacing for seeking, in event time
 
     // --- GRAPHICS ---
     public int fontSize = 12;
     public int rowSize = 18;
+    // Frame-rate caps new DOM windows start with; each window can change its own from its popup menu
+    public int activeFps = 60; // while the model is changing
+    public int idleFps = 0;    // while nothing changes; 0 renders nothing until it does
+    public static final int MAX_FPS = 240;
+    public boolean rasterBars = false; // bars written straight into the pixel array; see RasterCanvas
+    public boolean parallelTiles = false; // large redraws split into row bands drawn on all cores
+
+    // --- DEPTH HEATMAP ---
+    // Strip left of the ladder with the resting size per price over time, one column per sample
+    public boolean heatmapEnabled = false;
+    public int heatmapIntervalSeconds = 5;
+    public int heatmapColumns = 60; // history shown: columns * interval
+    public static final int MAX_HEATMAP_COLUMNS = 300;
+
+    // --- VOLUME PROFILE ---
+    // Session point of control and value area, marked in the Volume column
+    public boolean showValueArea = true;
+    public int valueAreaPercent = 70; // share of the session volume the value area holds
+
+    // --- SESSION STATISTICS ---
+    // Strip under the column headers with cumulative delta, VWAP and the current delta bar
+    public boolean showSessionStats = true;
+    public boolean showVwap = true;   // VWAP and its 1 and 2 sigma bands marked in the Price column
+    public int deltaBarSeconds = 60;  // length of a delta bar
+    public static final int MAX_DELTA_BAR_SECONDS = 3600;
+
+    // --- ABSORPTION ---
+    // Levels that keep resting while aggressive volume trades into them, highlighted in the Bid/Ask columns
+    public boolean absorptionEnabled = true;
+    public int absorptionMinVolume = 100;     // volume traded into a level within the window before it counts
+    public int absorptionWindowSeconds = 5;
+    public int absorptionDecaySeconds = 10;   // the highlight fades out over this long
 
     // --- COLORS ---
     public java.awt.Color colBg = new java.awt.Color(30, 30, 30);
@@ -40,6 +91,10 @@ public class DomSettings {
     public java.awt.Color colTextTrdCount = new java.awt.Color(220, 220, 220);
     public java.awt.Color colVolumeBar = new java.awt.Color(50, 70, 90);
     public java.awt.Color colVolumeText = new java.awt.Color(180, 190, 200);
+    public java.awt.Color colPoc = new java.awt.Color(90, 125, 160);  // volume bar at the POC
+    public java.awt.Color colValueArea = new java.awt.Color(200, 170, 60);  // edge mark on value area rows
+    public java.awt.Color colVwap = new java.awt.Color(180, 120, 255);
+    public java.awt.Color colVwapBand = new java.awt.Color(110, 80, 160);
     public java.awt.Color colDeltaPos = new java.awt.Color(0, 180, 80);
     public java.awt.Color colDeltaNeg = new java.awt.Color(200, 50, 50);
 
@@ -48,8 +103,28 @@ public class DomSettings {
     public java.awt.Color colReloadPos = new java.awt.Color(0, 255, 100);
     public java.awt.Color colReloadNeg = new java.awt.Color(255, 50, 50);
 
+    public java.awt.Color colHeatmap = new java.awt.Color(255, 140, 0); // full heat, at Min Depth Highlight
+
     // --- ICEBERG DETECTION ---
     public boolean icebergDetectionEnabled = true;
-    public int minIcebergChunkSize = 10;
-    public java.awt.Color colIcebergDot = new java.awt.Color(0, 255, 255); // Aqua
+    // A level is an iceberg when executions into it are refilled straight away to about its
+    // visible size before them; the refilled amounts estimate its hidden size
+    public int minIcebergExecution = 10;          // smaller executions are not followed
+    public int icebergRefillTolerancePercent = 25; // how far a refill may miss that visible size
+    public java.awt.Color colIceberg = new java.awt.Color(0, 255, 255); // Aqua
+    public java.awt.Color colAbsorption = new java.awt.Color(255, 255, 140);
+
+    // --- CHANGE TRACKING ---
+    // Bumped by the settings panel on every edit, so renderers can cache what they derive
+    // from these fields (fonts, metrics, colours, labels) and rebuild only when it moves.
+    private volatile int version = 0;
+
+    /** Call after changing any field. Written from the EDT only. */
+    public void markChanged() {
+        version++;
+    }
+
+    public int getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
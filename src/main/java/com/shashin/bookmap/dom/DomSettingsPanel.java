@@ -2,6 +2,8 @@ package com.shashin.bookmap.dom;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -21,7 +23,10 @@ public class DomSettingsPanel extends JPanel {
     private static final Color ICON_FG = new Color(140, 145, 150);
     private static final Color ICON_HOVER = new Color(200, 205, 210);
 
+    private final DomSettings settings;
+
     public DomSettingsPanel(DomSettings settings) {
+        this.settings = settings;
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
         setBackground(PANEL_BG);
         setBorder(new EmptyBorder(4, 4, 4, 4));
@@ -38,22 +43,92 @@ public class DomSettingsPanel extends JPanel {
                 v -> settings.depthLevels = v));
         behaviorSection.addRow(createSpinnerRow("Min Depth Highlight", settings.minDepthHighlight, 1, 1000, 10,
                 v -> settings.minDepthHighlight = v));
-        behaviorSection.addRow(createSpinnerRow("Depth Highlight >= %avg", settings.depthHighlightPercent, 1, 100, 1,
+        behaviorSection.addRow(createSpinnerRow("Depth Highlight Top %", settings.depthHighlightPercent, 1, 100, 1,
                 v -> settings.depthHighlightPercent = v));
-        behaviorSection.addRow(createSpinnerRow("Footprint Reset (min)", settings.footprintResetMinutes, 1, 60, 1,
-                v -> settings.footprintResetMinutes = v));
+        behaviorSection.addRow(createCheckboxRow("Relative Size Colors", settings.relativeSizeColors,
+                v -> settings.relativeSizeColors = v));
+        behaviorSection.addRow(createCheckboxRow("Cumulative Depth Column", settings.showCumulativeDepth,
+                v -> settings.showCumulativeDepth = v));
+        behaviorSection.addRow(createSpinnerRow("Depth Readout Ticks", settings.depthReadoutTicks, 0, 200, 5,
+                v -> settings.depthReadoutTicks = v));
+        behaviorSection.addRow(createSpinnerRow("Rolling Window (min)", settings.footprintResetMinutes, 1,
+                DomSettings.MAX_FOOTPRINT_WINDOW_MINUTES, 1, v -> settings.footprintResetMinutes = v));
+        behaviorSection.addRow(createSpinnerRow("Velocity Window (s)", settings.velocityWindowSeconds, 1,
+                DomSettings.MAX_VELOCITY_WINDOW_SECONDS, 1, v -> settings.velocityWindowSeconds = v));
+        behaviorSection.addRow(createCheckboxRow("Single-Writer Ingest", settings.singleWriterIngest,
+                v -> settings.singleWriterIngest = v));
         add(behaviorSection);
         add(Box.createVerticalStrut(4));
 
+        // --- Journal Section ---
+        CollapsibleSection journalSection = new CollapsibleSection("Journal");
+        journalSection.addRow(createCheckboxRow("Record Journal", settings.journalEnabled,
+                v -> settings.journalEnabled = v));
+        journalSection.addRow(createTextRow("Directory", settings.journalDirectory,
+                v -> settings.journalDirectory = v));
+        journalSection.addRow(createSpinnerRow("Keyframe Interval (s)", settings.journalKeyframeSeconds, 1, 600, 5,
+                v -> settings.journalKeyframeSeconds = v));
+        add(journalSection);
+        add(Box.createVerticalStrut(4));
+
         // --- Graphics Section ---
         CollapsibleSection graphicsSection = new CollapsibleSection("Graphics");
         graphicsSection.addRow(createSpinnerRow("Font Size", settings.fontSize, 8, 24, 1,
                 v -> settings.fontSize = v));
         graphicsSection.addRow(createSpinnerRow("Row Size", settings.rowSize, 12, 40, 1,
                 v -> settings.rowSize = v));
+        graphicsSection.addRow(createSpinnerRow("Active FPS", settings.activeFps, 1, DomSettings.MAX_FPS, 10,
+                v -> settings.activeFps = v));
+        graphicsSection.addRow(createSpinnerRow("Idle FPS", settings.idleFps, 0, DomSettings.MAX_FPS, 1,
+                v -> settings.idleFps = v));
+        graphicsSection.addRow(createCheckboxRow("Raster Bars", settings.rasterBars,
+                v -> settings.rasterBars = v));
+        graphicsSection.addRow(createCheckboxRow("Parallel Tiles", settings.parallelTiles,
+                v -> settings.parallelTiles = v));
         add(graphicsSection);
         add(Box.createVerticalStrut(4));
 
+        // --- Depth Heatmap Section ---
+        CollapsibleSection heatmapSection = new CollapsibleSection("Depth Heatmap");
+        heatmapSection.addRow(createCheckboxRow("Show Heatmap", settings.heatmapEnabled,
+                v -> settings.heatmapEnabled = v));
+        heatmapSection.addRow(createSpinnerRow("Sample Interval (s)", settings.heatmapIntervalSeconds, 1, 60, 1,
+                v -> settings.heatmapIntervalSeconds = v));
+        heatmapSection.addRow(createSpinnerRow("Columns", settings.heatmapColumns, 10,
+                DomSettings.MAX_HEATMAP_COLUMNS, 10, v -> settings.heatmapColumns = v));
+        heatmapSection.addRow(createColorRow("Heat Color", settings.colHeatmap,
+                new Color(255, 140, 0), c -> settings.colHeatmap = c));
+        add(heatmapSection);
+        add(Box.createVerticalStrut(4));
+
+        // --- Volume Profile Section ---
+        CollapsibleSection profileSection = new CollapsibleSection("Volume Profile");
+        profileSection.addRow(createCheckboxRow("Show POC / Value Area", settings.showValueArea,
+                v -> settings.showValueArea = v));
+        profileSection.addRow(createSpinnerRow("Value Area %", settings.valueAreaPercent, 50, 95, 5,
+                v -> settings.valueAreaPercent = v));
+        profileSection.addRow(createColorRow("POC Bar", settings.colPoc,
+                new Color(90, 125, 160), c -> settings.colPoc = c));
+        profileSection.addRow(createColorRow("Value Area Mark", settings.colValueArea,
+                new Color(200, 170, 60), c -> settings.colValueArea = c));
+        add(profileSection);
+        add(Box.createVerticalStrut(4));
+
+        // --- Session Statistics Section ---
+        CollapsibleSection statsSection = new CollapsibleSection("Session Statistics");
+        statsSection.addRow(createCheckboxRow("Show Stats Strip", settings.showSessionStats,
+                v -> settings.showSessionStats = v));
+        statsSection.addRow(createCheckboxRow("Show VWAP Bands", settings.showVwap,
+                v -> settings.showVwap = v));
+        statsSection.addRow(createSpinnerRow("Delta Bar (s)", settings.deltaBarSeconds, 5,
+                DomSettings.MAX_DELTA_BAR_SECONDS, 5, v -> settings.deltaBarSeconds = v));
+        statsSection.addRow(createColorRow("VWAP Mark", settings.colVwap,
+                new Color(180, 120, 255), c -> settings.colVwap = c));
+        statsSection.addRow(createColorRow("VWAP Band Mark", settings.colVwapBand,
+                new Color(110, 80, 160), c -> settings.colVwapBand = c));
+        add(statsSection);
+        add(Box.createVerticalStrut(4));
+
         // --- General Colors ---
         CollapsibleSection generalColors = new CollapsibleSection("General Colors");
         generalColors.addRow(createColorRow("Table Background", settings.colBg,
@@ -133,11 +208,28 @@ public class DomSettingsPanel extends JPanel {
         CollapsibleSection icebergSection = new CollapsibleSection("Iceberg Detection");
         icebergSection.addRow(createCheckboxRow("Enable Iceberg Detection", settings.icebergDetectionEnabled,
                 v -> settings.icebergDetectionEnabled = v));
-        icebergSection.addRow(createSpinnerRow("Min Chunk Size", settings.minIcebergChunkSize, 1, 500, 1,
-                v -> settings.minIcebergChunkSize = v));
-        icebergSection.addRow(createColorRow("Iceberg Dot Color", settings.colIcebergDot,
-                new Color(0, 255, 255), c -> settings.colIcebergDot = c));
+        icebergSection.addRow(createSpinnerRow("Min Execution", settings.minIcebergExecution, 1, 500, 1,
+                v -> settings.minIcebergExecution = v));
+        icebergSection.addRow(createSpinnerRow("Refill Tolerance %", settings.icebergRefillTolerancePercent,
+                0, 100, 5, v -> settings.icebergRefillTolerancePercent = v));
+        icebergSection.addRow(createColorRow("Iceberg Color", settings.colIceberg,
+                new Color(0, 255, 255), c -> settings.colIceberg = c));
         add(icebergSection);
+        add(Box.createVerticalStrut(4));
+
+        // --- Absorption ---
+        CollapsibleSection absorptionSection = new CollapsibleSection("Absorption");
+        absorptionSection.addRow(createCheckboxRow("Enable Absorption", settings.absorptionEnabled,
+                v -> settings.absorptionEnabled = v));
+        absorptionSection.addRow(createSpinnerRow("Min Volume", settings.absorptionMinVolume, 1, 100_000, 10,
+                v -> settings.absorptionMinVolume = v));
+        absorptionSection.addRow(createSpinnerRow("Window (s)", settings.absorptionWindowSeconds, 1, 60, 1,
+                v -> settings.absorptionWindowSeconds = v));
+        absorptionSection.addRow(createSpinnerRow("Highlight Fade (s)", settings.absorptionDecaySeconds, 1, 120, 1,
+                v -> settings.absorptionDecaySeconds = v));
+        absorptionSection.addRow(createColorRow("Absorption Highlight", settings.colAbsorption,
+                new Color(255, 255, 140), c -> settings.colAbsorption = c));
+        add(absorptionSection);
 
         // Bottom glue
         add(Box.createVerticalGlue());
@@ -150,7 +242,10 @@ public class DomSettingsPanel extends JPanel {
         JCheckBox cb = new JCheckBox("", initial);
         cb.setOpaque(false);
         cb.setForeground(VALUE_FG);
-        cb.addActionListener(e -> setter.accept(cb.isSelected()));
+        cb.addActionListener(e -> {
+            setter.accept(cb.isSelected());
+            settings.markChanged();
+        });
         row.add(cb, BorderLayout.EAST);
         return row;
     }
@@ -162,11 +257,45 @@ public class DomSettingsPanel extends JPanel {
         spinner.setPreferredSize(new Dimension(70, 24));
         spinner.setBackground(SECTION_BG);
         spinner.setForeground(VALUE_FG);
-        spinner.addChangeListener(e -> setter.accept((Integer) spinner.getValue()));
+        spinner.addChangeListener(e -> {
+            setter.accept((Integer) spinner.getValue());
+            settings.markChanged();
+        });
         row.add(spinner, BorderLayout.EAST);
         return row;
     }
 
+    private JPanel createTextRow(String label, String initial, Consumer<String> setter) {
+        JPanel row = createBaseRow(label);
+        JTextField field = new JTextField(initial, 16);
+        field.setBackground(SECTION_BG);
+        field.setForeground(VALUE_FG);
+        field.setCaretColor(VALUE_FG);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                update();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                update();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                update();
+            }
+
+            private void update() {
+                setter.accept(field.getText());
+                settings.markChanged();
+            }
+        });
+        row.add(field, BorderLayout.EAST);
+        return row;
+    }
+
     private JPanel createColorRow(String label, Color initial, Color defaultColor, Consumer<Color> setter) {
         JPanel row = createBaseRow(label);
 
@@ -192,12 +321,14 @@ public class DomSettingsPanel extends JPanel {
             if (chosen != null) {
                 swatch.setSwatchColor(chosen);
                 setter.accept(chosen);
+                settings.markChanged();
             }
         });
 
         resetBtn.addActionListener(e -> {
             swatch.setSwatchColor(defaultColor);
             setter.accept(defaultColor);
+            settings.markChanged();
         });
 
         // Clicking the swatch also opens the chooser
@@ -1,20 +1,29 @@
 package com.shashin.bookmap.dom;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-
+/**
+ * Immutable view of a {@link DomModel}. The ladders are read-only snapshots that share
+ * pages with the live model; {@code version} is the model's mutation counter at capture.
+ * The iceberg ladders hold each detected iceberg's estimated hidden size.
+ * The session POC and value area edges are 0 before the first trade.
+ * {@code sessionStats} holds the cumulative delta, VWAP and current delta bar.
+ */
 public record DomSnapshot(
-        ConcurrentSkipListMap<Integer, Integer> bids,
-        ConcurrentSkipListMap<Integer, Integer> asks,
-        ConcurrentSkipListMap<Integer, Integer> bidReloads,
-        ConcurrentSkipListMap<Integer, Integer> askReloads,
-        ConcurrentSkipListMap<Integer, DomModel.FootprintData> sessionFp,
-        ConcurrentSkipListMap<Integer, DomModel.FootprintData> rollingFp,
-        ConcurrentSkipListMap<Integer, Integer> priceRecordedVelocity,
-        ConcurrentSkipListMap<Integer, Integer> bidIcebergChunks,
-        ConcurrentSkipListMap<Integer, Integer> askIcebergChunks,
+        PriceLadder bids,
+        PriceLadder asks,
+        PriceLadder bidReloads,
+        PriceLadder askReloads,
+        FootprintLadder sessionFp,
+        FootprintLadder rollingFp,
+        PriceLadder priceRecordedVelocity,
+        PriceLadder bidIcebergs,
+        PriceLadder askIcebergs,
         int lastTradePrice,
         int lastTradeSize,
         int bestBid,
-        int bestAsk
+        int bestAsk,
+        int pocPrice,
+        int valueAreaHigh,
+        int valueAreaLow,
+        SessionStats.Values sessionStats,
+        long version
 ) {}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Tick-indexed footprint: ask/bid traded volume and trade counts per price, stored in
+ * primitive pages with the same layout and copy-on-write snapshots as {@link PriceLadder}.
+ * <p>
+ * A price is "present" while any of its four values is non-zero.
+ * Not thread-safe for writers: callers synchronize externally. Snapshots may be read
+ * from any thread.
+ */
+public final class FootprintLadder {
+
+    private static final int PAGE_BITS = TickPage.BITS;
+    private static final int PAGE_MASK = TickPage.MASK;
+
+    private TickPageTable table;
+    private final boolean readOnly;
+
+    public FootprintLadder() {
+        this(new TickPageTable(), false);
+    }
+
+    private FootprintLadder(TickPageTable table, boolean readOnly) {
+        this.table = table;
+        this.readOnly = readOnly;
+    }
+
+    // --- READS ---
+
+    public long askVol(int price) {
+        TickPage page = table.find(price >> PAGE_BITS);
+        return page == null ? 0 : ((TickPage.Footprint) page).askVol[price & PAGE_MASK];
+    }
+
+    public long bidVol(int price) {
+        TickPage page = table.find(price >> PAGE_BITS);
+        return page == null ? 0 : ((TickPage.Footprint) page).bidVol[price & PAGE_MASK];
+    }
+
+    public int askCnt(int price) {
+        TickPage page = table.find(price >> PAGE_BITS);
+        return page == null ? 0 : ((TickPage.Footprint) page).askCnt[price & PAGE_MASK];
+    }
+
+    public int bidCnt(int price) {
+        TickPage page = table.find(price >> PAGE_BITS);
+        return page == null ? 0 : ((TickPage.Footprint) page).bidCnt[price & PAGE_MASK];
+    }
+
+    public boolean contains(int price) {
+        return table.isOccupied(price);
+    }
+
+    /** Number of prices with any volume. */
+    public int size() {
+        return table.levelCount();
+    }
+
+    public boolean isEmpty() {
+        return table.levelCount() == 0;
+    }
+
+    /** Lowest traded price {@code >= price}, or {@link Integer#MAX_VALUE}; used to walk the footprint. */
+    public int nextAtOrAbove(int price) {
+        return table.nextAtOrAbove(price);
+    }
+
+    /** Highest traded price {@code <= price}, or {@link Integer#MIN_VALUE}. */
+    public int nextAtOrBelow(int price) {
+        return table.nextAtOrBelow(price);
+    }
+
+    // --- WRITES ---
+
+    public void add(int price, boolean isBuy, long size) {
+        apply(price, isBuy, size, 1);
+    }
+
+    public void subtract(int price, boolean isBuy, long size) {
+        apply(price, isBuy, -size, -1);
+    }
+
+    /** Adds the given volume and count deltas to the ask (buy) or bid (sell) side of a price. */
+    public void apply(int price, boolean isBuy, long volDelta, int cntDelta) {
+        if (isBuy)
+            applyLevel(price, volDelta, 0, cntDelta, 0);
+        else
+            applyLevel(price, 0, volDelta, 0, cntDelta);
+    }
+
+    /** Adds deltas to both sides of a price at once. */
+    public void applyLevel(int price, long askVolDelta, long bidVolDelta, int askCntDelta, int bidCntDelta) {
+        TickPageTable t = writableTable();
+        int offset = price & PAGE_MASK;
+        var page = (TickPage.Footprint) t.pageForWrite(price >> PAGE_BITS, TickPage.Footprint::new);
+        boolean wasPresent = page.isOccupied(offset);
+        page.askVol[offset] += askVolDelta;
+        page.bidVol[offset] += bidVolDelta;
+        page.askCnt[offset] += askCntDelta;
+        page.bidCnt[offset] += bidCntDelta;
+        boolean present = page.askVol[offset] != 0 || page.bidVol[offset] != 0
+                || page.askCnt[offset] != 0 || page.bidCnt[offset] != 0;
+        if (present && !wasPresent)
+            t.occupy(page, offset);
+        else if (!present && wasPresent)
+            t.vacate(page, offset);
+    }
+
+    public void clear() {
+        if (table.levelCount() > 0)
+            writableTable().clear();
+    }
+
+    // --- SERIALIZATION ---
+
+    /** Writes the traded prices as a count followed by ascending (price, askVol, bidVol, askCnt, bidCnt) tuples. */
+    public void writeTo(DataOutput out) throws IOException {
+        TickPageTable t = table;
+        int n = t.levelCount();
+        out.writeInt(n);
+        int price = t.nextAtOrAbove(Integer.MIN_VALUE);
+        for (int i = 0; i < n; i++) {
+            if (i > 0)
+                price = t.nextAtOrAbove(price + 1);
+            var page = (TickPage.Footprint) t.find(price >> PAGE_BITS);
+            int offset = price & PAGE_MASK;
+            out.writeInt(price);
+            out.writeLong(page.askVol[offset]);
+            out.writeLong(page.bidVol[offset]);
+            out.writeInt(page.askCnt[offset]);
+            out.writeInt(page.bidCnt[offset]);
+        }
+    }
+
+    /** Replaces the contents with prices written by {@link #writeTo(DataOutput)}. */
+    public void readFrom(DataInput in) throws IOException {
+        clear();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++)
+            applyLevel(in.readInt(), in.readLong(), in.readLong(), in.readInt(), in.readInt());
+    }
+
+    // --- SNAPSHOTS ---
+
+    /** Immutable view of the current contents, sharing pages with this ladder. */
+    public FootprintLadder snapshot() {
+        return readOnly ? this : new FootprintLadder(table.freeze(), true);
+    }
+
+    private TickPageTable writableTable() {
+        if (readOnly)
+            throw new IllegalStateException("snapshot footprints are read-only");
+        TickPageTable t = table;
+        if (t.isFrozen())
+            table = t = t.writable();
+        return t;
+    }
+}
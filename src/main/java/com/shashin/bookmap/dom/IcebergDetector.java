@@ -0,0 +1,208 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Detects icebergs: levels whose executions are replenished straight away to about the
+ * visible size they had, drawing on a hidden reserve. Each trade is correlated with the
+ * next depth change at its price; an increase that follows within {@link #REFILL_WINDOW_MS}
+ * of executions of at least the minimum size, and brings the level back to within the
+ * tolerance of its size before them, is a refill. The amounts refilled add up to the
+ * level's estimated hidden size.
+ * <p>
+ * Feeds report an execution's depth change before or after its trade, so the size before
+ * the executions is taken from the level's last depth change when that already shows them.
+ * State lives in preallocated primitive slots, direct-mapped by tick, so every event is
+ * O(1) and allocation-free. A level that has not refilled for {@link #EXPIRY_MS} reads as
+ * no iceberg and starts over. Not thread-safe: callers synchronize externally.
+ */
+public final class IcebergDetector {
+
+    static final int SLOTS = 1 << 10;              // direct-mapped by tick; more than any visible row count
+    static final long REFILL_WINDOW_MS = 1000;     // a refill follows its execution this closely
+    static final long EXPIRY_MS = 60_000;          // estimates older than this are forgotten
+
+    private static final byte NONE = 0;
+    private static final byte BID = 1;
+    private static final byte ASK = 2;
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final int[] ticks = new int[SLOTS];
+    private final byte[] sides = new byte[SLOTS];
+    private final int[] lastOldSizes = new int[SLOTS];   // the level's last depth change
+    private final int[] lastNewSizes = new int[SLOTS];
+    private final int[] sizesBefore = new int[SLOTS];    // visible size before the pending executions
+    private final long[] traded = new long[SLOTS];       // volume of the pending executions
+    private final long[] pendingSince = new long[SLOTS]; // last pending execution, IDLE for none
+    private final long[] hidden = new long[SLOTS];
+    private final int[] refills = new int[SLOTS];
+    private final long[] lastRefills = new long[SLOTS];   // time of the last refill, when there was one
+
+    private int minExecution = 1;
+    private int tolerancePercent = 25;
+
+    public IcebergDetector() {
+        clear();
+    }
+
+    /** Picks up runtime changes of the settings; cheap enough to call before every event. */
+    public void configure(int minExecution, int tolerancePercent) {
+        this.minExecution = Math.max(1, minExecution);
+        this.tolerancePercent = Math.max(0, Math.min(100, tolerancePercent));
+    }
+
+    /**
+     * Estimated hidden size of the {@code isBid} level at {@code price} at {@code now}; 0 for
+     * none, once the level has not refilled for {@link #EXPIRY_MS}, or after its slot went
+     * to another level.
+     */
+    public long hidden(int price, boolean isBid, long now) {
+        int slot = price & (SLOTS - 1);
+        return owns(slot, price, isBid) && !expired(slot, now) ? hidden[slot] : 0;
+    }
+
+    /** Refills seen at the {@code isBid} level at {@code price} and still counted at {@code now}. */
+    public int refills(int price, boolean isBid, long now) {
+        int slot = price & (SLOTS - 1);
+        return owns(slot, price, isBid) && !expired(slot, now) ? refills[slot] : 0;
+    }
+
+    /**
+     * A trade of {@code size} into the {@code isBid} level at {@code price}, which rested
+     * {@code restingSize} when the trade was applied.
+     */
+    public void onTrade(int price, int size, boolean isBid, int restingSize, long now) {
+        int slot = price & (SLOTS - 1);
+        if (!owns(slot, price, isBid)) {
+            take(slot, price, isBid);
+            lastNewSizes[slot] = restingSize;
+        }
+        if (pendingSince[slot] == IDLE || now - pendingSince[slot] > REFILL_WINDOW_MS) {
+            boolean shown = lastNewSizes[slot] == restingSize && lastOldSizes[slot] > restingSize;
+            sizesBefore[slot] = shown ? lastOldSizes[slot] : restingSize;
+            traded[slot] = 0;
+        }
+        traded[slot] += size;
+        pendingSince[slot] = now;
+    }
+
+    /**
+     * The {@code isBid} level at {@code price} changed from {@code oldSize} to {@code newSize}.
+     *
+     * @return whether the change was a refill, which raised the level's hidden estimate
+     */
+    public boolean onDepth(boolean isBid, int price, int oldSize, int newSize, long now) {
+        int slot = price & (SLOTS - 1);
+        if (!owns(slot, price, isBid)) {
+            // A drop may be an execution reported ahead of its trade; keep it if the slot is free
+            if (newSize >= oldSize || !idle(slot, now))
+                return false;
+            take(slot, price, isBid);
+        }
+        boolean refilled = false;
+        if (pendingSince[slot] != IDLE) {
+            // Size the book would show without a refill: the executions taken off, unless already shown
+            long floor = Math.min(oldSize, Math.max(0, sizesBefore[slot] - traded[slot]));
+            long before = sizesBefore[slot];
+            if (now - pendingSince[slot] > REFILL_WINDOW_MS) {
+                pendingSince[slot] = IDLE;
+            } else if (newSize > floor) {
+                if (traded[slot] >= minExecution && Math.abs(newSize - before) * 100 <= before * tolerancePercent) {
+                    if (expired(slot, now)) {
+                        hidden[slot] = 0;
+                        refills[slot] = 0;
+                    }
+                    hidden[slot] += newSize - floor;
+                    refills[slot]++;
+                    lastRefills[slot] = now;
+                    refilled = true;
+                }
+                pendingSince[slot] = IDLE;
+            }
+            // At or below the floor the book is only showing the executions: the refill may still come
+        }
+        lastOldSizes[slot] = oldSize;
+        lastNewSizes[slot] = newSize;
+        return refilled;
+    }
+
+    private boolean owns(int slot, int price, boolean isBid) {
+        return ticks[slot] == price && sides[slot] == (isBid ? BID : ASK);
+    }
+
+    /** Whether the slot has nothing worth keeping against another level. */
+    private boolean idle(int slot, long now) {
+        return sides[slot] == NONE || ((pendingSince[slot] == IDLE || now - pendingSince[slot] > REFILL_WINDOW_MS)
+                && (refills[slot] == 0 || expired(slot, now)));
+    }
+
+    /** Whether the slot's estimate is too old to stand; false while it has none. */
+    private boolean expired(int slot, long now) {
+        return refills[slot] > 0 && now - lastRefills[slot] > EXPIRY_MS;
+    }
+
+    private void take(int slot, int price, boolean isBid) {
+        ticks[slot] = price;
+        sides[slot] = isBid ? BID : ASK;
+        lastOldSizes[slot] = 0;
+        lastNewSizes[slot] = 0;
+        pendingSince[slot] = IDLE;
+        hidden[slot] = 0;
+        refills[slot] = 0;
+        lastRefills[slot] = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(sides, NONE);
+        Arrays.fill(pendingSince, IDLE);
+    }
+
+    // --- SERIALIZATION ---
+    // Occupied slots only
+
+    public void writeTo(DataOutput out) throws IOException {
+        int count = 0;
+        for (byte side : sides)
+            if (side != NONE)
+                count++;
+        out.writeInt(count);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (sides[slot] == NONE)
+                continue;
+            out.writeInt(ticks[slot]);
+            out.writeByte(sides[slot]);
+            out.writeInt(lastOldSizes[slot]);
+            out.writeInt(lastNewSizes[slot]);
+            out.writeInt(sizesBefore[slot]);
+            out.writeLong(traded[slot]);
+            out.writeLong(pendingSince[slot]);
+            out.writeLong(hidden[slot]);
+            out.writeInt(refills[slot]);
+            out.writeLong(lastRefills[slot]);
+        }
+    }
+
+    public void readFrom(DataInput in) throws IOException {
+        clear();
+        int count = in.readInt();
+        if (count < 0 || count > SLOTS)
+            throw new IOException("corrupt iceberg slot count " + count);
+        for (int i = 0; i < count; i++) {
+            int tick = in.readInt();
+            int slot = tick & (SLOTS - 1);
+            ticks[slot] = tick;
+            sides[slot] = in.readByte();
+            lastOldSizes[slot] = in.readInt();
+            lastNewSizes[slot] = in.readInt();
+            sizesBefore[slot] = in.readInt();
+            traded[slot] = in.readLong();
+            pendingSince[slot] = in.readLong();
+            hidden[slot] = in.readLong();
+            refills[slot] = in.readInt();
+            lastRefills[slot] = in.readLong();
+        }
+    }
+}
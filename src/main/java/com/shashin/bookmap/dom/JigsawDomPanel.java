@@ -4,23 +4,163 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 public class JigsawDomPanel extends JPanel {
     private final DomSettings settings;
-    private DomSnapshot currentSnapshot;
+    private DomFrame currentFrame;
     private double pips = 1.0;
 
     // Layout Constants
-    private final int HEADER_HEIGHT = 24;
+    private final int HEADER_HEIGHT = 24; // status line and column headers
+    private static final int STATS_STRIP_HEIGHT = 14; // session statistics, under the column headers
+    private static final int W_PRICE = 60;
+    private static final int W_VEL = 35;
+    private static final int W_RELOAD = 35;
+    private static final int W_QTY = 40;
+    private static final int W_CUM = 55;
+    private static final int VALUE_AREA_MARK_WIDTH = 3; // left edge of the Volume column
+    private static final int VWAP_MARK_WIDTH = 3;       // right edge of the Price column
+    private static final int ABSORPTION_BORDER = 2;     // outline of an absorbing level's Bid/Ask cell
+    private int headerHeight = HEADER_HEIGHT; // rows start below the headers and the stats strip (layout)
     private int rowHeight = 20;
-    private int centerPrice = 0;
+    private volatile int centerPrice = 0; // also read by the frame publisher
+    private volatile Runnable viewListener; // told when the frame this panel wants changes
+    private long droppedEvents = 0;
+
+    // Extra rows requested above and below the visible window, so a recentre or a
+    // small scroll still finds data in the current frame
+    private static final int FRAME_MARGIN_ROWS = 8;
 
     // Colors - REMOVED CONSTANTS, NOW USING settings.colName
 
+    // --- PAINT CACHES ---
+    // Everything rendering would otherwise allocate per frame: fonts, metrics,
+    // number and price text, header labels and delta gradients. Rebuilt when the
+    // settings version moves; price labels also when pips change.
+    private static final Font HEADER_FONT = new Font("SansSerif", Font.PLAIN, 10);
+    private static final Font STATUS_FONT = new Font("SansSerif", Font.BOLD, 10);
+    private static final String DROP_LABEL = "DROP ";
+    private static final String FP_SEPARATOR = " x ";
+    private static final String CUM_DELTA_LABEL = "CD ";
+    private static final String VWAP_LABEL = "VWAP ";
+    private static final String SIGMA_LABEL = "\u03C3 "; // sigma
+    private static final String BAR_OPEN_LABEL = "O ";
+    private static final String BAR_HIGH_LABEL = "H ";
+    private static final String BAR_LOW_LABEL = "L ";
+    private static final String BAR_CLOSE_LABEL = "C ";
+    private static final int STATS_GAP = 12; // between groups in the stats strip
+    private static final int NUMBER_CACHE_SIZE = 10_000;
+    private static final int SIZE_RAMP_FLOOR = RasterCanvas.RAMP_SIZE / 4; // smallest sizes still show a bar
+    private static final int PRICE_LABEL_SLOTS = 1024; // direct-mapped by tick; more than any visible row count
+
+    private int paintCacheVersion = -1;
+    private FontMetrics rowMetrics; // of the row font (see renderRows)
+    private FontMetrics headerMetrics;
+    private int separatorWidth;
+    private int dropLabelWidth;
+    private String rollingVolHeader;
+    private String rollingTrdHeader;
+    private Color deltaPosFade;
+    private Color deltaNegFade;
+    private Color deltaPosFlat; // flat delta bars at reduced quality
+    private Color deltaNegFlat;
+    private int[] deltaPosRamp; // the delta gradients as colour ramps, for raster bars
+    private int[] deltaNegRamp;
+    private Color[] bidSizeColors; // bid/ask bars by size relative to the frame's depth highlight
+    private Color[] askSizeColors;
+    private Color[] bidAbsorptionColors; // absorption outlines, faded towards the column background
+    private Color[] askAbsorptionColors;
+    private final int[] priceLabelTicks = new int[PRICE_LABEL_SLOTS];
+    private final String[] priceLabels = new String[PRICE_LABEL_SLOTS];
+    private final int[] priceLabelWidths = new int[PRICE_LABEL_SLOTS];
+    private int[] gridXs = new int[0];
+    private String readoutLabel; // "<ticks>t", before the N-level depth readout
+    private String deltaBarLabel; // "Bar", the delta sign and the bar length, before the delta bar in the stats strip
+
+    // --- FRAME RATE ---
+    // This window's caps, read by DomFramePublisher. Each follows the settings, edits
+    // included, until a rate is picked for this window from its popup menu
+    private static final int[] ACTIVE_FPS_CHOICES = { 15, 30, 60, 120 };
+    private static final int[] IDLE_FPS_CHOICES = { 0, 1, 5, 10 };
+    private static final int FOLLOW_SETTINGS = -1;
+    private volatile int activeFps = FOLLOW_SETTINGS;
+    private volatile int idleFps = FOLLOW_SETTINGS;
+
+    // --- LAYOUT ---
+    // Column positions for the current width, recomputed with the static layer
+    private int x1, xVel, x2, x3, x4, x5, x6, x7, x8, x9, xCum;
+    private int wFP_5m, wFP_Trd, wFP_Vol, wDelta, wCum;
+
+    // --- BACK BUFFER ---
+    // The panel renders into an offscreen image that paintComponent only blits. A new frame
+    // is diffed against the one last rendered and only rows whose content changed are
+    // redrawn and repainted; a scroll first moves the rendered rows with copyArea. Rows are
+    // redrawn over a band of the static layer (backgrounds, headers, grid), which is rebuilt
+    // only on resize or a settings change.
+    private BufferedImage backBuffer;
+    private BufferedImage staticLayer;
+    private int layoutVersion = -1;  // settings version the static layer was built for
+    private DomFrame renderedFrame;  // frame the rows in the back buffer show, null for none
+    private int renderedTopPrice;
+    private boolean renderedAutoRecenter;
+    private long renderedDroppedEvents;
+    private long renderedBidReadout;
+    private long renderedAskReadout;
+    private int dirtyTop;            // rows touched by the last render, [dirtyTop, dirtyBottom)
+    private int dirtyBottom;
+    // With settings.rasterBars, bars, row restores and scrolls write the pixel arrays
+    // directly and only text and markers go through Java2D; null otherwise
+    private RasterCanvas raster;
+    private RasterCanvas staticRaster;
+    private final RowPainter painter = new RowPainter(); // rows drawn on the EDT
+    private int[] rowsToDraw = new int[0];
+    private int[] cumCellsToDraw = new int[0]; // rows where only the cumulative depth changed
+
+    // --- PARALLEL TILES ---
+    // With settings.parallelTiles, a render that redraws many rows splits the ladder into
+    // horizontal bands that are drawn concurrently from the current frame, each into its
+    // own image with its own row painter, and then composited into the back buffer on the
+    // EDT. The pool is shared by all panels; its workers start on first use and are daemons.
+    private static final int MIN_TILE_ROWS = 16;
+    private static final int TILE_THREADS = Runtime.getRuntime().availableProcessors(); // the EDT included
+    private static final ForkJoinPool TILE_POOL = new ForkJoinPool(Math.max(1, TILE_THREADS - 1),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("qtdom-tiles-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+    private int tileThreads = TILE_THREADS; // most tiles one render is split into
+    private Tile[] tiles = new Tile[0];
+
+    // --- DEPTH HEATMAP ---
+    // Strip left of the price column, one HEATMAP_COLUMN_WIDTH column per depth history
+    // sample with the newest on the right. It lives in the back buffer, outside the row
+    // bands that rows restore: a new sample shifts it left with one copyArea and paints only
+    // the new columns, and a scroll moves it with the rows. Only when the view moves or the
+    // layout is rebuilt is it repainted whole, from a frame carrying the full history, which
+    // getHeatmapFrom() asks the publisher for.
+    private static final int HEATMAP_COLUMN_WIDTH = 2;
+    private int wHeat;                 // strip width, 0 with the heatmap off (layout)
+    private long heatmapPainted = -1;  // newest column in the strip, -1 when it needs a full repaint
+    private int heatmapTopPrice;       // top price the strip was painted for
+    private volatile long heatmapFrom; // first column the next frame should carry
+    private Color[] heatColors;        // paint cache: by heat (see rampIndex), background to settings.colHeatmap
+
+    // --- RENDER QUALITY ---
+    private final RenderQualityGovernor governor = new RenderQualityGovernor();
+    private int quality;             // level the back buffer was rendered at
+
     public JigsawDomPanel(DomSettings settings) {
         this.settings = settings;
         setBackground(settings.colBg);
         setFont(new Font("Consolas", Font.BOLD, settings.fontSize));
+        setComponentPopupMenu(createFrameRateMenu());
 
         addMouseWheelListener(e -> {
             scrollPrice(-e.getWheelRotation());
@@ -30,9 +170,8 @@ public class JigsawDomPanel extends JPanel {
             @Override
             public void mousePressed(MouseEvent e) {
                 if (SwingUtilities.isMiddleMouseButton(e)) {
-                    recenter();
                     settings.autoRecenterEnabled = true;
-                    repaint();
+                    recenter();
                 }
             }
         });
@@ -40,22 +179,80 @@ public class JigsawDomPanel extends JPanel {
 
     public void setPips(double pips) {
         this.pips = pips;
+        Arrays.fill(priceLabels, null);
+        renderedFrame = null; // every row's price label changes
+
     }
 
-    public void updateSnapshot(DomSnapshot snapshot) {
-        this.currentSnapshot = snapshot;
-        int ltp = snapshot.lastTradePrice();
+    /** Events the single-writer ingest queue had to drop; shown in the status area when non-zero. */
+    public void setDroppedEvents(long droppedEvents) {
+        this.droppedEvents = droppedEvents;
+    }
 
-        int targetPrice = ltp;
-        if (targetPrice == 0) {
-            if (snapshot.bestBid() != Integer.MIN_VALUE && snapshot.bestAsk() != Integer.MAX_VALUE) {
-                targetPrice = (snapshot.bestBid() + snapshot.bestAsk()) / 2;
-            } else if (snapshot.bestBid() != Integer.MIN_VALUE) {
-                targetPrice = snapshot.bestBid();
-            } else if (snapshot.bestAsk() != Integer.MAX_VALUE) {
-                targetPrice = snapshot.bestAsk();
-            }
-        }
+    /** Frame-rate cap while the model is changing: this window's own, else the settings'. */
+    public int getActiveFps() {
+        int fps = activeFps;
+        return Math.max(1, Math.min(DomSettings.MAX_FPS, fps != FOLLOW_SETTINGS ? fps : settings.activeFps));
+    }
+
+    /** Gives this window its own active cap, which settings edits no longer change. */
+    public void setActiveFps(int fps) {
+        this.activeFps = Math.max(1, Math.min(DomSettings.MAX_FPS, fps));
+    }
+
+    /** Frame rate while nothing changes, 0 for none: this window's own, else the settings'. */
+    public int getIdleFps() {
+        int fps = idleFps;
+        return Math.max(0, Math.min(DomSettings.MAX_FPS, fps != FOLLOW_SETTINGS ? fps : settings.idleFps));
+    }
+
+    /** Gives this window its own idle rate, which settings edits no longer change. */
+    public void setIdleFps(int fps) {
+        this.idleFps = Math.max(0, Math.min(DomSettings.MAX_FPS, fps));
+    }
+
+    /** Quality level of this panel, fed with its render times and the EDT latency of its frames. */
+    RenderQualityGovernor qualityGovernor() {
+        return governor;
+    }
+
+    /** Price the next frame should be centred on (0 until the first frame arrives). */
+    public int getCenterPrice() {
+        return centerPrice;
+    }
+
+    /** First depth history column the next frame should carry; 0 for all it has. */
+    public long getHeatmapFrom() {
+        return heatmapFrom;
+    }
+
+    /** Depth history columns the heatmap shows; 0 when it is off. */
+    public int getHeatmapColumns() {
+        return settings.heatmapEnabled ? settings.heatmapColumns : 0;
+    }
+
+    /** Rows the next frame should cover: the visible rows plus a margin on each side. */
+    public int getRequestedRows() {
+        int header = HEADER_HEIGHT + (settings.showSessionStats ? STATS_STRIP_HEIGHT : 0);
+        int rows = Math.max(1, (getHeight() - header) / Math.max(1, settings.rowSize));
+        return rows + 2 * FRAME_MARGIN_ROWS;
+    }
+
+    /** Runs {@code listener} whenever the centre, rows or depth history the next frame should have change. */
+    public void setViewListener(Runnable listener) {
+        this.viewListener = listener;
+    }
+
+    private void viewChanged() {
+        Runnable listener = viewListener;
+        if (listener != null)
+            listener.run();
+    }
+
+    public void updateSnapshot(DomFrame frame) {
+        this.currentFrame = frame;
+        int targetPrice = frame.referencePrice();
+        int previousCenter = centerPrice;
 
         if (centerPrice == 0 && targetPrice != 0) {
             centerPrice = targetPrice;
@@ -67,207 +264,665 @@ public class JigsawDomPanel extends JPanel {
                 centerPrice = targetPrice;
             }
         }
-        repaint();
+        if (centerPrice != previousCenter)
+            viewChanged();
+        renderChanges();
     }
 
     public void scrollPrice(int ticks) {
         centerPrice += ticks;
         settings.autoRecenterEnabled = false;
-        repaint();
+        viewChanged();
+        renderChanges();
     }
 
     public void recenter() {
-        if (currentSnapshot != null) {
-            int ltp = currentSnapshot.lastTradePrice();
+        if (currentFrame != null) {
+            int ltp = currentFrame.lastTradePrice;
             if (ltp != 0) {
                 centerPrice = ltp;
-            } else if (currentSnapshot.bestBid() != Integer.MIN_VALUE) {
-                centerPrice = (currentSnapshot.bestBid() + currentSnapshot.bestAsk()) / 2;
+            } else if (currentFrame.bestBid != Integer.MIN_VALUE) {
+                centerPrice = (currentFrame.bestBid + currentFrame.bestAsk) / 2;
             }
-            repaint();
+            viewChanged();
+            renderChanges();
         }
     }
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
-        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setFont(new Font("Consolas", Font.BOLD, settings.fontSize));
+        // The back buffer covers every pixel, so there is no background to paint first
+        if (!isBackBufferValid())
+            render();
+        if (backBuffer != null)
+            g.drawImage(backBuffer, 0, 0, null);
+    }
 
-        int w = getWidth();
-        int h = getHeight();
+    // --- FRAME RATE MENU ---
 
-        // --- LAYOUT ---
-        int wPrice = 60;
-        int wVel = 35;
-        int wReload = 35;
-        int wQty = 40;
+    private JPopupMenu createFrameRateMenu() {
+        JPopupMenu menu = new JPopupMenu();
+        menu.add(createFpsMenu("Active FPS", ACTIVE_FPS_CHOICES, activeFps, this::setActiveFps,
+                () -> activeFps = FOLLOW_SETTINGS));
+        menu.add(createFpsMenu("Idle FPS", IDLE_FPS_CHOICES, idleFps, this::setIdleFps,
+                () -> idleFps = FOLLOW_SETTINGS));
+        return menu;
+    }
 
-        int fixedWidth = wPrice + wVel + (wReload * 2) + (wQty * 2);
-        int remaining = Math.max(0, w - fixedWidth);
+    private static JMenu createFpsMenu(String title, int[] choices, int current, IntConsumer setter,
+                                       Runnable follow) {
+        JMenu menu = new JMenu(title);
+        ButtonGroup group = new ButtonGroup();
+        JRadioButtonMenuItem settingsItem = new JRadioButtonMenuItem("Settings", current == FOLLOW_SETTINGS);
+        settingsItem.addActionListener(e -> follow.run());
+        group.add(settingsItem);
+        menu.add(settingsItem);
+        menu.addSeparator();
+        for (int fps : choices) {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(fps == 0 ? "Off" : fps + " FPS", fps == current);
+            item.addActionListener(e -> setter.accept(fps));
+            group.add(item);
+            menu.add(item);
+        }
+        return menu;
+    }
 
-        int wFP_5m = (int) (remaining * 0.22);
-        int wFP_Trd = (int) (remaining * 0.18);
-        int wFP_Vol = (int) (remaining * 0.32);
-        int wDelta = remaining - wFP_5m - wFP_Trd - wFP_Vol;
+    // --- INCREMENTAL RENDERING ---
 
-        int x1 = 0; // Price
-        int xVel = x1 + wPrice; // Velocity
-        int x2 = xVel + wVel; // Bid Reload
-        int x3 = x2 + wReload; // Bid Qty
-        int x4 = x3 + wQty; // 5m Vol
-        int x5 = x4 + wFP_5m; // Ask Qty
-        int x6 = x5 + wQty; // Ask Reload
-        int x7 = x6 + wReload; // 5m Trades
-        int x8 = x7 + wFP_Trd; // Volume
-        int x9 = x8 + wFP_Vol; // Delta
+    /** Renders what changed into the back buffer and repaints only that part of the panel. */
+    private void renderChanges() {
+        if (!isBackBufferValid()) {
+            repaint(); // paintComponent renders everything
+            return;
+        }
+        render();
+        if (dirtyTop < dirtyBottom)
+            repaint(0, dirtyTop, getWidth(), dirtyBottom - dirtyTop);
+    }
 
-        // 1. GLOBAL BACKGROUND
-        g2.setColor(settings.colBg);
-        g2.fillRect(0, HEADER_HEIGHT, w, h - HEADER_HEIGHT);
+    /** Redraws every row of the current frame into the back buffer and returns it; for benchmarks. */
+    BufferedImage renderAllRows() {
+        renderedFrame = null;
+        render();
+        return backBuffer;
+    }
 
-        // 2. COLUMN STRIPS
-        g2.setColor(settings.colPriceBg);
-        g2.fillRect(x1, HEADER_HEIGHT, wPrice, h - HEADER_HEIGHT);
+    private boolean isBackBufferValid() {
+        return backBuffer != null && backBuffer.getWidth() == getWidth() && backBuffer.getHeight() == getHeight()
+                && layoutVersion == settings.getVersion() && quality == governor.level();
+    }
 
-        g2.setColor(settings.colBidColBg);
-        g2.fillRect(x3, HEADER_HEIGHT, wQty, h - HEADER_HEIGHT);
+    /**
+     * Brings the back buffer up to date with the current frame, view and status, recording
+     * the rows touched in {@link #dirtyTop}/{@link #dirtyBottom}.
+     */
+    private void render() {
+        int w = getWidth();
+        int h = getHeight();
+        dirtyTop = Integer.MAX_VALUE;
+        dirtyBottom = Integer.MIN_VALUE;
+        if (w <= 0 || h <= 0)
+            return;
+        long started = System.nanoTime();
 
-        g2.setColor(settings.colAskColBg);
-        g2.fillRect(x5, HEADER_HEIGHT, wQty, h - HEADER_HEIGHT);
+        boolean full = false;
+        if (backBuffer == null || backBuffer.getWidth() != w || backBuffer.getHeight() != h) {
+            backBuffer = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            staticLayer = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            full = true;
+        }
 
-        // --- HEADERS ---
-        drawHeaders(g2, w, x1, xVel, x2, x3, x4, x5, x6, x7, x8, x9,
-                wPrice, wVel, wReload, wQty, wFP_5m, wFP_Trd, wFP_Vol, wDelta);
+        Graphics2D g2 = backBuffer.createGraphics();
+        try {
+            // Caches are measured with antialiased text at every quality level
+            applyRenderingHints(g2, RenderQualityGovernor.FULL);
+            validatePaintCaches(g2);
+            painter.validate();
+            if (full || layoutVersion != paintCacheVersion || quality != governor.level()) {
+                layoutVersion = paintCacheVersion;
+                quality = governor.level();
+                rowHeight = Math.max(1, settings.rowSize);
+                layoutColumns(w);
+                renderStaticLayer(w, h);
+                g2.drawImage(staticLayer, 0, 0, null);
+                raster = settings.rasterBars ? new RasterCanvas(backBuffer) : null;
+                staticRaster = settings.rasterBars ? new RasterCanvas(staticLayer) : null;
+                painter.raster = raster;
+                tiles = new Tile[0];
+                invalidateHeatmap();
+                renderedFrame = null;
+                full = true;
+                viewChanged(); // the rows wanted may have changed with the size or settings
+            }
+            applyRenderingHints(g2, quality);
+
+            // --- STATUS INDICATOR ---
+            DomFrame frame = currentFrame;
+            long bidReadout = frame != null && frame.depthReadoutTicks > 0 ? frame.bidDepthWithin : -1;
+            long askReadout = frame != null && frame.depthReadoutTicks > 0 ? frame.askDepthWithin : -1;
+            if (full || renderedAutoRecenter != settings.autoRecenterEnabled || renderedDroppedEvents != droppedEvents
+                    || renderedBidReadout != bidReadout || renderedAskReadout != askReadout) {
+                painter.restoreStatic(g2, 0, 0, HEADER_HEIGHT);
+                drawStatusIndicator(g2, bidReadout, askReadout);
+                drawGridLines(g2, 0, HEADER_HEIGHT);
+                renderedAutoRecenter = settings.autoRecenterEnabled;
+                renderedDroppedEvents = droppedEvents;
+                renderedBidReadout = bidReadout;
+                renderedAskReadout = askReadout;
+                markDirty(0, HEADER_HEIGHT);
+            }
 
-        // --- STATUS INDICATOR ---
-        drawStatusIndicator(g2);
+            // --- SESSION STATISTICS STRIP ---
+            if (frame != null && headerHeight > HEADER_HEIGHT
+                    && (renderedFrame == null || sessionStatsChanged(renderedFrame, frame))) {
+                painter.restoreStatic(g2, 0, HEADER_HEIGHT, headerHeight);
+                drawSessionStats(g2, frame);
+                markDirty(HEADER_HEIGHT, headerHeight);
+            }
 
-        if (currentSnapshot == null)
-            return;
+            if (frame != null)
+                renderRows(g2, frame, h);
+        } finally {
+            g2.dispose();
+        }
+        if (full) {
+            dirtyTop = 0;
+            dirtyBottom = h;
+        }
+        long finished = System.nanoTime();
+        governor.recordPaint(finished - started, finished);
+    }
 
-        rowHeight = Math.max(1, settings.rowSize);
-        int rowsVisible = Math.max(1, (h - HEADER_HEIGHT) / rowHeight);
+    private void renderRows(Graphics2D g2, DomFrame frame, int h) {
+        int rowsVisible = Math.max(1, (h - headerHeight) / rowHeight);
         int topPrice = centerPrice + (rowsVisible / 2);
+        DomFrame previous = renderedFrame;
+
+        // A scroll moves the rendered rows with one blit; only the exposed rows are drawn anew.
+        // Row 0 has no grid line above it, so it and the row that received it are redrawn too.
+        int shift = previous == null ? rowsVisible : topPrice - renderedTopPrice;
+        int firstExposed = 0;
+        int lastExposed = -1;
+        if (shift != 0 && Math.abs(shift) < rowsVisible) {
+            int keptRows = rowsVisible - Math.abs(shift);
+            int from = headerHeight + Math.max(0, -shift) * rowHeight;
+            if (raster != null)
+                raster.moveRows(from, keptRows * rowHeight, shift * rowHeight);
+            else
+                g2.copyArea(0, from, getWidth(), keptRows * rowHeight, 0, shift * rowHeight);
+            firstExposed = shift > 0 ? 0 : keptRows;
+            lastExposed = shift > 0 ? shift - 1 : rowsVisible - 1;
+            markDirty(headerHeight, headerHeight + rowsVisible * rowHeight);
+            clearHeatmap(g2, headerHeight + firstExposed * rowHeight, headerHeight + (lastExposed + 1) * rowHeight);
+        } else if (shift != 0) {
+            previous = null;
+            clearHeatmap(g2, headerHeight, headerHeight + rowsVisible * rowHeight);
+        }
+        int movedRowZero = shift > 0 ? shift : -1;
 
-        // Pre-compute max volume and max delta for histogram scaling
-        long maxVolume = 1;
-        long maxDelta = 1;
+        if (rowsToDraw.length < rowsVisible) {
+            rowsToDraw = new int[rowsVisible];
+            cumCellsToDraw = new int[rowsVisible];
+        }
+        // A book change moves the cumulative depth of every row beyond it; those rows only
+        // need their Cum cell redrawn
+        boolean cumShown = wCum > 0 && quality < RenderQualityGovernor.PRIMARY_COLUMNS;
+        int count = 0;
+        int cumCount = 0;
         for (int i = 0; i < rowsVisible; i++) {
-            int p = topPrice - i;
-            DomModel.FootprintData fp = currentSnapshot.sessionFp().get(p);
-            if (fp != null) {
-                long total = fp.askVol + fp.bidVol;
-                if (total > maxVolume)
-                    maxVolume = total;
-                long absDelta = Math.abs(fp.askVol - fp.bidVol);
-                if (absDelta > maxDelta)
-                    maxDelta = absDelta;
+            boolean exposed = i >= firstExposed && i <= lastExposed;
+            if (previous != null && !exposed && i != 0 && i != movedRowZero
+                    && !rowChanged(previous, frame, topPrice - i)) {
+                if (cumShown && cumChanged(previous, frame, topPrice - i))
+                    cumCellsToDraw[cumCount++] = i;
+                continue;
             }
+            rowsToDraw[count++] = i;
         }
 
-        // --- DRAW ROWS ---
-        for (int i = 0; i < rowsVisible; i++) {
-            int price = topPrice - i;
-            int y = HEADER_HEIGHT + (i * rowHeight);
+        if (!settings.parallelTiles || !renderTiles(g2, frame, topPrice, rowsVisible, count)) {
+            g2.setFont(STATUS_FONT); // rows have always been drawn in the status font
+            for (int k = 0; k < count; k++) {
+                int i = rowsToDraw[k];
+                int y = headerHeight + (i * rowHeight);
+                painter.paintRow(g2, frame, topPrice - i, y);
+                markDirty(y, y + rowHeight);
+            }
+        }
+        if (cumCount > 0) {
+            g2.setFont(STATUS_FONT);
+            for (int k = 0; k < cumCount; k++) {
+                int y = headerHeight + (cumCellsToDraw[k] * rowHeight);
+                painter.paintCumCell(g2, frame, topPrice - cumCellsToDraw[k], y);
+                markDirty(y, y + rowHeight);
+            }
+        }
+        if (wHeat > 0)
+            renderHeatmap(g2, frame, topPrice, rowsVisible);
 
-            // PRICE
-            drawPriceCell(g2, price, x1, y, wPrice, rowHeight);
+        renderedFrame = frame;
+        renderedTopPrice = topPrice;
+    }
 
-            // VELOCITY
-            // VELOCITY
-            if (currentSnapshot.priceRecordedVelocity().containsKey(price)) {
-                int val = currentSnapshot.priceRecordedVelocity().get(price);
-                g2.setColor(settings.colVelocityText);
-                drawCenteredString(g2, String.valueOf(val), xVel, y, wVel, rowHeight);
+    /**
+     * Draws the first {@code count} of {@link #rowsToDraw} as parallel tiles: every band of
+     * rows holding one of them is redrawn whole on the tile pool, the EDT drawing one band
+     * itself, and copied into the back buffer. Returns false, drawing nothing, when there are
+     * too few rows or cores for this to pay off.
+     */
+    private boolean renderTiles(Graphics2D g2, DomFrame frame, int topPrice, int rowsVisible, int count) {
+        int tileCount = Math.min(tileThreads, rowsVisible / MIN_TILE_ROWS);
+        if (tileCount < 2 || count < 2 * MIN_TILE_ROWS)
+            return false;
+        int rowsPerTile = (rowsVisible + tileCount - 1) / tileCount;
+        tileCount = (rowsVisible + rowsPerTile - 1) / rowsPerTile;
+        if (tiles.length != tileCount || tiles[0].image.getHeight() != rowsPerTile * rowHeight) {
+            tiles = new Tile[tileCount];
+            for (int t = 0; t < tileCount; t++)
+                tiles[t] = new Tile(getWidth(), rowsPerTile * rowHeight);
+        }
+
+        // Workers find every price label cached, so they never write to the shared cache
+        Tile local = null;
+        int k = 0;
+        for (int t = 0; t < tileCount; t++) {
+            Tile tile = tiles[t];
+            int first = t * rowsPerTile;
+            int end = Math.min(rowsVisible, first + rowsPerTile);
+            boolean dirty = false;
+            while (k < count && rowsToDraw[k] < end) {
+                dirty = true;
+                k++;
             }
+            tile.dirty = dirty;
+            if (!dirty)
+                continue;
+            for (int i = first; i < end; i++)
+                priceLabelSlot(topPrice - i);
+            tile.prepare(frame, topPrice, first, end);
+            if (local == null)
+                local = tile;
+            else
+                TILE_POOL.execute(tile);
+        }
+        if (local != null)
+            local.invoke();
 
-            int bestBid = currentSnapshot.bestBid();
-            int bestAsk = currentSnapshot.bestAsk();
+        int w = getWidth();
+        for (Tile tile : tiles) {
+            if (!tile.dirty)
+                continue;
+            tile.join();
+            // Tiles leave out the heatmap strip, which the back buffer keeps
+            if (raster != null)
+                raster.copyRect(tile.painter.raster, x1, w, tile.top, tile.bottom);
+            else
+                g2.drawImage(tile.image, x1, tile.top, w, tile.bottom, x1, 0, w, tile.bottom - tile.top, null);
+            markDirty(tile.top, tile.bottom);
+        }
+        return true;
+    }
 
-            // BID RELOAD
-            drawReloadIfRelevant(g2, currentSnapshot.bidReloads().get(price), price, bestBid, true, x2, y, wReload,
-                    rowHeight);
+    /** Splits renders into up to {@code threads} tiles whatever the core count; for tests. */
+    void setTileThreads(int threads) {
+        this.tileThreads = threads;
+    }
 
-            // BID QTY
-            if (currentSnapshot.bids().containsKey(price)) {
-                int val = currentSnapshot.bids().get(price);
-                g2.setColor(settings.colBidBar);
-                g2.fillRect(x3, y, wQty, rowHeight);
+    /** Tiles the last tiled render was split into, 0 before any; for tests. */
+    int tileCount() {
+        return tiles.length;
+    }
 
-                // Text Color Logic: Highlight if significant
-                if (val >= settings.minDepthHighlight) {
-                    g2.setColor(settings.colTextHighlight); // Yellow
-                } else {
-                    g2.setColor(settings.colTextOnBar); // White
-                }
-                drawCenteredString(g2, String.valueOf(val), x3, y, wQty, rowHeight);
+    /** A band of rows drawn into an image of its own, on the tile pool. */
+    @SuppressWarnings("serial") // never serialized
+    private final class Tile extends RecursiveAction {
+        final BufferedImage image;
+        final RowPainter painter = new RowPainter();
+        boolean dirty;  // drawn in the current render
+        int top;        // panel rows [top, bottom) the band covers
+        int bottom;
+        private DomFrame frame;
+        private int topPrice;
+        private int firstRow;
+        private int endRow;
+
+        Tile(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
 
-                // Iceberg chunk dot
-                if (settings.icebergDetectionEnabled && currentSnapshot.bidIcebergChunks().containsKey(price)) {
-                    drawIcebergDot(g2, x3, y, wQty, rowHeight, true);
-                }
+        /** Sets the rows to draw next; on the EDT, before the tile is run. */
+        void prepare(DomFrame frame, int topPrice, int firstRow, int endRow) {
+            reinitialize();
+            this.frame = frame;
+            this.topPrice = topPrice;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+            int bandTop = headerHeight + firstRow * rowHeight;
+            if (raster != null && (painter.raster == null || bandTop != top))
+                painter.raster = new RasterCanvas(image, bandTop);
+            top = bandTop;
+            bottom = headerHeight + endRow * rowHeight;
+            painter.validate();
+        }
+
+        @Override
+        protected void compute() {
+            Graphics2D g = image.createGraphics();
+            try {
+                // Panel coordinates, so every row is drawn exactly as the serial path draws it
+                g.translate(0, -top);
+                applyRenderingHints(g, quality);
+                g.setFont(STATUS_FONT);
+                for (int i = firstRow; i < endRow; i++)
+                    painter.paintRow(g, frame, topPrice - i, headerHeight + (i * rowHeight));
+            } finally {
+                g.dispose();
             }
+        }
+    }
 
-            // 5M VOL (Footprint)
-            if (currentSnapshot.rollingFp().containsKey(price)) {
-                drawFootprintCell(g2, x4, y, wFP_5m, rowHeight, currentSnapshot.rollingFp().get(price), false);
+    // --- DEPTH HEATMAP ---
+
+    /**
+     * Brings the heatmap strip up to the frame's newest depth history column: shifts it
+     * left and paints the new columns, or repaints all of it after a view change. Waits
+     * for a later frame when this one does not cover the visible rows or lacks columns.
+     */
+    private void renderHeatmap(Graphics2D g2, DomFrame frame, int topPrice, int rowsVisible) {
+        if (topPrice != heatmapTopPrice)
+            invalidateHeatmap();
+        long head = frame.heatmapHead;
+        if (head < 0 || head == heatmapPainted
+                || frame.rowOf(topPrice) < 0 || frame.rowOf(topPrice - rowsVisible + 1) < 0)
+            return;
+        int columns = wHeat / HEATMAP_COLUMN_WIDTH;
+        long first = Math.max(heatmapPainted + 1, head - columns + 1);
+        if (frame.heatmapFirst > Math.max(0, first)) {
+            requestHeatmapFrom(first); // published before this panel asked; the next frame has them
+            return;
+        }
+        first = Math.max(first, frame.heatmapFirst);
+
+        int bottom = headerHeight + rowsVisible * rowHeight;
+        int freshWidth = (int) (head - first + 1) * HEATMAP_COLUMN_WIDTH;
+        if (heatmapPainted >= 0)
+            g2.copyArea(freshWidth, headerHeight, wHeat - freshWidth, bottom - headerHeight, -freshWidth, 0);
+        else
+            clearHeatmap(g2, headerHeight, bottom);
+
+        int topRow = frame.rowOf(topPrice);
+        for (long seq = first; seq <= head; seq++) {
+            int x = wHeat - (int) (head - seq + 1) * HEATMAP_COLUMN_WIDTH;
+            int column = (int) (seq - frame.heatmapFirst) * frame.rows + topRow;
+            for (int i = 0; i < rowsVisible; i++) {
+                int heat = rampIndex(frame.heatmap[column + i], settings.minDepthHighlight, 0);
+                painter.fillBar(g2, x, headerHeight + (i * rowHeight), HEATMAP_COLUMN_WIDTH, rowHeight, heatColors[heat]);
             }
+        }
 
-            // ASK QTY
-            if (currentSnapshot.asks().containsKey(price)) {
-                int val = currentSnapshot.asks().get(price);
-                g2.setColor(settings.colAskBar);
-                g2.fillRect(x5, y, wQty, rowHeight);
+        heatmapPainted = head;
+        heatmapTopPrice = topPrice;
+        requestHeatmapFrom(head + 1);
+        markDirty(headerHeight, bottom);
+    }
 
-                // Text Color Logic
-                if (val >= settings.minDepthHighlight) {
-                    g2.setColor(settings.colTextHighlight); // Yellow
-                } else {
-                    g2.setColor(settings.colTextOnBar); // White
-                }
-                drawCenteredString(g2, String.valueOf(val), x5, y, wQty, rowHeight);
+    /** Colour ramp index of a book size: linear from {@code floor} up, saturating at {@code full}. */
+    private static int rampIndex(int size, int full, int floor) {
+        if (size <= 0)
+            return 0;
+        int span = RasterCanvas.RAMP_SIZE - 1 - floor;
+        return floor + (int) Math.min(span, (long) size * span / Math.max(1, full));
+    }
 
-                // Iceberg chunk dot
-                if (settings.icebergDetectionEnabled && currentSnapshot.askIcebergChunks().containsKey(price)) {
-                    drawIcebergDot(g2, x5, y, wQty, rowHeight, false);
-                }
-            }
+    /**
+     * Bar colour of a bid or ask size: with relative size colours, shaded from a quarter of
+     * the way from the column background up to the full bar colour at the highlight size.
+     */
+    private Color sizeColor(int size, DomFrame frame, boolean isBid) {
+        if (!settings.relativeSizeColors)
+            return isBid ? settings.colBidBar : settings.colAskBar;
+        Color[] colors = isBid ? bidSizeColors : askSizeColors;
+        return colors[rampIndex(size, frame.depthHighlight, SIZE_RAMP_FLOOR)];
+    }
 
-            // ASK RELOAD
-            drawReloadIfRelevant(g2, currentSnapshot.askReloads().get(price), price, bestAsk, false, x6, y, wReload,
-                    rowHeight);
+    /** Leaves the strip to be repainted whole from a frame carrying all its columns. */
+    private void invalidateHeatmap() {
+        heatmapPainted = -1;
+        requestHeatmapFrom(0);
+    }
 
-            // 5M TRADE COUNT
-            if (currentSnapshot.rollingFp().containsKey(price)) {
-                drawFootprintCell(g2, x7, y, wFP_Trd, rowHeight, currentSnapshot.rollingFp().get(price), true);
-            }
+    private void requestHeatmapFrom(long first) {
+        if (heatmapFrom == first)
+            return;
+        heatmapFrom = first;
+        viewChanged();
+    }
 
-            // VOLUME (session total with histogram)
-            if (currentSnapshot.sessionFp().containsKey(price)) {
-                drawVolumeCell(g2, x8, y, wFP_Vol, rowHeight, currentSnapshot.sessionFp().get(price), maxVolume);
-            }
+    /** Restores the strip's band {@code [top, bottom)} to background. */
+    private void clearHeatmap(Graphics2D g2, int top, int bottom) {
+        if (wHeat == 0)
+            return;
+        g2.drawImage(staticLayer, 0, top, wHeat, bottom, 0, top, wHeat, bottom, null);
+        invalidateHeatmap();
+    }
 
-            // DELTA (session delta with gradient histogram)
-            if (currentSnapshot.sessionFp().containsKey(price)) {
-                drawDeltaCell(g2, x9, y, wDelta, rowHeight, currentSnapshot.sessionFp().get(price), maxDelta);
-            }
+    /** Whether {@code price} renders differently in {@code next} than in {@code previous}. */
+    private static boolean rowChanged(DomFrame previous, DomFrame next, int price) {
+        if ((price == previous.lastTradePrice) != (price == next.lastTradePrice))
+            return true;
+        if ((price == previous.pocPrice) != (price == next.pocPrice)
+                || previous.inValueArea(price) != next.inValueArea(price)
+                || previous.vwapMark(price) != next.vwapMark(price))
+            return true;
+        int a = previous.rowOf(price);
+        int b = next.rowOf(price);
+        if (a < 0 || b < 0)
+            return a != b;
+        if (isReloadRelevant(price, previous.bestBid, true) != isReloadRelevant(price, next.bestBid, true)
+                || isReloadRelevant(price, previous.bestAsk, false) != isReloadRelevant(price, next.bestAsk, false))
+            return true;
+        boolean traded = next.sessionAskVol[b] != 0 || next.sessionBidVol[b] != 0;
+        if (traded && (previous.maxVolume != next.maxVolume || previous.maxDelta != next.maxDelta))
+            return true;
+        boolean booked = next.bidSize[b] != 0 || next.askSize[b] != 0;
+        if (booked && previous.depthHighlight != next.depthHighlight)
+            return true;
+        return previous.bidSize[a] != next.bidSize[b]
+                || previous.askSize[a] != next.askSize[b]
+                || previous.bidReload[a] != next.bidReload[b]
+                || previous.askReload[a] != next.askReload[b]
+                || previous.bidIceberg[a] != next.bidIceberg[b]
+                || previous.askIceberg[a] != next.askIceberg[b]
+                || previous.absorption[a] != next.absorption[b]
+                || previous.velocity[a] != next.velocity[b]
+                || previous.sessionAskVol[a] != next.sessionAskVol[b]
+                || previous.sessionBidVol[a] != next.sessionBidVol[b]
+                || previous.rollingAskVol[a] != next.rollingAskVol[b]
+                || previous.rollingBidVol[a] != next.rollingBidVol[b]
+                || previous.rollingAskCnt[a] != next.rollingAskCnt[b]
+                || previous.rollingBidCnt[a] != next.rollingBidCnt[b];
+    }
+
+    /** Whether the Cum cell of {@code price}, in a row {@link #rowChanged} left alone, needs redrawing. */
+    private static boolean cumChanged(DomFrame previous, DomFrame next, int price) {
+        int a = previous.rowOf(price);
+        int b = next.rowOf(price);
+        return a >= 0 && b >= 0
+                && (previous.cumBidSize[a] != next.cumBidSize[b] || previous.cumAskSize[a] != next.cumAskSize[b]);
+    }
+
+    /** Whether the stats strip shows anything different for {@code next} than for {@code previous}. */
+    private static boolean sessionStatsChanged(DomFrame previous, DomFrame next) {
+        return previous.cumulativeDelta != next.cumulativeDelta
+                || previous.vwapPrice != next.vwapPrice
+                || previous.vwapSigmaTicks != next.vwapSigmaTicks
+                || previous.barDeltaOpen != next.barDeltaOpen
+                || previous.barDeltaHigh != next.barDeltaHigh
+                || previous.barDeltaLow != next.barDeltaLow
+                || previous.barDeltaClose != next.barDeltaClose;
+    }
+
+    private void markDirty(int top, int bottom) {
+        dirtyTop = Math.min(dirtyTop, top);
+        dirtyBottom = Math.max(dirtyBottom, bottom);
+    }
+
+    private static void applyRenderingHints(Graphics2D g2, int quality) {
+        boolean antialias = quality < RenderQualityGovernor.NO_ANTIALIAS;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                antialias ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                antialias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
+    // --- LAYOUT ---
+
+    private void layoutColumns(int w) {
+        headerHeight = HEADER_HEIGHT + (settings.showSessionStats ? STATS_STRIP_HEIGHT : 0);
+        wHeat = settings.heatmapEnabled ? settings.heatmapColumns * HEATMAP_COLUMN_WIDTH : 0;
+        wCum = settings.showCumulativeDepth ? W_CUM : 0;
+        int fixedWidth = wHeat + W_PRICE + W_VEL + (W_RELOAD * 2) + (W_QTY * 2) + wCum;
+        int remaining = Math.max(0, w - fixedWidth);
+
+        wFP_5m = (int) (remaining * 0.22);
+        wFP_Trd = (int) (remaining * 0.18);
+        wFP_Vol = (int) (remaining * 0.32);
+        wDelta = remaining - wFP_5m - wFP_Trd - wFP_Vol;
+
+        x1 = wHeat; // Price, right of the heatmap strip
+        xVel = x1 + W_PRICE; // Velocity
+        x2 = xVel + W_VEL; // Bid Reload
+        x3 = x2 + W_RELOAD; // Bid Qty
+        x4 = x3 + W_QTY; // 5m Vol
+        x5 = x4 + wFP_5m; // Ask Qty
+        x6 = x5 + W_QTY; // Ask Reload
+        x7 = x6 + W_RELOAD; // 5m Trades
+        x8 = x7 + wFP_Trd; // Volume
+        x9 = x8 + wFP_Vol; // Delta
+        xCum = x9 + wDelta; // Cumulative depth, when shown
+
+        int columns = wCum > 0 ? 10 : 9;
+        if (gridXs.length != columns)
+            gridXs = new int[columns];
+        gridXs[0] = xVel;
+        gridXs[1] = x2;
+        gridXs[2] = x3;
+        gridXs[3] = x4;
+        gridXs[4] = x5;
+        gridXs[5] = x6;
+        gridXs[6] = x7;
+        gridXs[7] = x8;
+        gridXs[8] = x9;
+        if (wCum > 0)
+            gridXs[9] = xCum;
+    }
+
+    /** Backgrounds, column strips, headers and grid: everything that does not depend on data. */
+    private void renderStaticLayer(int w, int h) {
+        Graphics2D g2 = staticLayer.createGraphics();
+        try {
+            applyRenderingHints(g2, quality);
+
+            // 1. GLOBAL BACKGROUND
+            g2.setColor(settings.colBg);
+            g2.fillRect(0, headerHeight, w, h - headerHeight);
 
-            // Grid Line
+            // 2. COLUMN STRIPS
+            g2.setColor(settings.colPriceBg);
+            g2.fillRect(x1, headerHeight, W_PRICE, h - headerHeight);
+
+            g2.setColor(settings.colBidColBg);
+            g2.fillRect(x3, headerHeight, W_QTY, h - headerHeight);
+
+            g2.setColor(settings.colAskColBg);
+            g2.fillRect(x5, headerHeight, W_QTY, h - headerHeight);
+
+            // --- HEADERS ---
+            drawHeaders(g2, w);
+
+            // Row grid lines, not across the heatmap
+            int rowsVisible = Math.max(1, (h - headerHeight) / rowHeight);
             g2.setColor(settings.colGrid);
-            g2.drawLine(0, y + rowHeight, w, y + rowHeight);
+            for (int i = 0; i < rowsVisible; i++) {
+                int y = headerHeight + ((i + 1) * rowHeight);
+                g2.drawLine(x1, y, w, y);
+            }
+
+            // Vertical Grid Lines, not across the stats strip
+            drawGridLines(g2, 0, HEADER_HEIGHT);
+            drawGridLines(g2, headerHeight, h);
+        } finally {
+            g2.dispose();
         }
+    }
+
+    // --- PAINT CACHES ---
 
-        // Vertical Grid Lines
-        drawGridLines(g2, h, xVel, x2, x3, x4, x5, x6, x7, x8, x9);
+    private void validatePaintCaches(Graphics2D g2) {
+        int version = settings.getVersion();
+        if (version == paintCacheVersion && rowMetrics != null)
+            return;
+        paintCacheVersion = version;
+
+        // Metrics are taken from the painting Graphics, after its text hints are set
+        FontMetrics statusMetrics = g2.getFontMetrics(STATUS_FONT);
+        rowMetrics = statusMetrics;
+        separatorWidth = statusMetrics.stringWidth(FP_SEPARATOR);
+        dropLabelWidth = statusMetrics.stringWidth(DROP_LABEL);
+        headerMetrics = g2.getFontMetrics(HEADER_FONT);
+
+        rollingVolHeader = settings.footprintResetMinutes + "m Vol";
+        rollingTrdHeader = settings.footprintResetMinutes + "m Trd";
+        readoutLabel = settings.depthReadoutTicks + "t";
+        int barSeconds = settings.deltaBarSeconds;
+        deltaBarLabel = "Bar \u0394" + (barSeconds % 60 == 0 ? barSeconds / 60 + "m " : barSeconds + "s ");
+        deltaPosFade = fade(settings.colDeltaPos);
+        deltaNegFade = fade(settings.colDeltaNeg);
+        deltaPosFlat = withAlpha(settings.colDeltaPos, 120);
+        deltaNegFlat = withAlpha(settings.colDeltaNeg, 120);
+        deltaPosRamp = RasterCanvas.ramp(deltaPosFade.getRGB(), settings.colDeltaPos.getRGB());
+        deltaNegRamp = RasterCanvas.ramp(deltaNegFade.getRGB(), settings.colDeltaNeg.getRGB());
+        heatColors = colorRamp(settings.colBg, settings.colHeatmap);
+        bidSizeColors = colorRamp(settings.colBidColBg, settings.colBidBar);
+        askSizeColors = colorRamp(settings.colAskColBg, settings.colAskBar);
+        bidAbsorptionColors = colorRamp(settings.colBidColBg, settings.colAbsorption);
+        askAbsorptionColors = colorRamp(settings.colAskColBg, settings.colAbsorption);
+        Arrays.fill(priceLabels, null);
+    }
+
+    /** Opaque colours from {@code from} to {@code to}, {@link RasterCanvas#RAMP_SIZE} of them. */
+    private static Color[] colorRamp(Color from, Color to) {
+        int[] ramp = RasterCanvas.ramp(from.getRGB(), to.getRGB());
+        Color[] colors = new Color[ramp.length];
+        for (int i = 0; i < ramp.length; i++)
+            colors[i] = new Color(ramp[i]);
+        return colors;
+    }
+
+    private static Color fade(Color base) {
+        return withAlpha(base, 40);
+    }
+
+    private static Color withAlpha(Color base, int alpha) {
+        return new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+    }
+
+    /** Cache slot holding the label and width for {@code price}. */
+    private int priceLabelSlot(int price) {
+        int slot = price & (PRICE_LABEL_SLOTS - 1);
+        if (priceLabels[slot] == null || priceLabelTicks[slot] != price) {
+            priceLabelTicks[slot] = price;
+            priceLabels[slot] = formatPrice(price);
+            priceLabelWidths[slot] = rowMetrics.stringWidth(priceLabels[slot]);
+        }
+        return slot;
     }
 
     // --- DRAW HELPERS ---
 
-    private void drawStatusIndicator(Graphics2D g2) {
-        g2.setFont(new Font("SansSerif", Font.BOLD, 10));
+    /** Status line: recentre mode, quality level, dropped events and the N-level depth readout (-1 for none). */
+    private void drawStatusIndicator(Graphics2D g2, long bidReadout, long askReadout) {
+        g2.setFont(STATUS_FONT);
         if (settings.autoRecenterEnabled) {
             g2.setColor(Color.GREEN);
             g2.drawString("[A]", 2, 10);
@@ -275,53 +930,97 @@ public class JigsawDomPanel extends JPanel {
             g2.setColor(Color.GRAY);
             g2.drawString("[M]", 2, 10);
         }
+        int x = 24;
+        String qualityLabel = governor.label();
+        if (qualityLabel != null) {
+            g2.setColor(Color.ORANGE);
+            g2.drawString(qualityLabel, x, 10);
+            x += rowMetrics.stringWidth(qualityLabel) + 6;
+        }
+        if (droppedEvents > 0) {
+            g2.setColor(settings.colReloadNeg);
+            g2.drawString(DROP_LABEL, x, 10);
+            painter.text.draw(g2, droppedEvents, false, x + dropLabelWidth, 10);
+            x += dropLabelWidth + painter.text.width(droppedEvents, false) + 6;
+        }
+        if (bidReadout >= 0) {
+            g2.setColor(settings.colHeaderText);
+            g2.drawString(readoutLabel, x, 10);
+            x += rowMetrics.stringWidth(readoutLabel) + 4;
+            g2.setColor(settings.colBidBar);
+            painter.text.draw(g2, bidReadout, false, x, 10);
+            x += painter.text.width(bidReadout, false) + 4;
+            g2.setColor(settings.colAskBar);
+            painter.text.draw(g2, askReadout, false, x, 10);
+        }
     }
 
-    private void drawReloadIfRelevant(Graphics2D g2, Integer val, int price, int bestPrice, boolean isBid, int x, int y,
-            int w, int h) {
-        boolean isRelevant = false;
-        if (isBid && bestPrice != Integer.MIN_VALUE) {
-            if (price <= bestPrice && price >= (bestPrice - 10))
-                isRelevant = true;
-        } else if (!isBid && bestPrice != Integer.MAX_VALUE) {
-            if (price >= bestPrice && price <= (bestPrice + 10))
-                isRelevant = true;
+    /** Stats strip: session cumulative delta, VWAP and its standard deviation in ticks, and the current delta bar. */
+    private void drawSessionStats(Graphics2D g2, DomFrame frame) {
+        g2.setFont(STATUS_FONT);
+        int y = HEADER_HEIGHT + STATS_STRIP_HEIGHT - 3;
+        int x = drawStatsLabel(g2, CUM_DELTA_LABEL, 4, y);
+        x = drawDeltaStat(g2, frame.cumulativeDelta, x, y) + STATS_GAP;
+        if (frame.vwapPrice != 0) {
+            x = drawStatsLabel(g2, VWAP_LABEL, x, y);
+            int slot = priceLabelSlot(frame.vwapPrice);
+            g2.setColor(settings.colVwap);
+            g2.drawString(priceLabels[slot], x, y);
+            x = drawStatsLabel(g2, SIGMA_LABEL, x + priceLabelWidths[slot] + 4, y);
+            g2.setColor(settings.colVwapBand);
+            painter.text.draw(g2, frame.vwapSigmaTicks, false, x, y);
+            x += painter.text.width(frame.vwapSigmaTicks, false) + STATS_GAP;
         }
+        x = drawStatsLabel(g2, deltaBarLabel, x, y);
+        x = drawDeltaStat(g2, frame.barDeltaOpen, drawStatsLabel(g2, BAR_OPEN_LABEL, x, y), y) + 6;
+        x = drawDeltaStat(g2, frame.barDeltaHigh, drawStatsLabel(g2, BAR_HIGH_LABEL, x, y), y) + 6;
+        x = drawDeltaStat(g2, frame.barDeltaLow, drawStatsLabel(g2, BAR_LOW_LABEL, x, y), y) + 6;
+        drawDeltaStat(g2, frame.barDeltaClose, drawStatsLabel(g2, BAR_CLOSE_LABEL, x, y), y);
+    }
 
-        if (isRelevant) {
-            drawReloadCell(g2, val != null ? val : 0, x, y, w, h);
-        }
+    /** Draws a stats strip label and returns where its value starts. */
+    private int drawStatsLabel(Graphics2D g2, String label, int x, int y) {
+        g2.setColor(settings.colHeaderText);
+        g2.drawString(label, x, y);
+        return x + rowMetrics.stringWidth(label);
+    }
+
+    /** Draws a signed delta in the delta colours and returns where it ends. */
+    private int drawDeltaStat(Graphics2D g2, long delta, int x, int y) {
+        g2.setColor(delta >= 0 ? settings.colDeltaPos : settings.colDeltaNeg);
+        painter.text.draw(g2, delta, true, x, y);
+        return x + painter.text.width(delta, true);
+    }
+
+    /** Reloads are shown only within ten ticks of the best price on their side. */
+    private static boolean isReloadRelevant(int price, int bestPrice, boolean isBid) {
+        if (isBid && bestPrice != Integer.MIN_VALUE)
+            return price <= bestPrice && price >= (bestPrice - 10);
+        if (!isBid && bestPrice != Integer.MAX_VALUE)
+            return price >= bestPrice && price <= (bestPrice + 10);
+        return false;
     }
 
-    private void drawHeaders(Graphics2D g2, int w, int x1, int xVel, int x2, int x3, int x4, int x5, int x6, int x7,
-            int x8, int x9,
-            int wPrice, int wVel, int wReload, int wQty, int wFP_5m, int wFP_Trd, int wFP_Vol, int wDelta) {
+    private void drawHeaders(Graphics2D g2, int w) {
         g2.setColor(settings.colHeaderBg);
-        g2.fillRect(0, 0, w, HEADER_HEIGHT);
+        g2.fillRect(0, 0, w, headerHeight); // the stats strip included
         g2.setColor(settings.colHeaderText);
-        g2.setFont(new Font("SansSerif", Font.PLAIN, 10));
-
-        drawHeaderString(g2, "Price", x1, wPrice);
-        drawHeaderString(g2, "Vel", xVel, wVel);
-        drawHeaderString(g2, "B S/P", x2, wReload);
-        drawHeaderString(g2, "Bid", x3, wQty);
-        drawHeaderString(g2, "5m Vol", x4, wFP_5m);
-        drawHeaderString(g2, "Ask", x5, wQty);
-        drawHeaderString(g2, "A S/P", x6, wReload);
-        drawHeaderString(g2, "5m Trd", x7, wFP_Trd);
+        g2.setFont(HEADER_FONT);
+
+        if (wHeat > 0)
+            drawHeaderString(g2, "Depth", 0, wHeat);
+        drawHeaderString(g2, "Price", x1, W_PRICE);
+        drawHeaderString(g2, "Vel", xVel, W_VEL);
+        drawHeaderString(g2, "B S/P", x2, W_RELOAD);
+        drawHeaderString(g2, "Bid", x3, W_QTY);
+        drawHeaderString(g2, rollingVolHeader, x4, wFP_5m);
+        drawHeaderString(g2, "Ask", x5, W_QTY);
+        drawHeaderString(g2, "A S/P", x6, W_RELOAD);
+        drawHeaderString(g2, rollingTrdHeader, x7, wFP_Trd);
         drawHeaderString(g2, "Volume", x8, wFP_Vol);
         drawHeaderString(g2, "Delta", x9, wDelta);
-    }
-
-    private void drawPriceCell(Graphics2D g2, int price, int x, int y, int w, int h) {
-        if (price == currentSnapshot.lastTradePrice()) {
-            g2.setColor(settings.colLtpBg);
-            g2.fillRect(x, y, w, h);
-            g2.setColor(settings.colLtpText);
-        }
-
-        g2.setColor(settings.colPriceText);
-        drawCenteredString(g2, formatPrice(price), x, y, w, h);
+        if (wCum > 0)
+            drawHeaderString(g2, "Cum", xCum, wCum);
     }
 
     private String formatPrice(int price) {
@@ -332,112 +1031,316 @@ public class JigsawDomPanel extends JPanel {
         return String.format("%." + dp + "f", price * pips);
     }
 
-    private void drawIcebergDot(Graphics2D g2, int x, int y, int cellWidth, int cellHeight, boolean isLeftSide) {
-        int dotDiameter = Math.max(6, cellHeight / 3);
-        int dotY = y + (cellHeight - dotDiameter) / 2;
-        int dotX = isLeftSide ? x + 2 : x + cellWidth - dotDiameter - 2;
-        g2.setColor(settings.colIcebergDot);
-        g2.fillOval(dotX, dotY, dotDiameter, dotDiameter);
+    /** Vertical grid lines over the band {@code [top, bottom]}. */
+    private void drawGridLines(Graphics2D g2, int top, int bottom) {
+        g2.setColor(settings.colGrid);
+        for (int x : gridXs)
+            g2.drawLine(x, top, x, bottom);
     }
 
-    private void drawReloadCell(Graphics2D g2, int val, int x, int y, int w, int h) {
-        String text = (val > 0 ? "+" : "") + val;
-        Color color = val > 0 ? settings.colReloadPos : val < 0 ? settings.colReloadNeg : Color.GRAY;
-        g2.setColor(color);
-        drawCenteredString(g2, text, x, y, w, h);
+    private void drawHeaderString(Graphics2D g, String text, int x, int w) {
+        g.drawString(text, x + (w - headerMetrics.stringWidth(text)) / 2, 16);
     }
 
-    private void drawFootprintCell(Graphics2D g, int x, int y, int w, int h, DomModel.FootprintData fp,
-            boolean useCount) {
-        if (useCount) {
-            int delta = fp.askCnt - fp.bidCnt;
-            String deltaStr = (delta > 0 ? "+" : "") + delta;
-            g.setColor(settings.colTextTrdCount);
-            drawCenteredString(g, deltaStr, x, y, w, h);
-            return;
+    // --- ROW PAINTING ---
+
+    /**
+     * Draws data rows over the static layer. Holds the caches drawing a row writes to, so
+     * each thread drawing rows has its own: one for the EDT and one per parallel tile.
+     */
+    private final class RowPainter {
+        private NumberText text;
+        private RasterCanvas raster; // the image drawn into, when bars are raster
+        private GradientPaint[] deltaPosGradients; // by bar width, for the delta column at deltaGradientX
+        private GradientPaint[] deltaNegGradients;
+        private int deltaGradientX = -1;
+        private int cacheVersion = -1;
+
+        /** Catches up with the panel's paint caches; on the EDT. */
+        void validate() {
+            if (cacheVersion == paintCacheVersion && text != null)
+                return;
+            cacheVersion = paintCacheVersion;
+            text = new NumberText(rowMetrics, NUMBER_CACHE_SIZE);
+            deltaPosGradients = null;
+            deltaNegGradients = null;
         }
 
-        String sAsk = String.valueOf(fp.askVol);
-        String sBid = String.valueOf(fp.bidVol);
-        String xStr = " x ";
-        String text = sBid + xStr + sAsk;
+        /** Draws the row showing {@code price} at {@code y} over a clean band of the static layer. */
+        void paintRow(Graphics2D g2, DomFrame frame, int price, int y) {
+            restoreStatic(g2, x1, y, y + rowHeight);
+            drawRow(g2, frame, price, y);
+            drawGridLines(g2, y, y + rowHeight);
+        }
 
-        FontMetrics fm = g.getFontMetrics();
-        int wBid = fm.stringWidth(sBid);
-        int wX = fm.stringWidth(xStr);
-        int startX = x + (w - fm.stringWidth(text)) / 2;
-        int textY = y + (h / 2) + (fm.getAscent() / 2) - 1;
+        /** Redraws only the Cum cell of the row showing {@code price} at {@code y}. */
+        void paintCumCell(Graphics2D g2, DomFrame frame, int price, int y) {
+            restoreStatic(g2, xCum, y, y + rowHeight);
+            drawCumCell(g2, frame, frame.rowOf(price), y);
+            g2.setColor(settings.colGrid);
+            g2.drawLine(xCum, y, xCum, y + rowHeight);
+        }
 
-        g.setColor(settings.colFpBid);
-        g.drawString(sBid, startX, textY);
-        g.setColor(settings.colFpX);
-        g.drawString(xStr, startX + wBid, textY);
-        g.setColor(settings.colFpAsk);
-        g.drawString(sAsk, startX + wBid + wX, textY);
-    }
+        /** Copies the static layer's band {@code [top, bottom)}, right of {@code left}, over the image drawn into. */
+        void restoreStatic(Graphics2D g2, int left, int top, int bottom) {
+            int w = staticLayer.getWidth();
+            if (raster != null) {
+                raster.copyRect(staticRaster, left, w, top, bottom);
+                return;
+            }
+            g2.drawImage(staticLayer, left, top, w, bottom, left, top, w, bottom, null);
+        }
 
-    private void drawGridLines(Graphics2D g2, int h, int... xs) {
-        g2.setColor(settings.colGrid);
-        for (int x : xs)
-            g2.drawLine(x, 0, x, h);
-    }
+        private void drawRow(Graphics2D g2, DomFrame frame, int price, int y) {
+            // PRICE
+            drawPriceCell(g2, frame, price, x1, y, W_PRICE, rowHeight);
 
-    private void drawHeaderString(Graphics2D g, String text, int x, int w) {
-        FontMetrics fm = g.getFontMetrics();
-        g.drawString(text, x + (w - fm.stringWidth(text)) / 2, 16);
-    }
+            int r = frame.rowOf(price);
+            if (r < 0)
+                return;
+            boolean secondary = quality < RenderQualityGovernor.PRIMARY_COLUMNS;
 
-    private void drawCenteredString(Graphics g, String text, int x, int y, int w, int h) {
-        FontMetrics fm = g.getFontMetrics();
-        int textY = y + (h / 2) + (fm.getAscent() / 2) - 1;
-        g.drawString(text, x + (w - fm.stringWidth(text)) / 2, textY);
-    }
+            // VELOCITY
+            if (secondary && frame.velocity[r] != 0) {
+                g2.setColor(settings.colVelocityText);
+                text.drawCentered(g2, frame.velocity[r], false, xVel, y, W_VEL, rowHeight);
+            }
 
-    private void drawDeltaCell(Graphics2D g, int x, int y, int w, int h,
-            DomModel.FootprintData fp, long maxDelta) {
-        long delta = fp.askVol - fp.bidVol;
-        if (delta == 0)
-            return;
+            // BID RELOAD
+            if (secondary)
+                drawReloadIfRelevant(g2, frame.bidReload[r], price, frame.bestBid, true, x2, y, W_RELOAD, rowHeight);
+
+            // BID QTY
+            if (frame.bidSize[r] != 0) {
+                int val = frame.bidSize[r];
+                fillBar(g2, x3, y, W_QTY, rowHeight, sizeColor(val, frame, true));
 
-        boolean positive = delta > 0;
-        double ratio = (double) Math.abs(delta) / maxDelta;
-        int barWidth = Math.max(1, (int) (w * ratio));
+                // Text Color Logic: Highlight if significant
+                if (val >= frame.depthHighlight) {
+                    g2.setColor(settings.colTextHighlight); // Yellow
+                } else {
+                    g2.setColor(settings.colTextOnBar); // White
+                }
+                if (settings.icebergDetectionEnabled && frame.bidIceberg[r] != 0)
+                    drawIcebergCell(g2, val, frame.bidIceberg[r], x3, y, W_QTY, rowHeight, true);
+                else
+                    text.drawCentered(g2, val, false, x3, y, W_QTY, rowHeight);
+            }
+            if (frame.absorption[r] > 0)
+                drawAbsorption(g2, x3, y, W_QTY, rowHeight, bidAbsorptionColors, frame.absorption[r]);
 
-        // Gradient: transparent edge -> full color
-        Color baseColor = positive ? settings.colDeltaPos : settings.colDeltaNeg;
-        Color fadeColor = new Color(baseColor.getRed(), baseColor.getGreen(), baseColor.getBlue(), 40);
+            boolean rollingTraded = secondary && (frame.rollingAskCnt[r] != 0 || frame.rollingBidCnt[r] != 0
+                    || frame.rollingAskVol[r] != 0 || frame.rollingBidVol[r] != 0);
 
-        // Bar grows from left; gradient fades from left (transparent) to right (solid)
-        Paint oldPaint = g.getPaint();
-        g.setPaint(new GradientPaint(x, y, fadeColor, x + barWidth, y, baseColor));
-        g.fillRect(x, y, barWidth, h);
-        g.setPaint(oldPaint);
+            // 5M VOL (Footprint)
+            if (rollingTraded) {
+                drawFootprintCell(g2, x4, y, wFP_5m, rowHeight, frame, r, false);
+            }
 
-        // Delta text, right-aligned
-        String text = (positive ? "+" : "") + delta;
-        g.setColor(baseColor);
-        FontMetrics fm = g.getFontMetrics();
-        int textY = y + (h / 2) + (fm.getAscent() / 2) - 1;
-        g.drawString(text, x + w - fm.stringWidth(text) - 4, textY);
-    }
+            // ASK QTY
+            if (frame.askSize[r] != 0) {
+                int val = frame.askSize[r];
+                fillBar(g2, x5, y, W_QTY, rowHeight, sizeColor(val, frame, false));
 
-    private void drawVolumeCell(Graphics2D g, int x, int y, int w, int h,
-            DomModel.FootprintData fp, long maxVolume) {
-        long total = fp.askVol + fp.bidVol;
-        if (total <= 0)
-            return;
+                // Text Color Logic
+                if (val >= frame.depthHighlight) {
+                    g2.setColor(settings.colTextHighlight); // Yellow
+                } else {
+                    g2.setColor(settings.colTextOnBar); // White
+                }
+                if (settings.icebergDetectionEnabled && frame.askIceberg[r] != 0)
+                    drawIcebergCell(g2, val, frame.askIceberg[r], x5, y, W_QTY, rowHeight, false);
+                else
+                    text.drawCentered(g2, val, false, x5, y, W_QTY, rowHeight);
+            }
+            if (frame.absorption[r] < 0)
+                drawAbsorption(g2, x5, y, W_QTY, rowHeight, askAbsorptionColors, -frame.absorption[r]);
+
+            // ASK RELOAD
+            if (secondary)
+                drawReloadIfRelevant(g2, frame.askReload[r], price, frame.bestAsk, false, x6, y, W_RELOAD, rowHeight);
+
+            // 5M TRADE COUNT
+            if (rollingTraded) {
+                drawFootprintCell(g2, x7, y, wFP_Trd, rowHeight, frame, r, true);
+            }
+
+            // VOLUME (session total with histogram)
+            // DELTA (session delta with gradient histogram)
+            if (frame.sessionAskVol[r] != 0 || frame.sessionBidVol[r] != 0) {
+                drawVolumeCell(g2, x8, y, wFP_Vol, rowHeight, frame, price, r);
+                drawDeltaCell(g2, x9, y, wDelta, rowHeight, frame, r);
+            }
+            if (settings.showValueArea && frame.inValueArea(price))
+                fillBar(g2, x8, y, VALUE_AREA_MARK_WIDTH, rowHeight, settings.colValueArea);
+
+            // CUMULATIVE DEPTH (from the best price out to this one)
+            if (secondary && wCum > 0)
+                drawCumCell(g2, frame, r, y);
+        }
+
+        private void drawCumCell(Graphics2D g2, DomFrame frame, int r, int y) {
+            if (frame.cumBidSize[r] != 0) {
+                g2.setColor(settings.colBidBar);
+                text.drawRight(g2, frame.cumBidSize[r], false, xCum + wCum - 4, y, rowHeight);
+            } else if (frame.cumAskSize[r] != 0) {
+                g2.setColor(settings.colAskBar);
+                text.drawRight(g2, frame.cumAskSize[r], false, xCum + wCum - 4, y, rowHeight);
+            }
+        }
+
+        /** Left-to-right fade of the delta colour over {@code barWidth} pixels starting at {@code x}. */
+        private GradientPaint deltaGradient(boolean positive, int x, int barWidth, int columnWidth) {
+            if (x != deltaGradientX || deltaPosGradients == null || deltaPosGradients.length <= columnWidth) {
+                deltaGradientX = x;
+                deltaPosGradients = new GradientPaint[Math.max(2, columnWidth + 1)];
+                deltaNegGradients = new GradientPaint[deltaPosGradients.length];
+            }
+            Color baseColor = positive ? settings.colDeltaPos : settings.colDeltaNeg;
+            Color fadeColor = positive ? deltaPosFade : deltaNegFade;
+            GradientPaint[] cache = positive ? deltaPosGradients : deltaNegGradients;
+            if (barWidth >= cache.length)
+                return new GradientPaint(x, 0, fadeColor, x + barWidth, 0, baseColor);
+            if (cache[barWidth] == null)
+                cache[barWidth] = new GradientPaint(x, 0, fadeColor, x + barWidth, 0, baseColor);
+            return cache[barWidth];
+        }
+
+        private void drawReloadIfRelevant(Graphics2D g2, int val, int price, int bestPrice, boolean isBid, int x, int y,
+                int w, int h) {
+            if (isReloadRelevant(price, bestPrice, isBid)) {
+                drawReloadCell(g2, val, x, y, w, h);
+            }
+        }
 
-        // Histogram bar (grows from left)
-        double ratio = (double) total / maxVolume;
-        int barWidth = (int) (w * ratio);
-        g.setColor(settings.colVolumeBar);
-        g.fillRect(x, y, barWidth, h);
+        private void drawPriceCell(Graphics2D g2, DomFrame frame, int price, int x, int y, int w, int h) {
+            if (price == frame.lastTradePrice) {
+                fillBar(g2, x, y, w, h, settings.colLtpBg);
+                g2.setColor(settings.colLtpText);
+            }
+            if (settings.showVwap) {
+                int mark = frame.vwapMark(price);
+                if (mark != 0)
+                    fillBar(g2, x + w - VWAP_MARK_WIDTH, y, VWAP_MARK_WIDTH, h,
+                            mark == 2 ? settings.colVwap : settings.colVwapBand);
+            }
+
+            g2.setColor(settings.colPriceText);
+            int slot = priceLabelSlot(price);
+            int textY = y + (h / 2) + (text.metrics().getAscent() / 2) - 1;
+            g2.drawString(priceLabels[slot], x + (w - priceLabelWidths[slot]) / 2, textY);
+        }
 
-        // Total volume number, right-aligned
-        String text = String.valueOf(total);
-        FontMetrics fm = g.getFontMetrics();
-        int textY = y + (h / 2) + (fm.getAscent() / 2) - 1;
-        g.setColor(settings.colVolumeText);
-        g.drawString(text, x + w - fm.stringWidth(text) - 4, textY);
+        /**
+         * Bid/Ask cell of a detected iceberg: the estimated hidden size at the cell's outer
+         * edge in the iceberg colour, the visible size at the inner edge in the current colour.
+         */
+        private void drawIcebergCell(Graphics2D g2, int size, int hidden, int x, int y, int w, int h, boolean isBid) {
+            int textY = y + (h / 2) + (text.metrics().getAscent() / 2) - 1;
+            if (isBid) {
+                text.drawRight(g2, size, false, x + w - 2, y, h);
+                g2.setColor(settings.colIceberg);
+                text.draw(g2, hidden, false, x + 2, textY);
+            } else {
+                text.draw(g2, size, false, x + 2, textY);
+                g2.setColor(settings.colIceberg);
+                text.drawRight(g2, hidden, false, x + w - 2, y, h);
+            }
+        }
+
+        /** Outline of a Bid/Ask cell, fading with the absorption highlight's {@code strength}. */
+        private void drawAbsorption(Graphics2D g2, int x, int y, int w, int h, Color[] ramp, int strength) {
+            Color color = ramp[Math.min(AbsorptionDetector.LEVELS, strength) * (RasterCanvas.RAMP_SIZE - 1)
+                    / AbsorptionDetector.LEVELS];
+            int t = ABSORPTION_BORDER;
+            fillBar(g2, x, y, w, t, color);
+            fillBar(g2, x, y + h - t, w, t, color);
+            fillBar(g2, x, y + t, t, h - 2 * t, color);
+            fillBar(g2, x + w - t, y + t, t, h - 2 * t, color);
+        }
+
+        private void drawReloadCell(Graphics2D g2, int val, int x, int y, int w, int h) {
+            Color color = val > 0 ? settings.colReloadPos : val < 0 ? settings.colReloadNeg : Color.GRAY;
+            g2.setColor(color);
+            text.drawCentered(g2, val, true, x, y, w, h);
+        }
+
+        private void drawFootprintCell(Graphics2D g, int x, int y, int w, int h, DomFrame frame, int r,
+                boolean useCount) {
+            if (useCount) {
+                int delta = frame.rollingAskCnt[r] - frame.rollingBidCnt[r];
+                g.setColor(settings.colTextTrdCount);
+                text.drawCentered(g, delta, true, x, y, w, h);
+                return;
+            }
+
+            long ask = frame.rollingAskVol[r];
+            long bid = frame.rollingBidVol[r];
+            int wBid = text.width(bid, false);
+            int wAsk = text.width(ask, false);
+            int startX = x + (w - (wBid + separatorWidth + wAsk)) / 2;
+            int textY = y + (h / 2) + (text.metrics().getAscent() / 2) - 1;
+
+            g.setColor(settings.colFpBid);
+            text.draw(g, bid, false, startX, textY);
+            g.setColor(settings.colFpX);
+            g.drawString(FP_SEPARATOR, startX + wBid, textY);
+            g.setColor(settings.colFpAsk);
+            text.draw(g, ask, false, startX + wBid + separatorWidth, textY);
+        }
+
+        private void fillBar(Graphics2D g, int x, int y, int w, int h, Color color) {
+            if (raster != null) {
+                raster.fill(x, y, w, h, color.getRGB());
+            } else {
+                g.setColor(color);
+                g.fillRect(x, y, w, h);
+            }
+        }
+
+        private void drawDeltaCell(Graphics2D g, int x, int y, int w, int h,
+                DomFrame frame, int r) {
+            long delta = frame.sessionAskVol[r] - frame.sessionBidVol[r];
+            if (delta == 0)
+                return;
+
+            boolean positive = delta > 0;
+            double ratio = Math.min(1, (double) Math.abs(delta) / frame.maxDelta);
+            int barWidth = Math.max(1, (int) (w * ratio));
+
+            // Bar grows from left; gradient fades from left (transparent) to right (solid).
+            // The gradient is horizontal, so one cached paint per bar width serves every row.
+            if (quality >= RenderQualityGovernor.FLAT_BARS) {
+                fillBar(g, x, y, barWidth, h, positive ? deltaPosFlat : deltaNegFlat);
+            } else if (raster != null) {
+                raster.fillRamp(x, y, barWidth, h, positive ? deltaPosRamp : deltaNegRamp);
+            } else {
+                Paint oldPaint = g.getPaint();
+                g.setPaint(deltaGradient(positive, x, barWidth, w));
+                g.fillRect(x, y, barWidth, h);
+                g.setPaint(oldPaint);
+            }
+
+            // Delta text, right-aligned
+            g.setColor(positive ? settings.colDeltaPos : settings.colDeltaNeg);
+            text.drawRight(g, delta, true, x + w - 4, y, h);
+        }
+
+        private void drawVolumeCell(Graphics2D g, int x, int y, int w, int h,
+                DomFrame frame, int price, int r) {
+            long total = frame.sessionAskVol[r] + frame.sessionBidVol[r];
+            if (total <= 0)
+                return;
+
+            // Histogram bar (grows from left), scaled to the POC's volume
+            double ratio = Math.min(1, (double) total / frame.maxVolume);
+            int barWidth = (int) (w * ratio);
+            boolean poc = settings.showValueArea && price == frame.pocPrice;
+            fillBar(g, x, y, barWidth, h, poc ? settings.colPoc : settings.colVolumeBar);
+
+            // Total volume number, right-aligned
+            g.setColor(settings.colVolumeText);
+            text.drawRight(g, total, false, x + w - 4, y, h);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.shashin.bookmap.dom;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+
+/**
+ * Decimal text of the integers a DOM panel draws, with pixel widths, for one font.
+ * <p>
+ * Values below the cache size in magnitude are formatted once into cached strings with
+ * their measured widths, so painting them allocates nothing and needs no measuring.
+ * Larger values are formatted into a reusable char buffer and drawn with
+ * {@link Graphics#drawChars}, which does not allocate either. "Signed" text puts a
+ * {@code +} in front of positive values, as used for reloads and deltas.
+ * Confined to the painting thread.
+ */
+final class NumberText {
+
+    private final FontMetrics metrics;
+    private final int cached;
+    private final String[] plain;  // "n" for 0 <= n < cached
+    private final String[] plus;   // "+n"
+    private final String[] minus;  // "-n"
+    private final int[] plainWidth;
+    private final int[] plusWidth;
+    private final int[] minusWidth;
+    private final char[] scratch = new char[21]; // sign + 19 digits of a long, plus one spare
+
+    /** Text for {@code metrics}' font, caching values with magnitude below {@code cached}. */
+    NumberText(FontMetrics metrics, int cached) {
+        this.metrics = metrics;
+        this.cached = Math.max(1, cached);
+        this.plain = new String[this.cached];
+        this.plus = new String[this.cached];
+        this.minus = new String[this.cached];
+        this.plainWidth = new int[this.cached];
+        this.plusWidth = new int[this.cached];
+        this.minusWidth = new int[this.cached];
+    }
+
+    FontMetrics metrics() {
+        return metrics;
+    }
+
+    /** Pixel width of {@code value} as text. */
+    int width(long value, boolean signed) {
+        if (value > -cached && value < cached) {
+            int v = (int) value;
+            if (v < 0) {
+                fill(minus, minusWidth, -v, "-");
+                return minusWidth[-v];
+            }
+            if (signed && v > 0) {
+                fill(plus, plusWidth, v, "+");
+                return plusWidth[v];
+            }
+            fill(plain, plainWidth, v, "");
+            return plainWidth[v];
+        }
+        int start = format(value, signed);
+        return metrics.charsWidth(scratch, start, scratch.length - start);
+    }
+
+    /** Draws {@code value} with its left edge at {@code x} on {@code baseline}. */
+    void draw(Graphics g, long value, boolean signed, int x, int baseline) {
+        if (value > -cached && value < cached) {
+            int v = (int) value;
+            if (v < 0) {
+                fill(minus, minusWidth, -v, "-");
+                g.drawString(minus[-v], x, baseline);
+            } else if (signed && v > 0) {
+                fill(plus, plusWidth, v, "+");
+                g.drawString(plus[v], x, baseline);
+            } else {
+                fill(plain, plainWidth, v, "");
+                g.drawString(plain[v], x, baseline);
+            }
+            return;
+        }
+        int start = format(value, signed);
+        g.drawChars(scratch, start, scratch.length - start, x, baseline);
+    }
+
+    /** Draws {@code value} centred in the cell, with the panel's usual vertical centring. */
+    void drawCentered(Graphics g, long value, boolean signed, int x, int y, int w, int h) {
+        int textY = y + (h / 2) + (metrics.getAscent() / 2) - 1;
+        draw(g, value, signed, x + (w - width(value, signed)) / 2, textY);
+    }
+
+    /** Draws {@code value} right-aligned against {@code right}, vertically centred in the row. */
+    void drawRight(Graphics g, long value, boolean signed, int right, int y, int h) {
+        int textY = y + (h / 2) + (metrics.getAscent() / 2) - 1;
+        draw(g, value, signed, right - width(value, signed), textY);
+    }
+
+    /** Formats and measures slot {@code n} of a cache on first use. */
+    private void fill(String[] texts, int[] widths, int n, String prefix) {
+        if (texts[n] == null) {
+            texts[n] = prefix + n;
+            widths[n] = metrics.stringWidth(texts[n]);
+        }
+    }
+
+    /** Writes the text of {@code value} right-aligned into {@link #scratch}; returns its start index. */
+    private int format(long value, boolean signed) {
+        int i = scratch.length;
+        boolean negative = value < 0;
+        // Work on the negative magnitude so Long.MIN_VALUE needs no special case
+        long rest = negative ? value : -value;
+        do {
+            scratch[--i] = (char) ('0' - (rest % 10));
+            rest /= 10;
+        } while (rest != 0);
+        if (negative)
+            scratch[--i] = '-';
+        else if (signed && value > 0)
+            scratch[--i] = '+';
+        return i;
+    }
+}
@@ -0,0 +1,222 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Tick-indexed price ladder backed by lazily allocated primitive pages.
+ * <p>
+ * Prices are split into pages of {@link #PAGE_SIZE} ticks keyed by page number
+ * ({@code price >> PAGE_BITS}), so only the regions of the book that have
+ * actually been touched cost memory, even for instruments whose tick prices
+ * span millions of levels. A value of {@code 0} means "no level".
+ * <p>
+ * Every page carries an occupancy bitmap and the pages are indexed in price
+ * order (see {@link TickPageTable}), so the next populated level in either
+ * direction is found with a handful of bit scans, which keeps best-level
+ * queries constant time under book sweeps.
+ * <p>
+ * {@link #snapshot()} returns an immutable view in O(1); the ladder then copies
+ * a page only the first time it writes to it afterwards.
+ * Not thread-safe for writers: callers synchronize externally. Snapshots may be
+ * read from any thread.
+ */
+public final class PriceLadder {
+
+    public static final int PAGE_BITS = TickPage.BITS;
+    public static final int PAGE_SIZE = TickPage.SIZE;
+    private static final int PAGE_MASK = TickPage.MASK;
+
+    /** Receives one populated level during iteration. */
+    @FunctionalInterface
+    public interface LevelConsumer {
+        void accept(int price, int value);
+    }
+
+    private TickPageTable table;
+    private final boolean readOnly;
+
+    public PriceLadder() {
+        this(new TickPageTable(), false);
+    }
+
+    private PriceLadder(TickPageTable table, boolean readOnly) {
+        this.table = table;
+        this.readOnly = readOnly;
+    }
+
+    // --- READS ---
+
+    public int get(int price) {
+        TickPage page = table.find(price >> PAGE_BITS);
+        return page == null ? 0 : ((TickPage.Ints) page).values[price & PAGE_MASK];
+    }
+
+    public boolean contains(int price) {
+        return table.isOccupied(price);
+    }
+
+    public int size() {
+        return table.levelCount();
+    }
+
+    public boolean isEmpty() {
+        return table.levelCount() == 0;
+    }
+
+    /** Highest populated price, or {@link Integer#MIN_VALUE} when empty. */
+    public int highest() {
+        return table.nextAtOrBelow(Integer.MAX_VALUE);
+    }
+
+    /** Lowest populated price, or {@link Integer#MAX_VALUE} when empty. */
+    public int lowest() {
+        return table.nextAtOrAbove(Integer.MIN_VALUE);
+    }
+
+    /** Highest populated price {@code <= price}, or {@link Integer#MIN_VALUE} if there is none. */
+    public int nextAtOrBelow(int price) {
+        return table.nextAtOrBelow(price);
+    }
+
+    /** Lowest populated price {@code >= price}, or {@link Integer#MAX_VALUE} if there is none. */
+    public int nextAtOrAbove(int price) {
+        return table.nextAtOrAbove(price);
+    }
+
+    /**
+     * Writes up to {@code max} populated prices into {@code out}, starting at {@code from}
+     * (inclusive) and walking down when {@code descending}, up otherwise.
+     *
+     * @return the number of prices written
+     */
+    public int nextLevels(int from, boolean descending, int[] out, int max) {
+        int n = 0;
+        int limit = Math.min(max, out.length);
+        int price = from;
+        while (n < limit) {
+            int next = descending ? nextAtOrBelow(price) : nextAtOrAbove(price);
+            if (next == (descending ? Integer.MIN_VALUE : Integer.MAX_VALUE))
+                break;
+            out[n++] = next;
+            price = descending ? next - 1 : next + 1;
+        }
+        return n;
+    }
+
+    /** Visits every populated level in {@code [from, to]} in ascending price order. */
+    public void forEachInRange(int from, int to, LevelConsumer consumer) {
+        if (from > to)
+            return;
+        TickPageTable t = table;
+        int price = t.nextAtOrAbove(from);
+        while (price <= to && price != Integer.MAX_VALUE) {
+            TickPage.Ints page = (TickPage.Ints) t.find(price >> PAGE_BITS);
+            int offset = price & PAGE_MASK;
+            consumer.accept(price, page.values[offset]);
+            int next = offset == PAGE_MASK ? -1 : page.lowestAtOrAbove(offset + 1);
+            if (next >= 0) {
+                price = (price & ~PAGE_MASK) | next;
+            } else {
+                int pageEnd = price | PAGE_MASK;
+                if (pageEnd >= to || pageEnd == Integer.MAX_VALUE)
+                    return;
+                price = t.nextAtOrAbove(pageEnd + 1);
+            }
+        }
+    }
+
+    // --- WRITES ---
+
+    /** Stores {@code value} at {@code price} ({@code 0} removes the level) and returns the previous value. */
+    public int set(int price, int value) {
+        int old = get(price);
+        if (old == value)
+            return old;
+        TickPageTable t = writableTable();
+        int offset = price & PAGE_MASK;
+        TickPage.Ints page = (TickPage.Ints) t.pageForWrite(price >> PAGE_BITS, TickPage.Ints::new);
+        page.values[offset] = value;
+        if (old == 0)
+            t.occupy(page, offset);
+        else if (value == 0)
+            t.vacate(page, offset);
+        return old;
+    }
+
+    /** Adds {@code delta} to the level at {@code price} and returns the new value. */
+    public int add(int price, int delta) {
+        int result = get(price) + delta;
+        set(price, result);
+        return result;
+    }
+
+    public void remove(int price) {
+        set(price, 0);
+    }
+
+    /** Removes every level outside {@code [from, to]}. */
+    public void retainRange(int from, int to) {
+        TickPageTable t = table;
+        if (t.levelCount() == 0)
+            return;
+        int price = t.nextAtOrAbove(Integer.MIN_VALUE);
+        while (price < from) {
+            remove(price);
+            price = table.nextAtOrAbove(price + 1);
+        }
+        price = table.nextAtOrBelow(Integer.MAX_VALUE);
+        while (price > to && price != Integer.MIN_VALUE) {
+            remove(price);
+            price = table.nextAtOrBelow(price - 1);
+        }
+    }
+
+    public void clear() {
+        if (table.levelCount() > 0)
+            writableTable().clear();
+    }
+
+    // --- SERIALIZATION ---
+
+    /** Writes the populated levels as a count followed by ascending (price, value) pairs. */
+    public void writeTo(DataOutput out) throws IOException {
+        TickPageTable t = table;
+        int n = t.levelCount();
+        out.writeInt(n);
+        int price = t.nextAtOrAbove(Integer.MIN_VALUE);
+        for (int i = 0; i < n; i++) {
+            if (i > 0)
+                price = t.nextAtOrAbove(price + 1);
+            out.writeInt(price);
+            out.writeInt(get(price));
+        }
+    }
+
+    /** Replaces the contents with levels written by {@link #writeTo(DataOutput)}. */
+    public void readFrom(DataInput in) throws IOException {
+        clear();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            int price = in.readInt();
+            set(price, in.readInt());
+        }
+    }
+
+    // --- SNAPSHOTS ---
+
+    /** Immutable view of the current contents, sharing pages with this ladder. */
+    public PriceLadder snapshot() {
+        return readOnly ? this : new PriceLadder(table.freeze(), true);
+    }
+
+    private TickPageTable writableTable() {
+        if (readOnly)
+            throw new IllegalStateException("snapshot ladders are read-only");
+        TickPageTable t = table;
+        if (t.isFrozen())
+            table = t = t.writable();
+        return t;
+    }
+}
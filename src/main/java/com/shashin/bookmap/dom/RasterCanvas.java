@@ -0,0 +1,156 @@
+package com.shashin.bookmap.dom;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Direct writes into the {@code int[]} pixels of an {@code INT_RGB} or {@code INT_ARGB}
+ * image, for the flat shapes a DOM row is made of: solid bars, colour-ramp bars blended
+ * over what is already there, and whole-row copies and moves. No Graphics, paint context
+ * or composite is involved, so these cost a few array stores per pixel.
+ * <p>
+ * Taking the pixel array makes Java2D stop caching the image in video memory, which is
+ * why this is opt-in. Java2D drawing on the same image (text, ovals) still works and sees
+ * these writes. Confined to the painting thread.
+ * <p>
+ * Coordinates are those of the panel the image shows; an image holding a band of the
+ * panel (a parallel render tile) is created with the panel row of its first pixel row.
+ */
+final class RasterCanvas {
+
+    /** Entries in a colour ramp; see {@link #ramp}. */
+    static final int RAMP_SIZE = 256;
+
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int originY; // panel row of the first pixel row
+
+    RasterCanvas(BufferedImage image) {
+        this(image, 0);
+    }
+
+    RasterCanvas(BufferedImage image, int originY) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB)
+            throw new IllegalArgumentException("need an INT_RGB or INT_ARGB image, got type " + image.getType());
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.originY = originY;
+    }
+
+    /**
+     * Colour ramp from {@code from} to {@code to} (ARGB, alpha included) in
+     * {@link #RAMP_SIZE} steps, interpolated per channel like a horizontal GradientPaint.
+     */
+    static int[] ramp(int from, int to) {
+        int[] ramp = new int[RAMP_SIZE];
+        for (int i = 0; i < RAMP_SIZE; i++) {
+            int argb = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int a = (from >>> shift) & 0xFF;
+                int b = (to >>> shift) & 0xFF;
+                argb |= ((a + ((b - a) * i + (RAMP_SIZE - 1) / 2) / (RAMP_SIZE - 1)) & 0xFF) << shift;
+            }
+            ramp[i] = argb;
+        }
+        return ramp;
+    }
+
+    /** Fills a rectangle with {@code argb}, blending it over the pixels when not opaque. */
+    void fill(int x, int y, int w, int h, int argb) {
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(width, x + w);
+        int y0 = Math.max(0, y - originY);
+        int y1 = Math.min(height, y - originY + h);
+        if (x0 >= x1 || y0 >= y1)
+            return;
+        int alpha = argb >>> 24;
+        if (alpha == 0)
+            return;
+        for (int row = y0; row < y1; row++) {
+            int start = row * width;
+            if (alpha == 0xFF) {
+                Arrays.fill(pixels, start + x0, start + x1, argb & 0xFFFFFF);
+            } else {
+                for (int i = start + x0; i < start + x1; i++)
+                    pixels[i] = blend(argb, pixels[i]);
+            }
+        }
+    }
+
+    /**
+     * Fills a rectangle with {@code ramp} stretched across its width, from the first entry
+     * at the left edge towards the last at the right, blended over the pixels.
+     */
+    void fillRamp(int x, int y, int w, int h, int[] ramp) {
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(width, x + w);
+        int y0 = Math.max(0, y - originY);
+        int y1 = Math.min(height, y - originY + h);
+        if (x0 >= x1 || y0 >= y1)
+            return;
+        int last = ramp.length - 1;
+        for (int row = y0; row < y1; row++) {
+            int start = row * width;
+            for (int px = x0; px < x1; px++) {
+                // Sampled at the pixel's left edge, as Java2D's GradientPaint does
+                int index = (int) ((px - x) * (long) last / w);
+                int i = start + px;
+                pixels[i] = blend(ramp[index], pixels[i]);
+            }
+        }
+    }
+
+    /** Copies rows {@code [top, bottom)} of {@code source}, an image of the same width, over these rows. */
+    void copyRows(RasterCanvas source, int top, int bottom) {
+        copyRect(source, 0, width, top, bottom);
+    }
+
+    /** Copies columns {@code [left, right)} of rows {@code [top, bottom)} of {@code source}, an image of the same width. */
+    void copyRect(RasterCanvas source, int left, int right, int top, int bottom) {
+        int x0 = Math.max(0, left);
+        int x1 = Math.min(width, right);
+        int y0 = Math.max(top, Math.max(originY, source.originY));
+        int y1 = Math.min(bottom, Math.min(originY + height, source.originY + source.height));
+        if (y0 >= y1 || x0 >= x1 || source.width != width)
+            return;
+        int from = (y0 - source.originY) * width;
+        int to = (y0 - originY) * width;
+        if (x0 == 0 && x1 == width) {
+            System.arraycopy(source.pixels, from, pixels, to, (y1 - y0) * width);
+            return;
+        }
+        for (int row = y0; row < y1; row++, from += width, to += width)
+            System.arraycopy(source.pixels, from + x0, pixels, to + x0, x1 - x0);
+    }
+
+    /** Moves rows {@code [top, top + rows)} by {@code dy} rows; the rows moved away from keep their pixels. */
+    void moveRows(int top, int rows, int dy) {
+        int from = Math.max(0, top - originY);
+        int to = Math.min(height, top - originY + rows);
+        int dest = from + dy;
+        int count = to - from;
+        if (dest < 0) {
+            from -= dest;
+            count += dest;
+            dest = 0;
+        }
+        count = Math.min(count, height - dest);
+        if (count > 0)
+            System.arraycopy(pixels, from * width, pixels, dest * width, count * width); // handles the overlap
+    }
+
+    /** Source-over of non-premultiplied {@code argb} onto opaque {@code rgb}. */
+    private static int blend(int argb, int rgb) {
+        int a = argb >>> 24;
+        if (a == 0xFF)
+            return argb & 0xFFFFFF;
+        int inv = 0xFF - a;
+        int r = (((argb >> 16) & 0xFF) * a + ((rgb >> 16) & 0xFF) * inv + 127) / 255;
+        int g = (((argb >> 8) & 0xFF) * a + ((rgb >> 8) & 0xFF) * inv + 127) / 255;
+        int b = ((argb & 0xFF) * a + (rgb & 0xFF) * inv + 127) / 255;
+        return (r << 16) | (g << 8) | b;
+    }
+}
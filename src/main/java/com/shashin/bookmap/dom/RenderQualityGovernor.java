@@ -0,0 +1,110 @@
+package com.shashin.bookmap.dom;
+
+/**
+ * Per-panel render quality level, stepped down when the panel's frames get expensive or
+ * the EDT falls behind, and back up once both have stayed calm for a while.
+ * <p>
+ * Each level keeps the reductions of the levels before it: antialiasing off, flat delta
+ * bars, secondary columns (velocity, reloads, rolling footprint) left out, and finally
+ * half the active frame rate. Paint time and EDT latency are reported on the EDT, and
+ * idle stretches by the frame publisher; the level may be read from any thread.
+ */
+final class RenderQualityGovernor {
+
+    static final int FULL = 0;
+    static final int NO_ANTIALIAS = 1;
+    static final int FLAT_BARS = 2;
+    static final int PRIMARY_COLUMNS = 3;
+    static final int REDUCED_RATE = 4;
+
+    private static final String[] LABELS = { null, "Q1", "Q2", "Q3", "Q4" };
+
+    private static final long PAINT_BUDGET_NANOS = 4_000_000L;        // per frame rendered
+    private static final long LATENCY_BUDGET_NANOS = 25_000_000L;     // frame published -> delivered on the EDT
+    private static final long STEP_DOWN_HOLD_NANOS = 250_000_000L;    // lets the previous step take effect
+    private static final long STEP_UP_HOLD_NANOS = 3_000_000_000L;    // calm needed before stepping back up
+
+    private long paintNanos;   // smoothed
+    private long latencyNanos; // smoothed
+    private volatile int level = FULL;
+    private long lastChangeNanos = System.nanoTime();
+    private long calmSinceNanos = Long.MIN_VALUE;
+    private long overloadedSinceNanos = Long.MIN_VALUE;
+    private boolean pinned; // full quality regardless of load, for benchmarks
+
+    int level() {
+        return level;
+    }
+
+    /** Keeps full quality whatever the measurements say, so timings compare like with like. */
+    synchronized void pinFullQuality() {
+        pinned = true;
+        level = FULL;
+    }
+
+    /** Status-area label, or {@code null} at full quality. */
+    String label() {
+        return LABELS[level];
+    }
+
+    /** The frame rate to actually use for a configured active rate. */
+    int scaleFps(int fps) {
+        return level >= REDUCED_RATE ? Math.max(1, fps / 2) : fps;
+    }
+
+    synchronized void recordPaint(long nanos, long now) {
+        paintNanos += (nanos - paintNanos) / 8;
+        evaluate(now);
+    }
+
+    synchronized void recordLatency(long nanos, long now) {
+        latencyNanos += (nanos - latencyNanos) / 8;
+        evaluate(now);
+    }
+
+    /**
+     * Counts a stretch with nothing to render as calm, so a panel that went quiet below
+     * full quality climbs back without frames being built just to measure them.
+     *
+     * @return when to report again, or {@link Long#MAX_VALUE} once at full quality
+     */
+    synchronized long recordIdle(long now) {
+        if (pinned || level == FULL)
+            return Long.MAX_VALUE;
+        paintNanos = 0; // nothing is being painted or delivered
+        latencyNanos = 0;
+        evaluate(now);
+        return level == FULL ? Long.MAX_VALUE : Math.max(calmSinceNanos, lastChangeNanos) + STEP_UP_HOLD_NANOS;
+    }
+
+    private void evaluate(long now) {
+        if (pinned)
+            return;
+        boolean overloaded = paintNanos > PAINT_BUDGET_NANOS || latencyNanos > LATENCY_BUDGET_NANOS;
+        boolean calm = paintNanos < PAINT_BUDGET_NANOS / 2 && latencyNanos < LATENCY_BUDGET_NANOS / 2;
+        if (overloaded) {
+            // Only sustained pressure counts, not a single slow frame such as a resize
+            calmSinceNanos = Long.MIN_VALUE;
+            if (overloadedSinceNanos == Long.MIN_VALUE)
+                overloadedSinceNanos = now;
+            if (level < REDUCED_RATE && now - overloadedSinceNanos >= STEP_DOWN_HOLD_NANOS
+                    && now - lastChangeNanos >= STEP_DOWN_HOLD_NANOS) {
+                level++;
+                lastChangeNanos = now;
+            }
+        } else if (calm) {
+            overloadedSinceNanos = Long.MIN_VALUE;
+            if (calmSinceNanos == Long.MIN_VALUE)
+                calmSinceNanos = now;
+            if (level > FULL && now - calmSinceNanos >= STEP_UP_HOLD_NANOS
+                    && now - lastChangeNanos >= STEP_UP_HOLD_NANOS) {
+                level--;
+                lastChangeNanos = now;
+                calmSinceNanos = now;
+            }
+        } else {
+            calmSinceNanos = Long.MIN_VALUE;
+            overloadedSinceNanos = Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sliding-window footprints over a shared ring of per-price time buckets.
+ * <p>
+ * Trades are accumulated into {@link #BUCKET_MS} buckets, each holding a compact
+ * primitive table of the prices traded in that slice. Any number of {@link Window}s
+ * (1m, 5m, 15m, custom...) read from the same ring: each keeps only an aggregate
+ * {@link FootprintLadder}, adds new trades to it and subtracts a bucket's entries
+ * when that bucket slides out of its length. Values therefore move continuously
+ * instead of dropping to zero at a reset boundary, and memory is bounded by the ring.
+ * Not thread-safe: callers synchronize externally.
+ */
+public final class RollingFootprint {
+
+    public static final long BUCKET_MS = 5_000;
+
+    /** One window length over the shared buckets, with its running aggregate. */
+    public final class Window {
+        private int lengthBuckets;
+        private final FootprintLadder aggregate = new FootprintLadder();
+
+        private Window(long lengthMs) {
+            this.lengthBuckets = toBuckets(lengthMs);
+        }
+
+        /** Footprint of the trades inside this window. */
+        public FootprintLadder footprint() {
+            return aggregate;
+        }
+
+        public long getLengthMs() {
+            return lengthBuckets * BUCKET_MS;
+        }
+
+        /** Changes the length; the aggregate is rebuilt once from the retained buckets. */
+        public void setLengthMs(long lengthMs) {
+            int resized = toBuckets(lengthMs);
+            if (resized == lengthBuckets)
+                return;
+            lengthBuckets = resized;
+            rebuild();
+        }
+
+        private void rebuild() {
+            aggregate.clear();
+            if (headBucket == Long.MIN_VALUE)
+                return;
+            for (int i = 0; i < lengthBuckets; i++)
+                ring[slot(headBucket - i)].addTo(aggregate, 1);
+        }
+    }
+
+    /** Prices traded within one time slice, in insertion order plus a price -> entry hash. */
+    private static final class Bucket {
+        private static final int INITIAL_ENTRIES = 8;
+
+        int n = 0;
+        int[] prices = new int[INITIAL_ENTRIES];
+        long[] askVol = new long[INITIAL_ENTRIES];
+        long[] bidVol = new long[INITIAL_ENTRIES];
+        int[] askCnt = new int[INITIAL_ENTRIES];
+        int[] bidCnt = new int[INITIAL_ENTRIES];
+        int[] index = new int[INITIAL_ENTRIES * 2]; // entry + 1, 0 = empty
+
+        void add(int price, boolean isBuy, int size) {
+            int e = entryFor(price);
+            if (isBuy) {
+                askVol[e] += size;
+                askCnt[e]++;
+            } else {
+                bidVol[e] += size;
+                bidCnt[e]++;
+            }
+        }
+
+        /** Adds ({@code sign = 1}) or removes ({@code sign = -1}) this bucket's volume from {@code target}. */
+        void addTo(FootprintLadder target, int sign) {
+            for (int e = 0; e < n; e++)
+                target.applyLevel(prices[e], sign * askVol[e], sign * bidVol[e], sign * askCnt[e], sign * bidCnt[e]);
+        }
+
+        void reset() {
+            if (n == 0)
+                return;
+            Arrays.fill(askVol, 0, n, 0L);
+            Arrays.fill(bidVol, 0, n, 0L);
+            Arrays.fill(askCnt, 0, n, 0);
+            Arrays.fill(bidCnt, 0, n, 0);
+            Arrays.fill(index, 0);
+            n = 0;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(n);
+            for (int e = 0; e < n; e++) {
+                out.writeInt(prices[e]);
+                out.writeLong(askVol[e]);
+                out.writeLong(bidVol[e]);
+                out.writeInt(askCnt[e]);
+                out.writeInt(bidCnt[e]);
+            }
+        }
+
+        /** Reads entries written by {@link #writeTo(DataOutput)}; {@code keep = false} just skips them. */
+        void readFrom(DataInput in, boolean keep) throws IOException {
+            int entries = in.readInt();
+            for (int k = 0; k < entries; k++) {
+                int price = in.readInt();
+                long ask = in.readLong();
+                long bid = in.readLong();
+                int aCnt = in.readInt();
+                int bCnt = in.readInt();
+                if (!keep)
+                    continue;
+                int e = entryFor(price);
+                askVol[e] += ask;
+                bidVol[e] += bid;
+                askCnt[e] += aCnt;
+                bidCnt[e] += bCnt;
+            }
+        }
+
+        private int entryFor(int price) {
+            int mask = index.length - 1;
+            int slot = mix(price) & mask;
+            while (index[slot] != 0) {
+                int e = index[slot] - 1;
+                if (prices[e] == price)
+                    return e;
+                slot = (slot + 1) & mask;
+            }
+            if (n == prices.length) {
+                grow();
+                return entryFor(price);
+            }
+            prices[n] = price;
+            index[slot] = ++n;
+            return n - 1;
+        }
+
+        private void grow() {
+            int cap = prices.length * 2;
+            prices = Arrays.copyOf(prices, cap);
+            askVol = Arrays.copyOf(askVol, cap);
+            bidVol = Arrays.copyOf(bidVol, cap);
+            askCnt = Arrays.copyOf(askCnt, cap);
+            bidCnt = Arrays.copyOf(bidCnt, cap);
+            index = new int[cap * 2];
+            int mask = index.length - 1;
+            for (int e = 0; e < n; e++) {
+                int slot = mix(prices[e]) & mask;
+                while (index[slot] != 0)
+                    slot = (slot + 1) & mask;
+                index[slot] = e + 1;
+            }
+        }
+
+        private static int mix(int price) {
+            int h = price * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private final Bucket[] ring;
+    private final int capacity;
+    private Window[] windows = new Window[0];
+    private long headBucket = Long.MIN_VALUE; // absolute index (time / BUCKET_MS) of the newest bucket
+
+    public RollingFootprint(long maxWindowMs) {
+        this.capacity = (int) Math.max(1, (maxWindowMs + BUCKET_MS - 1) / BUCKET_MS);
+        this.ring = new Bucket[capacity];
+        for (int i = 0; i < capacity; i++)
+            ring[i] = new Bucket();
+    }
+
+    /** Opens another window over the shared buckets, pre-filled from the retained history. */
+    public Window openWindow(long lengthMs) {
+        Window window = new Window(lengthMs);
+        window.rebuild();
+        windows = Arrays.copyOf(windows, windows.length + 1);
+        windows[windows.length - 1] = window;
+        return window;
+    }
+
+    public void add(long now, int price, boolean isBuy, int size) {
+        advance(now);
+        ring[slot(headBucket)].add(price, isBuy, size);
+        for (Window window : windows)
+            window.aggregate.add(price, isBuy, size);
+    }
+
+    /**
+     * Slides every window to {@code now}, subtracting the buckets that fell out. Late
+     * timestamps count toward the newest bucket.
+     *
+     * @return whether any window lost traded volume
+     */
+    public boolean advance(long now) {
+        long bucket = now / BUCKET_MS;
+        if (headBucket == Long.MIN_VALUE) {
+            headBucket = bucket;
+            return false;
+        }
+        long steps = bucket - headBucket;
+        if (steps <= 0)
+            return false;
+        boolean changed = false;
+        if (steps >= capacity) {
+            for (Bucket b : ring)
+                b.reset();
+            for (Window window : windows) {
+                changed |= !window.aggregate.isEmpty();
+                window.aggregate.clear();
+            }
+            headBucket = bucket;
+            return changed;
+        }
+        for (long i = 0; i < steps; i++) {
+            headBucket++;
+            for (Window window : windows) {
+                Bucket expired = ring[slot(headBucket - window.lengthBuckets)];
+                changed |= expired.n > 0;
+                expired.addTo(window.aggregate, -1);
+            }
+            ring[slot(headBucket)].reset(); // oldest slot in the ring becomes the new head
+        }
+        return changed;
+    }
+
+    // --- SERIALIZATION ---
+
+    /** Writes the bucket ring, newest bucket first. Window lengths are configuration and are not written. */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(headBucket);
+        out.writeInt(headBucket == Long.MIN_VALUE ? 0 : capacity);
+        if (headBucket == Long.MIN_VALUE)
+            return;
+        for (int i = 0; i < capacity; i++)
+            ring[slot(headBucket - i)].writeTo(out);
+    }
+
+    /** Replaces the buckets with a ring written by {@link #writeTo(DataOutput)} and rebuilds every window. */
+    public void readFrom(DataInput in) throws IOException {
+        for (Bucket b : ring)
+            b.reset();
+        headBucket = in.readLong();
+        int stored = in.readInt();
+        for (int i = 0; i < stored; i++) {
+            boolean keep = i < capacity;
+            ring[slot(headBucket - (keep ? i : 0))].readFrom(in, keep);
+        }
+        for (Window window : windows)
+            window.rebuild();
+    }
+
+    private int toBuckets(long lengthMs) {
+        long n = (lengthMs + BUCKET_MS - 1) / BUCKET_MS;
+        return (int) Math.max(1, Math.min(capacity, n));
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) capacity);
+    }
+}
@@ -0,0 +1,166 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Constant-memory session accumulators fed by every trade: cumulative delta (buy minus sell
+ * volume), the volume-weighted average price with the volume-weighted standard deviation
+ * of traded prices around it, and the open/high/low/close of the cumulative delta over the
+ * current bar of a configurable length. No trade is kept.
+ * <p>
+ * The VWAP and deviation use West's weighted incremental update, which stays accurate
+ * where summing {@code price * price * size} would not. Bars are aligned to multiples of their
+ * length in trade time; a bar with no trades yet opens, and stays, at the cumulative delta
+ * it started from. Not thread-safe: callers synchronize externally.
+ */
+public final class SessionStats {
+
+    /** Published values; prices in ticks. */
+    public record Values(long cumulativeDelta, double vwap, double vwapSigma,
+                         long barStartMs, long barOpen, long barHigh, long barLow, long barClose) {}
+
+    private long cumulativeDelta;
+    private long volume;
+    private double vwap;        // weighted mean traded price
+    private double squaredDev;  // weighted sum of squared deviations from it
+    private long barLengthMs;
+    private long barStartMs = Long.MIN_VALUE;
+    private long barOpen;
+    private long barHigh;
+    private long barLow;
+    private long barClose;
+
+    public long cumulativeDelta() {
+        return cumulativeDelta;
+    }
+
+    /** Volume-weighted average traded price in ticks, 0 before the first trade. */
+    public double vwap() {
+        return vwap;
+    }
+
+    /** VWAP to the nearest tick, 0 before the first trade. */
+    public int vwapPrice() {
+        return (int) Math.round(vwap);
+    }
+
+    /** Volume-weighted standard deviation of traded prices in ticks. */
+    public double vwapSigma() {
+        return volume == 0 ? 0 : Math.sqrt(squaredDev / volume);
+    }
+
+    public long barOpen() {
+        return barOpen;
+    }
+
+    public long barHigh() {
+        return barHigh;
+    }
+
+    public long barLow() {
+        return barLow;
+    }
+
+    public long barClose() {
+        return barClose;
+    }
+
+    public Values values() {
+        return new Values(cumulativeDelta, vwap, vwapSigma(), barStartMs, barOpen, barHigh, barLow, barClose);
+    }
+
+    public void onTrade(int price, long size, boolean isBuy, long now, long barLengthMs) {
+        if (size <= 0)
+            return;
+        roll(now, barLengthMs);
+        accumulate(price, size);
+        cumulativeDelta += isBuy ? size : -size;
+        barHigh = Math.max(barHigh, cumulativeDelta);
+        barLow = Math.min(barLow, cumulativeDelta);
+        barClose = cumulativeDelta;
+    }
+
+    /**
+     * Starts a new bar when {@code now} has left the current one or the bar length changed.
+     * A time before the current bar (a late trade) stays in it.
+     *
+     * @return whether a new bar started
+     */
+    public boolean roll(long now, long barLengthMs) {
+        barLengthMs = Math.max(1, barLengthMs);
+        long start = Math.floorDiv(now, barLengthMs) * barLengthMs;
+        if (barLengthMs == this.barLengthMs && start <= barStartMs)
+            return false;
+        this.barLengthMs = barLengthMs;
+        barStartMs = start;
+        barOpen = cumulativeDelta;
+        barHigh = cumulativeDelta;
+        barLow = cumulativeDelta;
+        barClose = cumulativeDelta;
+        return true;
+    }
+
+    public void clear() {
+        cumulativeDelta = 0;
+        volume = 0;
+        vwap = 0;
+        squaredDev = 0;
+        barLengthMs = 0;
+        barStartMs = Long.MIN_VALUE;
+        barOpen = barHigh = barLow = barClose = 0;
+    }
+
+    /**
+     * Recomputes the delta, VWAP and deviation from a session footprint; the bar starts
+     * afresh. Used for model state written before these accumulators existed.
+     */
+    public void rebuild(FootprintLadder footprint) {
+        clear();
+        int price = Integer.MIN_VALUE;
+        for (int i = 0, n = footprint.size(); i < n; i++) {
+            price = footprint.nextAtOrAbove(i == 0 ? Integer.MIN_VALUE : price + 1);
+            long ask = footprint.askVol(price);
+            long bid = footprint.bidVol(price);
+            if (ask + bid > 0)
+                accumulate(price, ask + bid);
+            cumulativeDelta += ask - bid;
+        }
+    }
+
+    private void accumulate(int price, long size) {
+        volume += size;
+        double deviation = price - vwap;
+        vwap += deviation * size / volume;
+        squaredDev += size * deviation * (price - vwap);
+    }
+
+    // --- SERIALIZATION ---
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(cumulativeDelta);
+        out.writeLong(volume);
+        out.writeDouble(vwap);
+        out.writeDouble(squaredDev);
+        out.writeLong(barLengthMs);
+        out.writeLong(barStartMs);
+        out.writeLong(barOpen);
+        out.writeLong(barHigh);
+        out.writeLong(barLow);
+        out.writeLong(barClose);
+    }
+
+    public void readFrom(DataInput in) throws IOException {
+        cumulativeDelta = in.readLong();
+        volume = in.readLong();
+        vwap = in.readDouble();
+        squaredDev = in.readDouble();
+        barLengthMs = in.readLong();
+        barStartMs = in.readLong();
+        barOpen = in.readLong();
+        barHigh = in.readLong();
+        barLow = in.readLong();
+        barClose = in.readLong();
+    }
+}
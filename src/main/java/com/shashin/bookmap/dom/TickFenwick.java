@@ -0,0 +1,198 @@
+package com.shashin.bookmap.dom;
+
+import java.util.Arrays;
+
+/**
+ * Fenwick (binary indexed) tree of {@code long} values over a window of consecutive ticks:
+ * point updates, prefix sums and "first tick whose prefix sum reaches x" searches are all
+ * O(log n) in the window size, and point reads are O(1).
+ * <p>
+ * The window is placed around the first tick added (or an {@link #anchor}) and doubles,
+ * re-centred and rebuilt in O(n), whenever a tick falls outside it, up to
+ * {@link #MAX_CAPACITY} ticks. A tick that would need a larger window is refused, so one
+ * bad price cannot claim the heap. Reads leave refused ticks out: {@link #exact} tells
+ * whether a range sum is the true one, and callers that need it fall back to their own
+ * data, or re-anchor the window where they now read, when it is not.
+ * Searches assume non-negative values. Not thread-safe: callers synchronize externally.
+ */
+public final class TickFenwick {
+
+    static final int INITIAL_CAPACITY = 1 << 10;
+    static final int MAX_CAPACITY = 1 << 20;
+
+    private long[] tree;   // 1-based Fenwick array over the window
+    private long[] values; // plain value per tick of the window
+    private int low;       // tick of index 0
+    private boolean anchored;
+    private boolean complete = true; // no non-zero value was refused since the last clear
+    private long total;
+
+    public TickFenwick() {
+        tree = new long[INITIAL_CAPACITY + 1];
+        values = new long[INITIAL_CAPACITY];
+    }
+
+    // --- READS ---
+
+    /**
+     * True when {@link #sum} over {@code from} to {@code to} counts every value added there:
+     * nothing was refused, or the range lies inside the window.
+     */
+    public boolean exact(int from, int to) {
+        return complete || from > to || (anchored && from >= low && (long) to < (long) low + values.length);
+    }
+
+    /** Sum of all values. */
+    public long total() {
+        return total;
+    }
+
+    public long get(int tick) {
+        long i = (long) tick - low;
+        return anchored && i >= 0 && i < values.length ? values[(int) i] : 0;
+    }
+
+    /** Sum of the values at ticks {@code <= tick}. */
+    public long prefix(int tick) {
+        if (!anchored)
+            return 0;
+        long i = (long) tick - low;
+        if (i < 0)
+            return 0;
+        if (i >= values.length)
+            return total;
+        long sum = 0;
+        for (int j = (int) i + 1; j > 0; j -= j & -j)
+            sum += tree[j];
+        return sum;
+    }
+
+    /** Sum of the values at ticks {@code from} to {@code to}, both included. */
+    public long sum(int from, int to) {
+        if (from > to)
+            return 0;
+        return prefix(to) - (from == Integer.MIN_VALUE ? 0 : prefix(from - 1));
+    }
+
+    /**
+     * Lowest tick whose prefix sum is at least {@code target}, or {@link Integer#MAX_VALUE}
+     * when the total is short of it. {@code target} must be positive.
+     */
+    public int search(long target) {
+        if (!anchored || target > total)
+            return Integer.MAX_VALUE;
+        int capacity = values.length;
+        int pos = 0; // ticks known to sum to less than target
+        long remaining = target;
+        for (int step = Integer.highestOneBit(capacity); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= capacity && tree[next] < remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return low + pos;
+    }
+
+    /** Tick of the window's first slot; for structures kept aligned with this one. */
+    int low() {
+        return low;
+    }
+
+    /** Ticks the window covers. */
+    int capacity() {
+        return values.length;
+    }
+
+    // --- WRITES ---
+
+    /**
+     * Adds {@code delta} at {@code tick}.
+     *
+     * @return false, changing nothing, when the tick is too far from the others to fit
+     */
+    public boolean add(int tick, long delta) {
+        if (!cover(tick)) {
+            if (delta != 0)
+                complete = false;
+            return false;
+        }
+        int i = tick - low;
+        values[i] += delta;
+        total += delta;
+        for (int j = i + 1; j < tree.length; j += j & -j)
+            tree[j] += delta;
+        return true;
+    }
+
+    /**
+     * Makes the value at {@code tick} {@code value}. A tick refused earlier is picked up once
+     * the window can cover it, so an index mirroring another structure this way heals itself.
+     *
+     * @return false, changing nothing, when the tick is too far from the others to fit
+     */
+    public boolean set(int tick, long value) {
+        long old = get(tick);
+        return old == value || add(tick, value - old);
+    }
+
+    public void clear() {
+        Arrays.fill(tree, 0);
+        Arrays.fill(values, 0);
+        total = 0;
+        anchored = false;
+        complete = true;
+    }
+
+    /**
+     * Empties the index and spreads its window over the {@link #MAX_CAPACITY} ticks centred
+     * on {@code tick}, so a refill keeps every tick within half that of it. For when the
+     * values have drifted off the window and reads are no longer {@link #exact}.
+     */
+    public void anchor(int tick) {
+        if (values.length < MAX_CAPACITY) {
+            values = new long[MAX_CAPACITY];
+            tree = new long[MAX_CAPACITY + 1];
+        }
+        clear();
+        low = (int) Math.max(Integer.MIN_VALUE, Math.min((long) tick - MAX_CAPACITY / 2,
+                (long) Integer.MAX_VALUE - MAX_CAPACITY + 1));
+        anchored = true;
+    }
+
+    /** Makes the window cover {@code tick}, growing it if needed; false when it cannot. */
+    private boolean cover(int tick) {
+        if (!anchored) {
+            low = (int) Math.max(Integer.MIN_VALUE, (long) tick - values.length / 2);
+            anchored = true;
+            return true;
+        }
+        long from = Math.min(low, tick);
+        long to = Math.max((long) low + values.length - 1, tick);
+        if (from == low && to == (long) low + values.length - 1)
+            return true;
+
+        long span = to - from + 1;
+        long capacity = values.length;
+        while (capacity < 2 * span) // leaves room to keep growing the same way
+            capacity *= 2;
+        if (capacity > MAX_CAPACITY)
+            return false;
+        long newLow = Math.max(Integer.MIN_VALUE, Math.min(from - (capacity - span) / 2,
+                (long) Integer.MAX_VALUE - capacity + 1));
+
+        long[] grown = new long[(int) capacity];
+        System.arraycopy(values, 0, grown, (int) (low - newLow), values.length);
+        values = grown;
+        low = (int) newLow;
+        tree = new long[values.length + 1];
+        // Linear-time build: every node passes its sum on to its parent once
+        for (int j = 1; j < tree.length; j++) {
+            tree[j] += values[j - 1];
+            int parent = j + (j & -j);
+            if (parent < tree.length)
+                tree[parent] += tree[j];
+        }
+        return true;
+    }
+}
@@ -0,0 +1,153 @@
+package com.shashin.bookmap.dom;
+
+import java.util.Arrays;
+
+/**
+ * One page of {@link #SIZE} consecutive ticks inside a {@link TickPageTable}.
+ * <p>
+ * The base class owns the occupancy bitmap (one bit per tick plus a summary word of
+ * non-empty bitmap words) and the copy-on-write epoch; subclasses add the primitive
+ * value columns.
+ */
+abstract class TickPage {
+
+    static final int BITS = 10;
+    static final int SIZE = 1 << BITS;
+    static final int MASK = SIZE - 1;
+    static final int WORDS = SIZE >> 6;
+
+    final int number;
+    final long[] occupancy = new long[WORDS];
+    int summary; // bit w set when occupancy[w] != 0
+    int count;
+    int order;   // position in the table's price-ordered page list
+    int epoch;   // table epoch this page was created or copied in
+
+    TickPage(int number, int epoch) {
+        this.number = number;
+        this.epoch = epoch;
+    }
+
+    TickPage(TickPage other, int epoch) {
+        this.number = other.number;
+        this.summary = other.summary;
+        this.count = other.count;
+        this.order = other.order;
+        this.epoch = epoch;
+        System.arraycopy(other.occupancy, 0, occupancy, 0, WORDS);
+    }
+
+    /** Private copy of this page for a writer in {@code epoch}. */
+    abstract TickPage copy(int epoch);
+
+    /** Zeroes every value column. */
+    abstract void clearValues();
+
+    boolean isOccupied(int offset) {
+        return (occupancy[offset >> 6] & (1L << offset)) != 0;
+    }
+
+    /** Highest occupied offset {@code <= offset}, or -1. */
+    int highestAtOrBelow(int offset) {
+        int w = offset >> 6;
+        long word = occupancy[w] & (-1L >>> (63 - (offset & 63)));
+        if (word != 0)
+            return (w << 6) | (63 - Long.numberOfLeadingZeros(word));
+        int lower = summary & ((1 << w) - 1);
+        if (lower == 0)
+            return -1;
+        w = 31 - Integer.numberOfLeadingZeros(lower);
+        return (w << 6) | (63 - Long.numberOfLeadingZeros(occupancy[w]));
+    }
+
+    /** Lowest occupied offset {@code >= offset}, or -1. */
+    int lowestAtOrAbove(int offset) {
+        int w = offset >> 6;
+        long word = occupancy[w] & (-1L << (offset & 63));
+        if (word != 0)
+            return (w << 6) | Long.numberOfTrailingZeros(word);
+        int higher = summary & (-1 << (w + 1));
+        if (higher == 0)
+            return -1;
+        w = Integer.numberOfTrailingZeros(higher);
+        return (w << 6) | Long.numberOfTrailingZeros(occupancy[w]);
+    }
+
+    void setBit(int offset) {
+        int w = offset >> 6;
+        occupancy[w] |= 1L << offset;
+        summary |= 1 << w;
+    }
+
+    void clearBit(int offset) {
+        int w = offset >> 6;
+        occupancy[w] &= ~(1L << offset);
+        if (occupancy[w] == 0)
+            summary &= ~(1 << w);
+    }
+
+    void clearBits() {
+        Arrays.fill(occupancy, 0L);
+        summary = 0;
+        count = 0;
+    }
+
+    // --- VALUE LAYOUTS ---
+
+    /** A single {@code int} per tick (book size, reload, velocity stamp...). */
+    static final class Ints extends TickPage {
+        final int[] values = new int[SIZE];
+
+        Ints(int number, int epoch) {
+            super(number, epoch);
+        }
+
+        private Ints(Ints other, int epoch) {
+            super(other, epoch);
+            System.arraycopy(other.values, 0, values, 0, SIZE);
+        }
+
+        @Override
+        TickPage copy(int epoch) {
+            return new Ints(this, epoch);
+        }
+
+        @Override
+        void clearValues() {
+            Arrays.fill(values, 0);
+        }
+    }
+
+    /** Ask/bid volume and trade counts per tick. */
+    static final class Footprint extends TickPage {
+        final long[] askVol = new long[SIZE];
+        final long[] bidVol = new long[SIZE];
+        final int[] askCnt = new int[SIZE];
+        final int[] bidCnt = new int[SIZE];
+
+        Footprint(int number, int epoch) {
+            super(number, epoch);
+        }
+
+        private Footprint(Footprint other, int epoch) {
+            super(other, epoch);
+            System.arraycopy(other.askVol, 0, askVol, 0, SIZE);
+            System.arraycopy(other.bidVol, 0, bidVol, 0, SIZE);
+            System.arraycopy(other.askCnt, 0, askCnt, 0, SIZE);
+            System.arraycopy(other.bidCnt, 0, bidCnt, 0, SIZE);
+        }
+
+        @Override
+        TickPage copy(int epoch) {
+            return new Footprint(this, epoch);
+        }
+
+        @Override
+        void clearValues() {
+            Arrays.fill(askVol, 0L);
+            Arrays.fill(bidVol, 0L);
+            Arrays.fill(askCnt, 0);
+            Arrays.fill(bidCnt, 0);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.shashin.bookmap.dom;
+
+import java.util.Arrays;
+
+/**
+ * Page directory shared by the tick-indexed ladders.
+ * <p>
+ * Pages are found through an open-addressed directory keyed by page number and are
+ * also kept in price order with a bitmap of non-empty pages, so the next occupied
+ * tick in either direction is a few bit scans away.
+ * <p>
+ * Tables are copy-on-write: {@link #freeze()} hands the current table to readers,
+ * and the owning writer then continues on {@link #writable()}, a new table in the
+ * next epoch that shares every page. A page is only copied the first time the writer
+ * touches it in an epoch, so publishing a snapshot is O(1) and the copying cost per
+ * frame is proportional to the pages that changed, not to the session size.
+ */
+final class TickPageTable {
+
+    private static final int INITIAL_PAGES = 16;
+
+    /** Creates an empty page of the owning ladder's value layout. */
+    @FunctionalInterface
+    interface PageFactory {
+        TickPage create(int number, int epoch);
+    }
+
+    private TickPage[] directory;
+    private TickPage[] ordered;
+    private long[] nonEmptyPages;
+    private int pageCount;
+    private int levelCount;
+    private final int epoch;
+    private boolean frozen;
+
+    // Updates cluster around the BBO, so the last page hit is almost always the next one.
+    // Frozen pages are immutable, so readers racing on this cache is harmless.
+    private TickPage lastPage;
+
+    TickPageTable() {
+        this.directory = new TickPage[INITIAL_PAGES];
+        this.ordered = new TickPage[INITIAL_PAGES];
+        this.nonEmptyPages = new long[1];
+        this.epoch = 0;
+    }
+
+    private TickPageTable(TickPageTable src) {
+        this.directory = src.directory.clone();
+        this.ordered = src.ordered.clone();
+        this.nonEmptyPages = src.nonEmptyPages.clone();
+        this.pageCount = src.pageCount;
+        this.levelCount = src.levelCount;
+        this.epoch = src.epoch + 1;
+    }
+
+    // --- VERSIONING ---
+
+    /** Marks this table immutable so it can be shared with readers. */
+    TickPageTable freeze() {
+        frozen = true;
+        return this;
+    }
+
+    boolean isFrozen() {
+        return frozen;
+    }
+
+    /** This table if it may still be written, otherwise a fresh copy-on-write successor. */
+    TickPageTable writable() {
+        return frozen ? new TickPageTable(this) : this;
+    }
+
+    // --- READS ---
+
+    int levelCount() {
+        return levelCount;
+    }
+
+    int pageCount() {
+        return pageCount;
+    }
+
+    TickPage pageAt(int order) {
+        return ordered[order];
+    }
+
+    TickPage find(int number) {
+        TickPage cached = lastPage;
+        if (cached != null && cached.number == number)
+            return cached;
+        TickPage[] dir = directory;
+        int mask = dir.length - 1;
+        for (int slot = mix(number) & mask; ; slot = (slot + 1) & mask) {
+            TickPage page = dir[slot];
+            if (page == null)
+                return null;
+            if (page.number == number) {
+                lastPage = page;
+                return page;
+            }
+        }
+    }
+
+    boolean isOccupied(int price) {
+        TickPage page = find(price >> TickPage.BITS);
+        return page != null && page.isOccupied(price & TickPage.MASK);
+    }
+
+    /** Highest occupied price {@code <= price}, or {@link Integer#MIN_VALUE}. */
+    int nextAtOrBelow(int price) {
+        if (levelCount == 0)
+            return Integer.MIN_VALUE;
+        int number = price >> TickPage.BITS;
+        TickPage page = find(number);
+        if (page != null && page.count > 0) {
+            int offset = page.highestAtOrBelow(price & TickPage.MASK);
+            if (offset >= 0)
+                return (number << TickPage.BITS) | offset;
+        }
+        int order = previousNonEmpty(page != null ? page.order - 1 : orderOf(number) - 1);
+        if (order < 0)
+            return Integer.MIN_VALUE;
+        page = ordered[order];
+        return (page.number << TickPage.BITS) | page.highestAtOrBelow(TickPage.MASK);
+    }
+
+    /** Lowest occupied price {@code >= price}, or {@link Integer#MAX_VALUE}. */
+    int nextAtOrAbove(int price) {
+        if (levelCount == 0)
+            return Integer.MAX_VALUE;
+        int number = price >> TickPage.BITS;
+        TickPage page = find(number);
+        if (page != null && page.count > 0) {
+            int offset = page.lowestAtOrAbove(price & TickPage.MASK);
+            if (offset >= 0)
+                return (number << TickPage.BITS) | offset;
+        }
+        int order = nextNonEmpty(page != null ? page.order + 1 : orderOf(number));
+        if (order < 0)
+            return Integer.MAX_VALUE;
+        page = ordered[order];
+        return (page.number << TickPage.BITS) | page.lowestAtOrAbove(0);
+    }
+
+    // --- WRITES (never on a frozen table) ---
+
+    /** The page holding {@code number} made private to this epoch, created through {@code factory} if absent. */
+    TickPage pageForWrite(int number, PageFactory factory) {
+        TickPage page = find(number);
+        if (page == null) {
+            page = factory.create(number, epoch);
+            insert(page);
+            lastPage = page;
+            return page;
+        }
+        return own(page);
+    }
+
+    /** Copies {@code page} into this epoch if it is still shared with a frozen table. */
+    TickPage own(TickPage page) {
+        return page.epoch == epoch ? page : replace(page, page.order);
+    }
+
+    private TickPage replace(TickPage page, int order) {
+        TickPage copy = page.copy(epoch);
+        TickPage[] dir = directory;
+        int mask = dir.length - 1;
+        int slot = mix(page.number) & mask;
+        while (dir[slot].number != page.number)
+            slot = (slot + 1) & mask;
+        dir[slot] = copy;
+        ordered[order] = copy;
+        lastPage = copy;
+        return copy;
+    }
+
+    void occupy(TickPage page, int offset) {
+        page.setBit(offset);
+        if (page.count++ == 0)
+            nonEmptyPages[page.order >> 6] |= 1L << page.order;
+        levelCount++;
+    }
+
+    void vacate(TickPage page, int offset) {
+        page.clearBit(offset);
+        if (--page.count == 0)
+            nonEmptyPages[page.order >> 6] &= ~(1L << page.order);
+        levelCount--;
+    }
+
+    void clear() {
+        if (levelCount == 0)
+            return;
+        for (int i = 0; i < pageCount; i++) {
+            if (ordered[i].count > 0) {
+                TickPage page = own(ordered[i]);
+                page.clearValues();
+                page.clearBits();
+            }
+        }
+        Arrays.fill(nonEmptyPages, 0L);
+        levelCount = 0;
+    }
+
+    // --- NON-EMPTY PAGE SCANS ---
+
+    private int nextNonEmpty(int order) {
+        if (order >= pageCount)
+            return -1;
+        int w = order >> 6;
+        long word = nonEmptyPages[w] & (-1L << (order & 63));
+        while (true) {
+            if (word != 0) {
+                int found = (w << 6) | Long.numberOfTrailingZeros(word);
+                return found < pageCount ? found : -1;
+            }
+            if (++w >= nonEmptyPages.length)
+                return -1;
+            word = nonEmptyPages[w];
+        }
+    }
+
+    private int previousNonEmpty(int order) {
+        if (order < 0)
+            return -1;
+        int w = order >> 6;
+        long word = nonEmptyPages[w] & (-1L >>> (63 - (order & 63)));
+        while (true) {
+            if (word != 0)
+                return (w << 6) | (63 - Long.numberOfLeadingZeros(word));
+            if (--w < 0)
+                return -1;
+            word = nonEmptyPages[w];
+        }
+    }
+
+    /** Position the given page number has, or would have, in the ordered list. */
+    private int orderOf(int number) {
+        int lo = 0;
+        int hi = pageCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int n = ordered[mid].number;
+            if (n < number)
+                lo = mid + 1;
+            else if (n > number)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return lo;
+    }
+
+    // --- DIRECTORY ---
+
+    /**
+     * Page allocation is rare, so keeping the ordered list sorted by insertion is cheap.
+     * Shifting changes the order of later pages, so those are taken into this epoch too.
+     */
+    private void insert(TickPage page) {
+        if ((pageCount + 1) * 2 > directory.length) {
+            TickPage[] grown = new TickPage[directory.length * 2];
+            for (TickPage p : directory) {
+                if (p != null)
+                    place(grown, p);
+            }
+            directory = grown;
+        }
+        place(directory, page);
+
+        if (pageCount == ordered.length)
+            ordered = Arrays.copyOf(ordered, ordered.length * 2);
+        int at = orderOf(page.number);
+        System.arraycopy(ordered, at, ordered, at + 1, pageCount - at);
+        ordered[at] = page;
+        pageCount++;
+
+        if (nonEmptyPages.length << 6 < pageCount)
+            nonEmptyPages = new long[nonEmptyPages.length * 2];
+        else
+            Arrays.fill(nonEmptyPages, 0L);
+        for (int i = 0; i < pageCount; i++) {
+            TickPage p = ordered[i];
+            if (i > at && p.epoch != epoch)
+                p = replace(p, i);
+            p.order = i;
+            if (p.count > 0)
+                nonEmptyPages[i >> 6] |= 1L << i;
+        }
+    }
+
+    private static void place(TickPage[] dir, TickPage page) {
+        int mask = dir.length - 1;
+        int slot = mix(page.number) & mask;
+        while (dir[slot] != null)
+            slot = (slot + 1) & mask;
+        dir[slot] = page;
+    }
+
+    private static int mix(int number) {
+        int h = number * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,125 @@
+package com.shashin.bookmap.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sliding sum of traded volume over a configurable time window.
+ * <p>
+ * Volume is accumulated into fixed {@link #BUCKET_MS} buckets in a primitive ring sized
+ * for the longest supported window, with a running sum over the configured window.
+ * Adding a trade and expiring a bucket are both O(1) and nothing is allocated per
+ * trade. Because the ring always keeps the maximum history, the window can be
+ * lengthened or shortened at runtime and immediately reflects the older buckets.
+ * Not thread-safe: callers synchronize externally.
+ */
+public final class VelocityWindow {
+
+    public static final long BUCKET_MS = 100;
+
+    private final long[] buckets;
+    private final int capacity;
+    private int windowBuckets;
+    private long headBucket = Long.MIN_VALUE; // absolute index (time / BUCKET_MS) of the newest bucket
+    private long sum = 0;
+
+    public VelocityWindow(long maxWindowMs, long windowMs) {
+        this.capacity = (int) Math.max(1, (maxWindowMs + BUCKET_MS - 1) / BUCKET_MS);
+        this.buckets = new long[capacity];
+        this.windowBuckets = toBuckets(windowMs);
+    }
+
+    /** Records {@code size} traded at wall-clock time {@code now}. */
+    public void add(long now, int size) {
+        advance(now);
+        buckets[slot(headBucket)] += size;
+        sum += size;
+    }
+
+    /** Volume traded within the window ending at {@code now}. */
+    public long sum(long now) {
+        advance(now);
+        return sum;
+    }
+
+    /** Expires buckets that have left the window by {@code now}. Late timestamps count toward the newest bucket. */
+    public void advance(long now) {
+        long bucket = now / BUCKET_MS;
+        if (headBucket == Long.MIN_VALUE) {
+            headBucket = bucket;
+            return;
+        }
+        long steps = bucket - headBucket;
+        if (steps <= 0)
+            return;
+        if (steps >= capacity) {
+            Arrays.fill(buckets, 0L);
+            sum = 0;
+            headBucket = bucket;
+            return;
+        }
+        for (long i = 0; i < steps; i++) {
+            headBucket++;
+            sum -= buckets[slot(headBucket - windowBuckets)];
+            buckets[slot(headBucket)] = 0; // oldest slot in the ring becomes the new head
+        }
+    }
+
+    public long getWindowMs() {
+        return windowBuckets * BUCKET_MS;
+    }
+
+    /** Changes the window length; the running sum is rebuilt once from the retained buckets. */
+    public void setWindowMs(long windowMs) {
+        int resized = toBuckets(windowMs);
+        if (resized == windowBuckets)
+            return;
+        windowBuckets = resized;
+        sum = 0;
+        if (headBucket == Long.MIN_VALUE)
+            return;
+        for (int i = 0; i < windowBuckets; i++)
+            sum += buckets[slot(headBucket - i)];
+    }
+
+    public void clear() {
+        Arrays.fill(buckets, 0L);
+        sum = 0;
+        headBucket = Long.MIN_VALUE;
+    }
+
+    /** Writes the retained buckets, newest first; the window length is configuration and is not written. */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(headBucket);
+        out.writeInt(capacity);
+        for (int i = 0; i < capacity; i++)
+            out.writeLong(headBucket == Long.MIN_VALUE ? 0 : buckets[slot(headBucket - i)]);
+    }
+
+    /** Replaces the history with buckets written by {@link #writeTo(DataOutput)}, keeping the current window length. */
+    public void readFrom(DataInput in) throws IOException {
+        clear();
+        headBucket = in.readLong();
+        int stored = in.readInt();
+        for (int i = 0; i < stored; i++) {
+            long volume = in.readLong();
+            if (i < capacity && headBucket != Long.MIN_VALUE)
+                buckets[slot(headBucket - i)] = volume;
+        }
+        if (headBucket == Long.MIN_VALUE)
+            return;
+        for (int i = 0; i < windowBuckets; i++)
+            sum += buckets[slot(headBucket - i)];
+    }
+
+    private int toBuckets(long windowMs) {
+        long n = (windowMs + BUCKET_MS - 1) / BUCKET_MS;
+        return (int) Math.max(1, Math.min(capacity, n));
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) capacity);
+    }
+}
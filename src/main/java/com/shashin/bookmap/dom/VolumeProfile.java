@@ -0,0 +1,169 @@
+package com.shashin.bookmap.dom;
+
+/**
+ * Session volume profile kept up trade by trade: the point of control (POC), the value
+ * area around it and the largest absolute delta at any price, without rescanning the
+ * footprint.
+ * <p>
+ * Traded volume per price lives in a {@link TickFenwick}. Volume only ever grows, so the
+ * POC moves in O(1): to the traded price once it holds more than the POC, or as much at a
+ * lower price. Delta can shrink, so the absolute deltas sit in a max segment tree over the
+ * same tick window, updated in O(log n). The value area is computed on demand, after
+ * trades have moved it, in O(log n) per price it takes in.
+ * <p>
+ * The value area grows out from the POC the usual way: of the next traded price above and
+ * the next traded price below, the one with more volume joins (both on a tie) until the
+ * band holds {@code percent} of the volume. Prices nobody traded at are stepped over. Not
+ * thread-safe: callers synchronize externally.
+ */
+public final class VolumeProfile {
+
+    private final TickFenwick volume = new TickFenwick();
+    private long[] absDelta = new long[0]; // max tree: leaves at [capacity, 2 * capacity) for the volume window
+    private int deltaLow;                  // window the max tree was laid out for
+    private int pocPrice;
+    private long pocVolume;
+
+    // Value area as last computed, valid while nothing has traded since
+    private boolean valueAreaStale = true;
+    private int valueAreaPercent;
+    private int valueAreaHigh;
+    private int valueAreaLow;
+
+    /** Price with the most volume, the lowest of them on a tie; 0 before the first trade. */
+    public int poc() {
+        return pocPrice;
+    }
+
+    public long pocVolume() {
+        return pocVolume;
+    }
+
+    /** Volume traded at prices {@code low} to {@code high}, both included; O(log n). */
+    public long volumeBetween(int low, int high) {
+        return volume.sum(low, high);
+    }
+
+    /**
+     * True when {@link #volumeBetween} over {@code low} to {@code high} counts every trade
+     * there, none of them being too far from the rest of the session to fit.
+     */
+    public boolean exact(int low, int high) {
+        return volume.exact(low, high);
+    }
+
+    /** Largest {@code |ask volume - bid volume|} at any price. */
+    public long maxAbsDelta() {
+        return absDelta.length == 0 ? 0 : absDelta[1];
+    }
+
+    /** Upper edge of the value area holding {@code percent} of the volume; 0 before the first trade. */
+    public int valueAreaHigh(int percent) {
+        updateValueArea(percent);
+        return valueAreaHigh;
+    }
+
+    /** Lower edge of the value area holding {@code percent} of the volume; 0 before the first trade. */
+    public int valueAreaLow(int percent) {
+        updateValueArea(percent);
+        return valueAreaLow;
+    }
+
+    /**
+     * Records {@code size} traded at {@code price}, whose delta is {@code delta} afterwards.
+     * A price too far from the rest of the session to fit the window is left out.
+     */
+    public void onTrade(int price, long size, long delta) {
+        if (size <= 0 || !volume.add(price, size))
+            return;
+        long traded = volume.get(price);
+        if (traded > pocVolume || (traded == pocVolume && price < pocPrice)) {
+            pocPrice = price;
+            pocVolume = traded;
+        }
+        if (deltaLow != volume.low() || absDelta.length != 2 * volume.capacity())
+            relayoutDeltas();
+        int node = volume.capacity() + (price - deltaLow);
+        absDelta[node] = Math.abs(delta);
+        for (node >>= 1; node > 0; node >>= 1)
+            absDelta[node] = Math.max(absDelta[2 * node], absDelta[2 * node + 1]);
+        valueAreaStale = true;
+    }
+
+    public void clear() {
+        volume.clear();
+        absDelta = new long[0]; // the next trade anchors a new window
+        pocPrice = 0;
+        pocVolume = 0;
+        valueAreaStale = true;
+    }
+
+    /** Replaces the profile with the volumes of {@code footprint}; used after a restore. */
+    public void rebuild(FootprintLadder footprint) {
+        clear();
+        int price = Integer.MIN_VALUE;
+        for (int i = 0, n = footprint.size(); i < n; i++) {
+            price = footprint.nextAtOrAbove(i == 0 ? Integer.MIN_VALUE : price + 1);
+            long ask = footprint.askVol(price);
+            long bid = footprint.bidVol(price);
+            onTrade(price, ask + bid, ask - bid);
+        }
+    }
+
+    /** Moves the max tree's leaves to the volume window's current layout and rebuilds the inner nodes. */
+    private void relayoutDeltas() {
+        int capacity = volume.capacity();
+        long[] tree = new long[2 * capacity];
+        int oldCapacity = absDelta.length / 2;
+        if (oldCapacity > 0)
+            System.arraycopy(absDelta, oldCapacity, tree, capacity + (deltaLow - volume.low()), oldCapacity);
+        for (int node = capacity - 1; node > 0; node--)
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        absDelta = tree;
+        deltaLow = volume.low();
+    }
+
+    private void updateValueArea(int percent) {
+        if (!valueAreaStale && percent == valueAreaPercent)
+            return;
+        valueAreaStale = false;
+        valueAreaPercent = percent;
+        long total = volume.total();
+        if (total == 0) {
+            valueAreaHigh = 0;
+            valueAreaLow = 0;
+            return;
+        }
+        percent = Math.max(1, Math.min(100, percent));
+        long need = (total * percent + 99) / 100;
+        if (pocVolume >= need) {
+            valueAreaHigh = pocPrice;
+            valueAreaLow = pocPrice;
+            return;
+        }
+        int high = pocPrice;
+        int low = pocPrice;
+        long inside = pocVolume;
+        long below = volume.prefix(pocPrice - 1); // volume under the band
+        long through = below + pocVolume;         // volume up to the band's top
+        while (inside < need) {
+            // The next traded prices are where the prefix sum next steps up, or last stepped up
+            int up = through < total ? volume.search(through + 1) : Integer.MAX_VALUE;
+            int down = below > 0 ? volume.search(below) : Integer.MIN_VALUE;
+            long upVolume = up == Integer.MAX_VALUE ? -1 : volume.get(up);
+            long downVolume = down == Integer.MIN_VALUE ? -1 : volume.get(down);
+            if (upVolume >= downVolume) {
+                high = up;
+                inside += upVolume;
+                through += upVolume;
+            }
+            if (downVolume >= upVolume) {
+                low = down;
+                inside += downVolume;
+                below -= downVolume;
+            }
+        }
+        valueAreaHigh = high;
+        valueAreaLow = low;
+    }
+}
@@ -0,0 +1,95 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class AbsorptionDetectorTest {
+
+    private static AbsorptionDetector detector() {
+        AbsorptionDetector detector = new AbsorptionDetector();
+        detector.configure(5_000, 20, 1_600);
+        return detector;
+    }
+
+    @Test
+    void volumeBeyondTheOpeningSizeFlagsTheLevel() {
+        AbsorptionDetector detector = detector();
+        detector.onTrade(100, 15, true, 30, 0);
+        assertEquals(0, detector.strength(100, 0)); // below the minimum volume
+        detector.onTrade(100, 10, true, 30, 100);
+        assertEquals(0, detector.strength(100, 100)); // 25 traded into 30 resting, no refill
+        detector.onTrade(100, 10, true, 30, 200);
+        assertEquals(AbsorptionDetector.LEVELS, detector.strength(100, 200));
+        assertEquals(0, detector.strength(101, 200));
+    }
+
+    @Test
+    void aRefillFlagsAndAnAskIsNegative() {
+        AbsorptionDetector detector = detector();
+        detector.onTrade(200, 25, false, 40, 0);
+        assertEquals(0, detector.strength(200, 0));
+        detector.onDepth(false, 200, 15, 40, 50);
+        assertEquals(-AbsorptionDetector.LEVELS, detector.strength(200, 50));
+        // The other side at the same price is another level
+        detector.onDepth(true, 200, 0, 40, 60);
+        assertEquals(-AbsorptionDetector.LEVELS, detector.strength(200, 60));
+    }
+
+    @Test
+    void aLevelThatGivesWayIsNotAbsorbing() {
+        AbsorptionDetector detector = detector();
+        detector.onTrade(100, 25, true, 10, 0);
+        assertTrue(detector.strength(100, 0) > 0);
+        detector.onDepth(true, 100, 10, 0, 10); // closes the window; the earlier flag still fades
+        detector.onDepth(true, 100, 0, 5, 30);  // a new order, not a refill
+        assertEquals(AbsorptionDetector.LEVELS - 1, detector.strength(100, 100));
+        assertEquals(0, detector.strength(100, 1_600));
+
+        detector.onTrade(300, 25, true, 0, 2_000); // traded through: nothing rests there
+        assertEquals(0, detector.strength(300, 2_000));
+    }
+
+    @Test
+    void theWindowExpires() {
+        AbsorptionDetector detector = detector();
+        detector.onTrade(100, 15, true, 30, 0);
+        detector.onTrade(100, 15, true, 30, 6_000); // a new window: 15 traded, not 30
+        assertEquals(0, detector.strength(100, 6_000));
+    }
+
+    @Test
+    void highlightsFadeInSteps() {
+        AbsorptionDetector detector = detector();
+        assertFalse(detector.advance(0));
+        detector.onTrade(100, 50, true, 10, 1_000);
+        assertTrue(detector.advance(1_000));
+        assertFalse(detector.advance(1_050)); // same step of 100 ms
+        assertTrue(detector.advance(1_100));
+        assertEquals(AbsorptionDetector.LEVELS - 8, detector.strength(100, 1_800));
+        assertEquals(0, detector.strength(100, 2_600));
+        assertFalse(detector.advance(10_000));
+    }
+
+    @Test
+    void serializationKeepsFlagsAndWindows() throws IOException {
+        AbsorptionDetector detector = detector();
+        detector.onTrade(100, 50, true, 10, 1_000);
+        detector.onTrade(300, 15, false, 30, 1_000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        detector.writeTo(new DataOutputStream(bytes));
+
+        AbsorptionDetector copy = detector();
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(detector.strength(100, 1_200), copy.strength(100, 1_200));
+        copy.onTrade(300, 20, false, 30, 1_300); // the open window carries on
+        assertEquals(-AbsorptionDetector.LEVELS, copy.strength(300, 1_300));
+    }
+}
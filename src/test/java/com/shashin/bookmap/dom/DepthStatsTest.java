@@ -0,0 +1,97 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DepthStatsTest {
+
+    @Test
+    void bucketsRoundDownWithinAQuarterDoubling() {
+        for (int size = 1; size < 8; size++)
+            assertEquals(size, DepthStats.lowerBound(DepthStats.bucket(size)));
+        for (int size = 8; size < 1 << 20; size += 1 + size / 17) {
+            int low = DepthStats.lowerBound(DepthStats.bucket(size));
+            assertTrue(low <= size && size < low + Math.max(1, low / 4) + 1, "size " + size + " -> " + low);
+        }
+    }
+
+    @Test
+    void countsOnlyLevelsInsideTheWindow() {
+        PriceLadder bids = new PriceLadder();
+        PriceLadder asks = new PriceLadder();
+        bids.set(100, 4);
+        bids.set(98, 2);
+        bids.set(90, 50); // outside a 3-tick window
+        asks.set(101, 6);
+        asks.set(103, 1);
+        DepthStats stats = new DepthStats();
+        stats.reset(3, bids, asks, 100, 101);
+
+        assertEquals(4, stats.count());
+        assertEquals(13 / 4.0, stats.mean(), 1e-9);
+        assertEquals(1, stats.percentile(0));
+        assertEquals(6, stats.percentile(100));
+
+        stats.onLevel(true, 90, 50, 60);
+        assertEquals(4, stats.count());
+        stats.onLevel(true, 98, 2, 0);
+        bids.remove(98);
+        assertEquals(3, stats.count());
+    }
+
+    /** Incremental updates and window moves must agree with a recount of the book. */
+    @Test
+    void matchesARecountUnderRandomUpdates() {
+        PriceLadder bids = new PriceLadder();
+        PriceLadder asks = new PriceLadder();
+        int bestBid = 1000;
+        int bestAsk = 1001;
+        DepthStats stats = new DepthStats();
+        stats.reset(10, bids, asks, bestBid, bestAsk);
+        Random random = new Random(19);
+        for (int i = 0; i < 20_000; i++) {
+            if (random.nextInt(10) == 0) {
+                // Small steps move the window incrementally, the occasional jump replaces it
+                int move = random.nextInt(20) == 0 ? random.nextInt(41) - 20 : random.nextInt(5) - 2;
+                bestBid += move;
+                bestAsk = bestBid + 1;
+                stats.moveBid(bestBid, bids);
+                stats.moveAsk(bestAsk, asks);
+            }
+            boolean isBid = random.nextBoolean();
+            PriceLadder book = isBid ? bids : asks;
+            int price = isBid ? bestBid - random.nextInt(15) : bestAsk + random.nextInt(15);
+            int size = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(5000);
+            stats.onLevel(isBid, price, book.get(price), size);
+            book.set(price, size);
+
+            if (i % 500 == 0) {
+                DepthStats recount = new DepthStats();
+                recount.reset(10, bids, asks, bestBid, bestAsk);
+                assertEquals(recount.count(), stats.count(), "update " + i);
+                assertEquals(recount.mean(), stats.mean(), 1e-9);
+                for (int percent = 0; percent <= 100; percent += 25)
+                    assertEquals(recount.percentile(percent), stats.percentile(percent));
+            }
+        }
+    }
+
+    @Test
+    void losingTheBboEmptiesItsSide() {
+        PriceLadder bids = new PriceLadder();
+        PriceLadder asks = new PriceLadder();
+        bids.set(100, 4);
+        asks.set(101, 6);
+        DepthStats stats = new DepthStats();
+        stats.reset(5, bids, asks, 100, 101);
+        stats.moveBid(Integer.MIN_VALUE, bids);
+        assertEquals(1, stats.count());
+        stats.moveAsk(Integer.MAX_VALUE, asks);
+        assertEquals(0, stats.count());
+        assertEquals(0, stats.mean());
+        assertEquals(0, stats.percentile(50));
+    }
+}
@@ -0,0 +1,105 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+class DomFramePublisherTest {
+
+    /** Counts the frames handed to it. */
+    private static final class CountingPanel extends JigsawDomPanel {
+        final AtomicInteger frames = new AtomicInteger();
+
+        CountingPanel(DomSettings settings) {
+            super(settings);
+            setSize(400, 600);
+        }
+
+        @Override
+        public void updateSnapshot(DomFrame frame) {
+            frames.incrementAndGet();
+            super.updateSnapshot(frame);
+        }
+    }
+
+    @Test
+    void sleepsWhileIdleAndWakesOnChange() throws Exception {
+        DomSettings settings = new DomSettings();
+        settings.idleFps = 0;
+        DomModel model = new DomModel(settings);
+        model.setSingleWriter(true); // housekeeping belongs to an ingest thread, as in queue mode
+        CountingPanel panel = new CountingPanel(settings);
+        DomFramePublisher publisher = new DomFramePublisher();
+        try {
+            publisher.register(model, panel, null);
+            model.onDepth(true, 100, 5);
+            awaitTrue(() -> panel.frames.get() > 0, "first frame");
+
+            // The first frame centres the panel, which asks for one more frame at that centre
+            awaitTrue(() -> panel.frames.get() > 1, "frame at the panel's centre");
+            Thread scheduler = schedulerThread();
+            awaitTrue(() -> scheduler.getState() == Thread.State.WAITING, "scheduler parked without a deadline");
+            int before = panel.frames.get();
+            Thread.sleep(300);
+            assertEquals(before, panel.frames.get(), "no frames while idle");
+            assertEquals(Thread.State.WAITING, scheduler.getState());
+
+            model.onDepth(false, 101, 7);
+            awaitTrue(() -> panel.frames.get() > before, "frame after a change");
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    void frameRatesFollowSettingsEditsUntilPickedForTheWindow() {
+        DomSettings settings = new DomSettings();
+        JigsawDomPanel panel = new JigsawDomPanel(settings);
+        settings.activeFps = 30;
+        settings.idleFps = 5;
+        settings.markChanged();
+        assertEquals(30, panel.getActiveFps());
+        assertEquals(5, panel.getIdleFps());
+
+        panel.setActiveFps(120);
+        settings.activeFps = 15;
+        settings.idleFps = 1;
+        settings.markChanged();
+        assertEquals(120, panel.getActiveFps()); // picked from the popup menu
+        assertEquals(1, panel.getIdleFps());
+    }
+
+    @Test
+    void quietPanelClimbsBackToFullQuality() {
+        RenderQualityGovernor governor = new RenderQualityGovernor();
+        long now = System.nanoTime(); // the governor starts its hold times from construction
+        for (int i = 0; i < 100; i++, now += 10_000_000L)
+            governor.recordPaint(20_000_000L, now);
+        assertTrue(governor.level() > RenderQualityGovernor.FULL);
+
+        long due = governor.recordIdle(now);
+        while (due != Long.MAX_VALUE) {
+            assertTrue(due > now);
+            now = due;
+            due = governor.recordIdle(now);
+        }
+        assertEquals(RenderQualityGovernor.FULL, governor.level());
+    }
+
+    private static Thread schedulerThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("qtdom-frames") && t.isAlive())
+                .findFirst().orElseThrow();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for " + what);
+            Thread.sleep(5);
+        }
+    }
+}
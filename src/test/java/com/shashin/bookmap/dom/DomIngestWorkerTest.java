@@ -0,0 +1,143 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DomIngestWorkerTest {
+
+    private static final int POISON_PRICE = 13;
+
+    /** Fails on every depth update at {@link #POISON_PRICE}. */
+    private static final class FailingModel extends DomModel {
+        FailingModel() {
+            super(new DomSettings());
+        }
+
+        @Override
+        public synchronized void onDepth(boolean isBid, int price, int newSize) {
+            if (price == POISON_PRICE)
+                throw new IllegalStateException("poison");
+            super.onDepth(isBid, price, newSize);
+        }
+    }
+
+    @Test
+    void drainConsumesTheFailingEvent() {
+        DomEventQueue queue = new DomEventQueue(64);
+        DomModel model = new FailingModel();
+        queue.offerDepth(true, 10, 5, 0);
+        queue.offerDepth(true, POISON_PRICE, 5, 0);
+        queue.offerDepth(true, 11, 5, 0);
+
+        assertThrows(IllegalStateException.class, () -> queue.drainTo(model, null, 16));
+        assertEquals(1, queue.drainTo(model, null, 16));
+        assertTrue(queue.isEmpty());
+        assertEquals(2, model.getSnapshot().bids().size());
+    }
+
+    @Test
+    void workerKeepsRunningAfterAModelFails() throws InterruptedException {
+        DomIngestWorker worker = new DomIngestWorker();
+        DomEventQueue queue = new DomEventQueue(64);
+        DomModel model = new FailingModel();
+        try {
+            worker.register(queue, model, null);
+            queue.offerDepth(true, POISON_PRICE, 5, 0);
+            queue.offerDepth(false, 20, 7, 0);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!queue.isEmpty() && System.currentTimeMillis() < deadline)
+                Thread.sleep(5);
+            queue.offerDepth(false, 21, 3, 0);
+            while (model.getSnapshot().asks().size() < 2 && System.currentTimeMillis() < deadline)
+                Thread.sleep(5);
+            assertEquals(2, model.getSnapshot().asks().size());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void idleWorkerParksAndWakesOnPublish() throws InterruptedException {
+        DomIngestWorker worker = new DomIngestWorker();
+        DomEventQueue queue = new DomEventQueue(64);
+        DomModel model = new DomModel(new DomSettings());
+        try {
+            worker.register(queue, model, null);
+            Thread thread = workerThread();
+            awaitState(thread, Thread.State.TIMED_WAITING); // until the next maintenance
+
+            queue.offerDepth(true, 10, 5, 0);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (model.getSnapshot().bids().isEmpty() && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertEquals(5, model.getSnapshot().bids().get(10));
+
+            worker.unregister(queue);
+            awaitState(thread, Thread.State.WAITING); // nothing registered: no deadline either
+            worker.register(queue, model, null);
+            queue.offerDepth(true, 11, 6, 0);
+            while (model.getSnapshot().bids().size() < 2 && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertEquals(6, model.getSnapshot().bids().get(11));
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    /** Whatever was queued when the DOM went away is journaled before the journal closes. */
+    @Test
+    void unregisterJournalsTheBacklogThenCloses(@TempDir Path directory) throws Exception {
+        DomIngestWorker worker = new DomIngestWorker();
+        try {
+            DomEventQueue queue = new DomEventQueue(1 << 12);
+            DomJournal journal = DomJournal.create(directory, "retired", 0);
+            worker.register(queue, new DomModel(new DomSettings()), journal);
+            for (int i = 0; i < 3000; i++)
+                queue.offerDepth(i % 2 == 0, 100 + i % 50, i, i);
+            worker.unregister(queue);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!journal.isClosed() && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertTrue(journal.isClosed());
+            assertEquals(3000, journal.getRecordCount());
+            assertTrue(queue.isEmpty());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownClosesTheJournalsStillRegistered(@TempDir Path directory) throws Exception {
+        DomIngestWorker worker = new DomIngestWorker();
+        DomEventQueue queue = new DomEventQueue(1 << 12);
+        DomJournal journal = DomJournal.create(directory, "open", 0);
+        worker.register(queue, new DomModel(new DomSettings()), journal);
+        for (int i = 0; i < 2000; i++)
+            queue.offerTrade(100, 1, true, i);
+        worker.shutdown();
+        assertTrue(journal.isClosed());
+        assertEquals(2000, journal.getRecordCount());
+        try (DomJournalReplayer replayer = DomJournalReplayer.open(journal.getPath())) {
+            assertEquals(2000, replayer.replay(new DomModel(new DomSettings()), DomJournalReplayer.MAX_SPEED));
+        }
+    }
+
+    private static Thread workerThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("qtdom-ingest") && t.isAlive())
+                .findFirst().orElseThrow();
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != state) {
+            assertTrue(System.currentTimeMillis() < deadline, "worker never reached " + state);
+            Thread.sleep(1);
+        }
+    }
+}
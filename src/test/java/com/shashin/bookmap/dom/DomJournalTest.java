@@ -0,0 +1,141 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DomJournalTest {
+
+    private static final long START_NANOS = 1_700_000_000_000L * 1_000_000L;
+    private static final long MS = 1_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayRestoresBookAndTrades() throws Exception {
+        Path path;
+        try (DomJournal journal = DomJournal.create(directory, "ES 12-26", 0)) {
+            journal.appendDepth(START_NANOS, true, 100, 5);
+            journal.appendDepth(START_NANOS + MS, false, 101, 7);
+            journal.appendDepth(START_NANOS + 2 * MS, true, 99, 3);
+            journal.appendTrade(START_NANOS + 3 * MS, 101, 2, true);
+            journal.appendDepth(START_NANOS + 4 * MS, false, 101, 5);
+            journal.appendDepth(START_NANOS + 5 * MS, true, 99, 0);
+            assertEquals(6, journal.getRecordCount());
+            path = journal.getPath();
+        }
+
+        DomModel model = new DomModel(new DomSettings());
+        try (DomJournalReplayer replayer = DomJournalReplayer.open(path)) {
+            assertEquals("ES 12-26", replayer.getAlias());
+            assertEquals(6, replayer.replay(model, DomJournalReplayer.MAX_SPEED));
+        }
+        DomSnapshot snapshot = model.getSnapshot();
+        assertEquals(100, snapshot.bestBid());
+        assertEquals(101, snapshot.bestAsk());
+        assertEquals(1, snapshot.bids().size());
+        assertEquals(5, snapshot.asks().get(101));
+        assertEquals(101, snapshot.lastTradePrice());
+        assertEquals(2, snapshot.lastTradeSize());
+        assertEquals(2, snapshot.sessionFp().askVol(101));
+    }
+
+    @Test
+    void replayStopsAtTheRequestedTime() throws Exception {
+        Path path = writeQuietSession(10);
+        DomModel model = new DomModel(new DomSettings());
+        try (DomJournalReplayer replayer = DomJournalReplayer.open(path)) {
+            long next = replayer.replay(model, 0, START_NANOS + 4_500 * MS, DomJournalReplayer.MAX_SPEED);
+            assertEquals(1 + 45, next); // the trade, then depth records at 1, 101, ... 4401 ms
+        }
+    }
+
+    /** Maintenance must run on recorded time, so idle stretches still sample and roll. */
+    @Test
+    void replayRunsTimeDrivenMaintenance() throws Exception {
+        Path path = writeQuietSession(10);
+        DomSettings settings = new DomSettings();
+        settings.heatmapEnabled = true;
+        settings.heatmapIntervalSeconds = 1;
+        settings.deltaBarSeconds = 1;
+        DomModel model = new DomModel(settings);
+        try (DomJournalReplayer replayer = DomJournalReplayer.open(path)) {
+            replayer.replay(model, DomJournalReplayer.MAX_SPEED);
+        }
+
+        DomFrame frame = model.getSnapshot(100, 20);
+        assertTrue(frame.heatmapHead >= 9, "heatmap columns sampled: " + (frame.heatmapHead + 1));
+        assertTrue(frame.heatmapCount > 0);
+
+        // The only trade was in the first second; the current bar is the last one, flat
+        SessionStats.Values stats = model.getSnapshot().sessionStats();
+        long lastMillis = (START_NANOS + 9_900 * MS) / MS;
+        assertEquals(lastMillis / 1000 * 1000, stats.barStartMs());
+        assertEquals(4, stats.cumulativeDelta());
+        assertEquals(4, stats.barOpen());
+        assertEquals(4, stats.barClose());
+    }
+
+    /** A keyframed journal seeks to the same state as a replay from the start. */
+    @Test
+    void seekRestoresTheNearestKeyframe() throws Exception {
+        DomSettings settings = new DomSettings();
+        DomModel live = new DomModel(settings);
+        live.setSingleWriter(true);
+        DomEventQueue queue = new DomEventQueue(1 << 12);
+        Path path;
+        // Driven the way the ingest worker drives it: one keyframe a second of event time
+        try (DomJournal journal = DomJournal.create(directory, "keyed", 1000)) {
+            for (int i = 0; i < 500; i++) {
+                long time = START_NANOS + i * 10 * MS;
+                if (i % 5 == 0)
+                    queue.offerTrade(100 + i % 3, 1 + i % 4, i % 2 == 0, time);
+                else
+                    queue.offerDepth(i % 2 == 0, i % 2 == 0 ? 100 - i % 7 : 101 + i % 7, i % 11, time);
+                queue.drainTo(live, journal, 16);
+            }
+            path = journal.getPath();
+        }
+        assertTrue(Files.size(DomJournal.sibling(path, DomJournal.INDEX_EXTENSION))
+                > DomJournal.SIDE_HEADER_SIZE);
+
+        long target = START_NANOS + 3_555 * MS;
+        DomModel replayed = new DomModel(settings);
+        DomModel sought = new DomModel(settings);
+        sought.onDepth(true, 5_000, 99); // gone after the keyframe is restored, not after a replay from the start
+        try (DomJournalReplayer replayer = DomJournalReplayer.open(path)) {
+            long next = replayer.replay(replayed, 0, target, DomJournalReplayer.MAX_SPEED);
+            assertEquals(next, replayer.seek(sought, target));
+        }
+        DomSnapshot expected = replayed.getSnapshot();
+        DomSnapshot actual = sought.getSnapshot();
+        assertEquals(0, actual.bids().get(5_000));
+        assertEquals(expected.bestBid(), actual.bestBid());
+        assertEquals(expected.bestAsk(), actual.bestAsk());
+        assertEquals(expected.bids().size(), actual.bids().size());
+        assertEquals(expected.asks().size(), actual.asks().size());
+        for (int price = 90; price <= 110; price++) {
+            assertEquals(expected.bids().get(price), actual.bids().get(price));
+            assertEquals(expected.asks().get(price), actual.asks().get(price));
+            assertEquals(expected.sessionFp().askVol(price), actual.sessionFp().askVol(price));
+            assertEquals(expected.sessionFp().bidVol(price), actual.sessionFp().bidVol(price));
+        }
+        assertEquals(expected.sessionStats().cumulativeDelta(), actual.sessionStats().cumulativeDelta());
+    }
+
+    /** One buy in the first millisecond, then ten depth updates a second for {@code seconds}. */
+    private Path writeQuietSession(int seconds) throws IOException {
+        try (DomJournal journal = DomJournal.create(directory, "quiet", 0)) {
+            journal.appendTrade(START_NANOS, 101, 4, true);
+            for (int i = 0; i < seconds * 10; i++)
+                journal.appendDepth(START_NANOS + i * 100 * MS + MS, i % 2 == 0, i % 2 == 0 ? 100 : 101, 1 + i);
+            return journal.getPath();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class DomModelTest {
+
+    /** Levels too far apart for one range-sum window must still be counted. */
+    @Test
+    void depthStaysExactAcrossAVeryWideBook() {
+        DomModel model = new DomModel(new DomSettings());
+        int far = 3 * TickFenwick.MAX_CAPACITY;
+        model.onDepth(true, 100, 5);
+        model.onDepth(true, 99, 4);
+        model.onDepth(false, 101, 6);
+        model.onDepth(false, far, 9); // the ask index cannot cover this with 101
+        model.onDepth(true, 100 - far, 8);
+
+        assertEquals(9, model.depthWithin(true, 2));
+        assertEquals(17, model.depthWithin(true, far + 1));
+        assertEquals(15, model.depthWithin(false, far));
+        assertEquals(17, model.depthBetween(true, Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        // The book moves over to the far level: the index follows it
+        model.onDepth(true, 100, 0);
+        model.onDepth(true, 99, 0);
+        model.onDepth(false, 101, 0);
+        model.onDepth(true, far - 1, 3);
+        assertEquals(3, model.depthWithin(true, 10));
+        assertEquals(9, model.depthWithin(false, 10));
+        assertEquals(11, model.depthWithin(true, 2 * far));
+
+        DomFrame frame = model.getSnapshot(far, 10);
+        for (int i = 0; i < frame.rows; i++) {
+            int price = frame.topPrice - i;
+            assertEquals(price >= far ? 9 : 0, frame.cumAskSize[i], "ask row " + price);
+            assertEquals(price <= far - 1 ? 3 : 0, frame.cumBidSize[i], "bid row " + price);
+        }
+    }
+
+    @Test
+    void volumeStaysExactAcrossAWideSession() {
+        DomModel model = new DomModel(new DomSettings());
+        int far = 3 * TickFenwick.MAX_CAPACITY;
+        model.onTrade(100, 4, true, 0);
+        model.onTrade(far, 2, false, 0);
+        assertEquals(6, model.volumeBetween(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(4, model.volumeBetween(0, 200));
+    }
+
+    /** Iceberg marks leave the book view once the detector drops their estimate. */
+    @Test
+    void icebergMarksExpireWithTheirEstimate() {
+        for (boolean depthFirst : new boolean[] { false, true }) {
+            DomModel model = icebergModel(new DomSettings(), depthFirst);
+            assertEquals(20, model.getSnapshot().bidIcebergs().get(100), "depth first: " + depthFirst);
+            model.maintain(1_020 + IcebergDetector.EXPIRY_MS);
+            assertEquals(20, model.getSnapshot().bidIcebergs().get(100));
+            long version = model.getVersion();
+            model.maintain(1_021 + IcebergDetector.EXPIRY_MS);
+            assertEquals(0, model.getSnapshot().bidIcebergs().get(100));
+            assertTrue(model.getVersion() != version);
+        }
+    }
+
+    @Test
+    void icebergMarksClearWhenDetectionIsSwitchedOff() {
+        for (boolean depthFirst : new boolean[] { false, true }) {
+            DomSettings settings = new DomSettings();
+            DomModel model = icebergModel(settings, depthFirst);
+            assertEquals(1, model.getSnapshot().bidIcebergs().size(), "depth first: " + depthFirst);
+            settings.icebergDetectionEnabled = false;
+            model.maintain(1_100);
+            assertTrue(model.getSnapshot().bidIcebergs().isEmpty());
+        }
+    }
+
+    /** A bid of 50 at 100 hit for 20 at 1000 ms and refilled, the depth drop reported before or after the trade. */
+    private static DomModel icebergModel(DomSettings settings, boolean depthFirst) {
+        DomModel model = new DomModel(settings);
+        model.setSingleWriter(true); // maintenance runs on the times the test passes, not the wall clock
+        model.onDepth(true, 100, 50);
+        model.onDepth(false, 101, 50);
+        model.maintain(1_000);
+        if (depthFirst) {
+            model.onDepth(true, 100, 30);
+            model.onTrade(100, 20, false, 1_000);
+        } else {
+            model.onTrade(100, 20, false, 1_000);
+            model.onDepth(true, 100, 30);
+        }
+        model.maintain(1_020);
+        model.onDepth(true, 100, 50);
+        return model;
+    }
+}
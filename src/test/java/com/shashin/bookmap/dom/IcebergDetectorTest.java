@@ -0,0 +1,99 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class IcebergDetectorTest {
+
+    private static IcebergDetector detector() {
+        IcebergDetector detector = new IcebergDetector();
+        detector.configure(10, 25);
+        return detector;
+    }
+
+    @Test
+    void refillAfterTheTradeIsAnIceberg() {
+        IcebergDetector detector = detector();
+        assertFalse(detector.onDepth(true, 100, 0, 50, 0));
+        detector.onTrade(100, 20, true, 50, 1_000);            // trade first
+        assertFalse(detector.onDepth(true, 100, 50, 30, 1_010)); // the execution shows
+        assertTrue(detector.onDepth(true, 100, 30, 50, 1_020));  // and is refilled
+        assertEquals(20, detector.hidden(100, true, 1_020));
+        assertEquals(1, detector.refills(100, true, 1_020));
+        assertEquals(0, detector.hidden(100, false, 1_020));
+    }
+
+    @Test
+    void refillAfterDepthFirstIsAnIceberg() {
+        IcebergDetector detector = detector();
+        assertFalse(detector.onDepth(false, 200, 50, 30, 1_000)); // the execution shows first
+        detector.onTrade(200, 20, false, 30, 1_005);
+        assertTrue(detector.onDepth(false, 200, 30, 50, 1_020));
+        assertEquals(20, detector.hidden(200, false, 1_020));
+    }
+
+    @Test
+    void smallOrLateOrShortRefillsAreNot() {
+        IcebergDetector detector = detector();
+        detector.onTrade(100, 5, true, 50, 0); // below the minimum execution
+        detector.onDepth(true, 100, 50, 45, 10);
+        assertFalse(detector.onDepth(true, 100, 45, 50, 20));
+
+        detector.onTrade(101, 20, true, 50, 0);
+        detector.onDepth(true, 101, 50, 30, 10);
+        assertFalse(detector.onDepth(true, 101, 30, 50, 10 + IcebergDetector.REFILL_WINDOW_MS + 1));
+
+        detector.onTrade(102, 20, true, 50, 0);
+        detector.onDepth(true, 102, 50, 30, 10);
+        assertFalse(detector.onDepth(true, 102, 30, 35, 20)); // nowhere near the size before
+        assertEquals(0, detector.hidden(102, true, 20));
+    }
+
+    @Test
+    void estimatesExpireAndEvictedSlotsReadAsNone() {
+        IcebergDetector detector = detector();
+        refill(detector, 100, 0);
+        refill(detector, 100, 2_000);
+        assertEquals(40, detector.hidden(100, true, 2_000));
+        // The last refill was at 2020
+        assertEquals(40, detector.hidden(100, true, 2_020 + IcebergDetector.EXPIRY_MS));
+        assertEquals(0, detector.hidden(100, true, 2_021 + IcebergDetector.EXPIRY_MS));
+        assertEquals(0, detector.refills(100, true, 2_021 + IcebergDetector.EXPIRY_MS));
+
+        // A refill after expiry starts the estimate over
+        long later = 3_000 + IcebergDetector.EXPIRY_MS;
+        refill(detector, 100, later);
+        assertEquals(20, detector.hidden(100, true, later));
+
+        // A trade into another level on the same slot takes the slot over
+        detector.onTrade(100 + IcebergDetector.SLOTS, 20, true, 50, later + 100);
+        assertEquals(0, detector.hidden(100, true, later + 100));
+    }
+
+    @Test
+    void serializationKeepsEstimates() throws IOException {
+        IcebergDetector detector = detector();
+        refill(detector, 100, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        detector.writeTo(new DataOutputStream(bytes));
+        IcebergDetector copy = detector();
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(20, copy.hidden(100, true, 100));
+        assertEquals(1, copy.refills(100, true, 100));
+    }
+
+    /** One execution of 20 into a bid of 50 at {@code price}, refilled to 50. */
+    private static void refill(IcebergDetector detector, int price, long now) {
+        detector.onTrade(price, 20, true, 50, now);
+        detector.onDepth(true, price, 50, 30, now + 10);
+        assertTrue(detector.onDepth(true, price, 30, 50, now + 20));
+    }
+}
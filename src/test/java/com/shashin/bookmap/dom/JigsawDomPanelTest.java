@@ -0,0 +1,65 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class JigsawDomPanelTest {
+
+    private static final int MID = 20_000;
+
+    /** Parallel tiles must paint exactly what the serial renderer paints, whatever the core count. */
+    @Test
+    void parallelTilesMatchTheSerialRenderer() {
+        DomModel model = bookedModel();
+        for (boolean rasterBars : new boolean[] { false, true }) {
+            for (int height : new int[] { 800, 2160 }) {
+                String variant = (rasterBars ? "raster" : "java2d") + " at " + height;
+                BufferedImage serial = panel(model, rasterBars, false, height).renderAllRows();
+                for (int threads : new int[] { 2, 3, 8 }) {
+                    JigsawDomPanel tiled = panel(model, rasterBars, true, height);
+                    tiled.setTileThreads(threads);
+                    assertSamePixels(serial, tiled.renderAllRows(), variant + ", " + threads + " tiles");
+                    assertTrue(tiled.tileCount() >= 2, variant + ": rendered as tiles");
+                }
+            }
+        }
+    }
+
+    /** A book of 200 levels a side with trades spread around the mid price. */
+    private static DomModel bookedModel() {
+        DomModel model = new DomModel(new DomSettings());
+        Random random = new Random(17);
+        for (int i = 1; i <= 200; i++) {
+            model.onDepth(true, MID - i, 1 + random.nextInt(500));
+            model.onDepth(false, MID + i, 1 + random.nextInt(500));
+        }
+        for (int i = 0; i < 5_000; i++)
+            model.onTrade(MID - 100 + random.nextInt(200), 1 + random.nextInt(50), random.nextBoolean(), 1_000);
+        return model;
+    }
+
+    private static JigsawDomPanel panel(DomModel model, boolean rasterBars, boolean parallelTiles, int height) {
+        DomSettings settings = new DomSettings();
+        settings.rasterBars = rasterBars;
+        settings.parallelTiles = parallelTiles;
+        JigsawDomPanel panel = new JigsawDomPanel(settings);
+        panel.qualityGovernor().pinFullQuality();
+        panel.setSize(600, height);
+        panel.setPips(0.25);
+        panel.updateSnapshot(model.getSnapshot(MID, panel.getRequestedRows()));
+        return panel;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual, String variant) {
+        assertEquals(expected.getWidth(), actual.getWidth(), variant);
+        assertEquals(expected.getHeight(), actual.getHeight(), variant);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), variant + ": pixel " + x + "," + y);
+        }
+    }
+}
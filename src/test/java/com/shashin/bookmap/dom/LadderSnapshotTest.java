@@ -0,0 +1,105 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class LadderSnapshotTest {
+
+    @Test
+    void snapshotIsUnaffectedByLaterWrites() {
+        PriceLadder ladder = new PriceLadder();
+        ladder.set(100, 1);
+        ladder.set(100 + PriceLadder.PAGE_SIZE, 2);
+        PriceLadder snapshot = ladder.snapshot();
+
+        ladder.set(100, 9);
+        ladder.remove(100 + PriceLadder.PAGE_SIZE);
+        ladder.set(-5_000, 3);
+        ladder.clear();
+        ladder.set(7, 7);
+
+        assertEquals(1, snapshot.get(100));
+        assertEquals(2, snapshot.get(100 + PriceLadder.PAGE_SIZE));
+        assertEquals(0, snapshot.get(-5_000));
+        assertEquals(2, snapshot.size());
+        assertEquals(100 + PriceLadder.PAGE_SIZE, snapshot.highest());
+        assertEquals(1, ladder.size());
+        assertEquals(7, ladder.get(7));
+    }
+
+    @Test
+    void snapshotsAreReadOnlyAndIdempotent() {
+        PriceLadder snapshot = new PriceLadder().snapshot();
+        assertSame(snapshot, snapshot.snapshot());
+        assertThrows(IllegalStateException.class, () -> snapshot.set(1, 1));
+        FootprintLadder footprint = new FootprintLadder().snapshot();
+        assertThrows(IllegalStateException.class, () -> footprint.add(1, true, 1));
+    }
+
+    @Test
+    void everyEpochKeepsItsOwnContents() {
+        PriceLadder ladder = new PriceLadder();
+        TreeMap<Integer, Integer> live = new TreeMap<>();
+        List<PriceLadder> snapshots = new ArrayList<>();
+        List<TreeMap<Integer, Integer>> expected = new ArrayList<>();
+        Random random = new Random(4);
+        for (int epoch = 0; epoch < 40; epoch++) {
+            for (int i = 0; i < 200; i++) {
+                // A wide range so pages are added, and the ordered page list shifts, mid-epoch
+                int price = random.nextInt(40) * PriceLadder.PAGE_SIZE / 2 - 10 * PriceLadder.PAGE_SIZE + random.nextInt(8);
+                int value = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(100);
+                ladder.set(price, value);
+                if (value == 0)
+                    live.remove(price);
+                else
+                    live.put(price, value);
+            }
+            snapshots.add(ladder.snapshot());
+            expected.add(new TreeMap<>(live));
+        }
+        for (int epoch = 0; epoch < snapshots.size(); epoch++) {
+            PriceLadder snapshot = snapshots.get(epoch);
+            TreeMap<Integer, Integer> levels = expected.get(epoch);
+            assertEquals(levels.size(), snapshot.size(), "epoch " + epoch);
+            assertEquals(levels.isEmpty() ? Integer.MIN_VALUE : levels.lastKey(), snapshot.highest());
+            assertEquals(levels.isEmpty() ? Integer.MAX_VALUE : levels.firstKey(), snapshot.lowest());
+            levels.forEach((price, value) -> assertEquals(value, snapshot.get(price)));
+            int[] count = new int[1];
+            snapshot.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, (price, value) -> {
+                assertEquals(levels.get(price), value);
+                count[0]++;
+            });
+            assertEquals(levels.size(), count[0]);
+        }
+    }
+
+    @Test
+    void footprintSnapshotKeepsVolumesAndCounts() {
+        FootprintLadder footprint = new FootprintLadder();
+        footprint.add(50, true, 10);
+        footprint.add(50, false, 4);
+        FootprintLadder snapshot = footprint.snapshot();
+
+        footprint.add(50, true, 5);
+        footprint.subtract(50, false, 4);
+        footprint.add(51, true, 1);
+
+        assertEquals(10, snapshot.askVol(50));
+        assertEquals(4, snapshot.bidVol(50));
+        assertEquals(1, snapshot.askCnt(50));
+        assertEquals(1, snapshot.bidCnt(50));
+        assertFalse(snapshot.contains(51));
+        assertEquals(15, footprint.askVol(50));
+        assertEquals(0, footprint.bidVol(50));
+        assertTrue(footprint.contains(51));
+    }
+}
@@ -0,0 +1,137 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class PriceLadderTest {
+
+    @Test
+    void emptyLadderHasNoLevels() {
+        PriceLadder ladder = new PriceLadder();
+        assertTrue(ladder.isEmpty());
+        assertEquals(0, ladder.get(100));
+        assertEquals(Integer.MIN_VALUE, ladder.highest());
+        assertEquals(Integer.MAX_VALUE, ladder.lowest());
+        assertEquals(Integer.MIN_VALUE, ladder.nextAtOrBelow(100));
+        assertEquals(Integer.MAX_VALUE, ladder.nextAtOrAbove(100));
+    }
+
+    @Test
+    void setAddAndRemove() {
+        PriceLadder ladder = new PriceLadder();
+        assertEquals(0, ladder.set(100, 5));
+        assertEquals(5, ladder.set(100, 7));
+        assertEquals(10, ladder.add(100, 3));
+        assertEquals(1, ladder.size());
+        assertEquals(0, ladder.add(100, -10));
+        assertFalse(ladder.contains(100));
+        assertTrue(ladder.isEmpty());
+
+        ladder.set(-3, 4);
+        ladder.remove(-3);
+        assertEquals(0, ladder.get(-3));
+        assertTrue(ladder.isEmpty());
+    }
+
+    @Test
+    void findsNeighboursAcrossPagesAndSparseSpans() {
+        PriceLadder ladder = new PriceLadder();
+        int far = 5_000_000;
+        ladder.set(-far, 1);
+        ladder.set(PriceLadder.PAGE_SIZE - 1, 2);
+        ladder.set(PriceLadder.PAGE_SIZE, 3);
+        ladder.set(far, 4);
+
+        assertEquals(far, ladder.highest());
+        assertEquals(-far, ladder.lowest());
+        assertEquals(PriceLadder.PAGE_SIZE - 1, ladder.nextAtOrBelow(PriceLadder.PAGE_SIZE - 1));
+        assertEquals(PriceLadder.PAGE_SIZE - 1, ladder.nextAtOrAbove(0));
+        assertEquals(-far, ladder.nextAtOrBelow(0));
+        assertEquals(far, ladder.nextAtOrAbove(PriceLadder.PAGE_SIZE + 1));
+
+        int[] out = new int[8];
+        assertEquals(3, ladder.nextLevels(PriceLadder.PAGE_SIZE, true, out, 8));
+        assertArrayEquals(new int[] {PriceLadder.PAGE_SIZE, PriceLadder.PAGE_SIZE - 1, -far},
+                Arrays.copyOf(out, 3));
+        assertEquals(2, ladder.nextLevels(0, false, out, 2));
+        assertArrayEquals(new int[] {PriceLadder.PAGE_SIZE - 1, PriceLadder.PAGE_SIZE}, Arrays.copyOf(out, 2));
+    }
+
+    @Test
+    void rangeIterationAndRetain() {
+        PriceLadder ladder = new PriceLadder();
+        for (int p = 0; p < 1000; p += 7)
+            ladder.set(p, p + 1);
+        List<Integer> seen = new ArrayList<>();
+        ladder.forEachInRange(100, 200, (price, value) -> {
+            assertEquals(price + 1, value);
+            seen.add(price);
+        });
+        assertEquals(105, seen.get(0));
+        assertEquals(196, seen.get(seen.size() - 1));
+
+        ladder.retainRange(100, 200);
+        assertEquals(seen.size(), ladder.size());
+        assertEquals(105, ladder.lowest());
+        assertEquals(196, ladder.highest());
+    }
+
+    @Test
+    void matchesSortedMapUnderRandomUpdates() {
+        PriceLadder ladder = new PriceLadder();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            int price = 10_000 + random.nextInt(3000) - 1500;
+            int value = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(500);
+            ladder.set(price, value);
+            if (value == 0)
+                expected.remove(price);
+            else
+                expected.put(price, value);
+
+            int probe = 10_000 + random.nextInt(4000) - 2000;
+            Integer below = expected.floorKey(probe);
+            Integer above = expected.ceilingKey(probe);
+            assertEquals(below == null ? Integer.MIN_VALUE : below, ladder.nextAtOrBelow(probe));
+            assertEquals(above == null ? Integer.MAX_VALUE : above, ladder.nextAtOrAbove(probe));
+        }
+        assertEquals(expected.size(), ladder.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet())
+            assertEquals(e.getValue(), ladder.get(e.getKey()));
+    }
+
+    @Test
+    void serializationRoundTrip() throws IOException {
+        PriceLadder ladder = new PriceLadder();
+        ladder.set(-70_000, 3);
+        ladder.set(12, 9);
+        ladder.set(400_000, 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ladder.writeTo(new DataOutputStream(bytes));
+
+        PriceLadder copy = new PriceLadder();
+        copy.set(5, 5);
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(3, copy.size());
+        assertEquals(0, copy.get(5));
+        assertEquals(3, copy.get(-70_000));
+        assertEquals(9, copy.get(12));
+        assertEquals(1, copy.get(400_000));
+    }
+}
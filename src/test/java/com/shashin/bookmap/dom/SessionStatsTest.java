@@ -0,0 +1,93 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SessionStatsTest {
+
+    private static final long BAR_MS = 60_000;
+
+    @Test
+    void vwapAndSigmaMatchATwoPassComputation() {
+        SessionStats stats = new SessionStats();
+        Random random = new Random(23);
+        int[] prices = new int[5_000];
+        long[] sizes = new long[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            // Far from zero, where summing squared prices loses the deviation
+            prices[i] = 50_000_000 + random.nextInt(40);
+            sizes[i] = 1 + random.nextInt(100);
+            stats.onTrade(prices[i], sizes[i], random.nextBoolean(), i, BAR_MS);
+        }
+        double volume = 0;
+        double weighted = 0;
+        for (int i = 0; i < prices.length; i++) {
+            volume += sizes[i];
+            weighted += (double) prices[i] * sizes[i];
+        }
+        double vwap = weighted / volume;
+        double squares = 0;
+        for (int i = 0; i < prices.length; i++)
+            squares += sizes[i] * (prices[i] - vwap) * (prices[i] - vwap);
+        assertEquals(vwap, stats.vwap(), 1e-6);
+        assertEquals(Math.sqrt(squares / volume), stats.vwapSigma(), 1e-6);
+        assertEquals((int) Math.round(vwap), stats.vwapPrice());
+    }
+
+    @Test
+    void barsFollowTheCumulativeDelta() {
+        SessionStats stats = new SessionStats();
+        stats.onTrade(100, 5, true, 1_000, BAR_MS);
+        stats.onTrade(100, 8, false, 2_000, BAR_MS);
+        stats.onTrade(101, 4, true, 3_000, BAR_MS);
+        SessionStats.Values bar = stats.values();
+        assertEquals(0, bar.barStartMs());
+        assertEquals(0, bar.barOpen());
+        assertEquals(5, bar.barHigh());
+        assertEquals(-3, bar.barLow());
+        assertEquals(1, bar.barClose());
+        assertEquals(1, bar.cumulativeDelta());
+
+        // A late trade stays in the current bar; a quiet roll opens a flat one
+        assertTrue(stats.roll(BAR_MS + 10, BAR_MS));
+        stats.onTrade(100, 2, false, 59_000, BAR_MS);
+        assertEquals(BAR_MS, stats.values().barStartMs());
+        assertEquals(1, stats.barOpen());
+        assertEquals(-1, stats.barClose());
+        assertFalse(stats.roll(BAR_MS + 20, BAR_MS));
+        assertTrue(stats.roll(BAR_MS + 20, 2 * BAR_MS)); // a new length starts a new bar
+        assertEquals(-1, stats.barOpen());
+        assertEquals(-1, stats.barHigh());
+    }
+
+    @Test
+    void rebuildAndSerializationKeepTheSession() throws IOException {
+        FootprintLadder footprint = new FootprintLadder();
+        SessionStats stats = new SessionStats();
+        stats.onTrade(100, 6, true, 0, BAR_MS);
+        footprint.add(100, true, 6);
+        stats.onTrade(104, 2, false, 0, BAR_MS);
+        footprint.add(104, false, 2);
+
+        SessionStats rebuilt = new SessionStats();
+        rebuilt.rebuild(footprint);
+        assertEquals(stats.cumulativeDelta(), rebuilt.cumulativeDelta());
+        assertEquals(stats.vwap(), rebuilt.vwap(), 1e-9);
+        assertEquals(stats.vwapSigma(), rebuilt.vwapSigma(), 1e-9);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stats.writeTo(new DataOutputStream(bytes));
+        SessionStats copy = new SessionStats();
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(stats.values(), copy.values());
+    }
+}
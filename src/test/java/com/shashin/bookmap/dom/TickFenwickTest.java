@@ -0,0 +1,86 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TickFenwickTest {
+
+    @Test
+    void matchesPlainSumsWhileGrowing() {
+        TickFenwick index = new TickFenwick();
+        long[] values = new long[20_000];
+        int base = 1_000_000;
+        Random random = new Random(22);
+        for (int i = 0; i < 20_000; i++) {
+            // Spreading out from the middle makes the window double and re-centre several times
+            int spread = Math.min(values.length / 2 - 1, 10 + i);
+            int offset = values.length / 2 + random.nextInt(2 * spread + 1) - spread;
+            long value = random.nextInt(4) == 0 ? 0 : random.nextInt(1000);
+            assertTrue(index.set(base + offset, value));
+            values[offset] = value;
+
+            if (i % 200 == 0) {
+                int from = random.nextInt(values.length);
+                int to = from + random.nextInt(values.length - from);
+                long expected = 0;
+                for (int k = from; k <= to; k++)
+                    expected += values[k];
+                assertTrue(index.exact(base + from, base + to));
+                assertEquals(expected, index.sum(base + from, base + to), "update " + i);
+                assertEquals(values[from], index.get(base + from));
+            }
+        }
+        long total = 0;
+        for (long value : values)
+            total += value;
+        assertEquals(total, index.total());
+        assertEquals(total, index.prefix(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void searchFindsTheFirstTickReachingATarget() {
+        TickFenwick index = new TickFenwick();
+        index.add(-5, 3);
+        index.add(0, 4);
+        index.add(7, 1);
+        assertEquals(-5, index.search(1));
+        assertEquals(-5, index.search(3));
+        assertEquals(0, index.search(4));
+        assertEquals(7, index.search(8));
+        assertEquals(Integer.MAX_VALUE, index.search(9));
+    }
+
+    @Test
+    void refusedTicksMakeWideRangesInexact() {
+        TickFenwick index = new TickFenwick();
+        index.add(100, 5);
+        assertFalse(index.add(100 + TickFenwick.MAX_CAPACITY, 7));
+        assertEquals(5, index.total());
+        assertTrue(index.exact(90, 110));
+        assertFalse(index.exact(90, 100 + TickFenwick.MAX_CAPACITY));
+        assertFalse(index.exact(Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        index.clear();
+        assertTrue(index.exact(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void anchorCentresTheWindowForARefill() {
+        TickFenwick index = new TickFenwick();
+        int far = 10 * TickFenwick.MAX_CAPACITY;
+        index.add(0, 1);
+        assertFalse(index.add(far, 2));
+
+        index.anchor(far);
+        assertEquals(0, index.total());
+        assertFalse(index.add(0, 1));
+        assertTrue(index.add(far, 2));
+        assertTrue(index.add(far - TickFenwick.MAX_CAPACITY / 2, 3));
+        assertTrue(index.exact(far - 10, far + 10));
+        assertEquals(5, index.sum(far - TickFenwick.MAX_CAPACITY, far));
+    }
+}
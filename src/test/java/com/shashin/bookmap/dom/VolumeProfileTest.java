@@ -0,0 +1,128 @@
+package com.shashin.bookmap.dom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class VolumeProfileTest {
+
+    @Test
+    void pocIsTheLowestPriceWithTheMostVolume() {
+        VolumeProfile profile = new VolumeProfile();
+        assertEquals(0, profile.poc());
+        assertEquals(0, profile.valueAreaHigh(70));
+        profile.onTrade(105, 10, 10);
+        profile.onTrade(100, 4, -4);
+        profile.onTrade(100, 6, -10);
+        assertEquals(100, profile.poc());
+        assertEquals(10, profile.pocVolume());
+        assertEquals(20, profile.volumeBetween(100, 105));
+        assertEquals(10, profile.maxAbsDelta());
+        profile.onTrade(105, 1, 11);
+        assertEquals(105, profile.poc());
+        assertEquals(11, profile.maxAbsDelta());
+    }
+
+    /** The area grows from the POC towards the larger neighbour, not along volume percentiles. */
+    @Test
+    void valueAreaGrowsOutFromThePoc() {
+        VolumeProfile profile = new VolumeProfile();
+        profile.onTrade(96, 30, 0);  // a heavy tail far below
+        profile.onTrade(99, 5, 0);
+        profile.onTrade(100, 40, 0); // POC
+        profile.onTrade(101, 15, 0);
+        profile.onTrade(102, 10, 0);
+        // 70 of 100: POC 40, then 101 (15 > 5), then 102 (10 > 5), then 99 (5 > 0 above)
+        assertEquals(102, profile.valueAreaHigh(70));
+        assertEquals(99, profile.valueAreaLow(70));
+        // 40% is the POC alone
+        assertEquals(100, profile.valueAreaHigh(40));
+        assertEquals(100, profile.valueAreaLow(40));
+        // Untraded prices are stepped over: 96 joins once 99 is in
+        assertEquals(96, profile.valueAreaLow(100));
+    }
+
+    @Test
+    void tiedNeighboursJoinTogether() {
+        VolumeProfile profile = new VolumeProfile();
+        profile.onTrade(99, 10, 0);
+        profile.onTrade(100, 30, 0);
+        profile.onTrade(101, 10, 0);
+        profile.onTrade(103, 5, 0);
+        // 60% of 55 is 33: one more row would do, but 99 and 101 are tied
+        assertEquals(99, profile.valueAreaLow(60));
+        assertEquals(101, profile.valueAreaHigh(60));
+        assertEquals(103, profile.valueAreaHigh(95));
+    }
+
+    @Test
+    void matchesARowByRowExpansion() {
+        Random random = new Random(21);
+        for (int round = 0; round < 50; round++) {
+            VolumeProfile profile = new VolumeProfile();
+            TreeMap<Integer, Long> volumes = new TreeMap<>();
+            for (int i = 0; i < 300; i++) {
+                int price = 5_000 + (int) (random.nextGaussian() * 20);
+                long size = 1 + random.nextInt(20);
+                profile.onTrade(price, size, 0);
+                volumes.merge(price, size, Long::sum);
+                if (i % 50 == 49) {
+                    for (int percent = 50; percent <= 95; percent += 15) {
+                        int[] expected = expand(volumes, percent);
+                        assertEquals(expected[0], profile.valueAreaLow(percent), "round " + round + ", " + percent + "%");
+                        assertEquals(expected[1], profile.valueAreaHigh(percent));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rebuildMatchesTheFootprint() {
+        FootprintLadder footprint = new FootprintLadder();
+        footprint.add(10, true, 7);
+        footprint.add(10, false, 2);
+        footprint.add(12, false, 20);
+        VolumeProfile profile = new VolumeProfile();
+        profile.onTrade(500, 1, 1);
+        profile.rebuild(footprint);
+        assertEquals(12, profile.poc());
+        assertEquals(29, profile.volumeBetween(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(20, profile.maxAbsDelta());
+    }
+
+    /** Reference value area: from the POC, add the heavier of the adjacent traded prices, both on a tie. */
+    private static int[] expand(TreeMap<Integer, Long> volumes, int percent) {
+        long total = volumes.values().stream().mapToLong(Long::longValue).sum();
+        long need = (total * percent + 99) / 100;
+        int poc = 0;
+        long pocVolume = 0;
+        for (Map.Entry<Integer, Long> e : volumes.entrySet()) {
+            if (e.getValue() > pocVolume) {
+                poc = e.getKey();
+                pocVolume = e.getValue();
+            }
+        }
+        int low = poc;
+        int high = poc;
+        long inside = pocVolume;
+        while (inside < need) {
+            Integer up = volumes.higherKey(high);
+            Integer down = volumes.lowerKey(low);
+            long upVolume = up == null ? -1 : volumes.get(up);
+            long downVolume = down == null ? -1 : volumes.get(down);
+            if (upVolume >= downVolume) {
+                high = up;
+                inside += upVolume;
+            }
+            if (downVolume >= upVolume) {
+                low = down;
+                inside += downVolume;
+            }
+        }
+        return new int[] { low, high };
+    }
+}